@@ -0,0 +1,82 @@
+package gitlet;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the commands, run over the repository shapes of RepoState.
+ * Commands that change the repository get their input ready before every invocation, outside of the measurement.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommandBenchmarks {
+
+    private boolean onOther = false;
+
+
+    /**
+     * A file with new content, not staged yet.
+     */
+    @State(Scope.Benchmark)
+    public static class ChangedFile {
+
+        public String name;
+        private int next = 0;
+
+        @Setup(Level.Invocation)
+        public void change(RepoState repo) throws IOException {
+            name = RepoState.fileName(next++ % repo.fileCount);
+            repo.writeFile(name);
+        }
+    }
+
+
+    /**
+     * A file with new content, staged for the next commit.
+     */
+    @State(Scope.Benchmark)
+    public static class StagedFile {
+
+        private int next = 0;
+
+        @Setup(Level.Invocation)
+        public void stage(RepoState repo) throws IOException {
+            String name = RepoState.fileName(next++ % repo.fileCount);
+            repo.writeFile(name);
+            Index.readFromFile().addFileToStage(name);
+        }
+    }
+
+
+    @Benchmark
+    public void addFileToStage(ChangedFile file){
+        Index.readFromFile().addFileToStage(file.name);
+    }
+
+    @Benchmark
+    public void makeCommit(StagedFile file){
+        Repository.makeCommit("benchmark commit");
+    }
+
+    @Benchmark
+    public void viewStatus(RepoState repo){
+        Repository.viewStatus();
+    }
+
+    @Benchmark
+    public void chekoutBranch(RepoState repo){
+        onOther = !onOther;
+        Repository.chekoutBranch(onOther ? RepoState.OTHER_BRANCH : "master");
+    }
+
+    @Benchmark
+    public Commit getSplit(RepoState repo){
+        return Branch.getActiveBranch().getSplit(RepoState.OTHER_BRANCH);
+    }
+}
@@ -0,0 +1,75 @@
+package gitlet;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the building blocks every command relies on: hashing, object (de)serialization and blobs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CoreBenchmarks {
+
+    /**
+     * Random content of the size of one file; needs no repository.
+     */
+    @State(Scope.Benchmark)
+    public static class Data {
+
+        @Param({"1024", "16384", "1048576"})
+        public int size;
+
+        public byte[] content;
+
+        @Setup
+        public void createContent(){
+            content = new byte[size];
+            new java.util.Random(42).nextBytes(content);
+        }
+    }
+
+
+    /**
+     * The head commit of the repository, its file, and one of its files.
+     */
+    @State(Scope.Benchmark)
+    public static class HeadCommit {
+
+        public Commit commit;
+        public File commitFile;
+        public String fileName;
+
+        @Setup
+        public void readHead(RepoState repo){
+            commit = Commit.getActiveCommit();
+            commitFile = Utils.getHashAsFile(Branch.getActiveBranch().getRef());
+            fileName = RepoState.fileName(0);
+        }
+    }
+
+
+    @Benchmark
+    public String sha1(Data data){
+        return Utils.sha1(data.content);
+    }
+
+    @Benchmark
+    public byte[] serializeCommit(HeadCommit head){
+        return Utils.serialize(head.commit);
+    }
+
+    @Benchmark
+    public Commit readCommit(HeadCommit head){
+        return Utils.readObjectFromFile(head.commitFile, Commit.class);
+    }
+
+    @Benchmark
+    public String createBlob(HeadCommit head){
+        return new Blob(head.fileName).getHash();
+    }
+}
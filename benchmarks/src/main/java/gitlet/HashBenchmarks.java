@@ -0,0 +1,95 @@
+package gitlet;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Formatter;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of object hashing, against the way Utils.sha1 used to hash (a new MessageDigest per call and
+ * hex formatted through java.util.Formatter). Needs no repository.
+ * The score is in ns per call: divide it by size for ns/byte. Run with -prof gc for the bytes allocated per
+ * call (gc.alloc.rate.norm):
+ *
+ *  java -jar benchmarks/target/benchmarks.jar 'HashBenchmarks.(legacy|bytes|file|readThenHash)$'
+ *       -p algorithm=SHA1 -p size=64,65536 -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashBenchmarks {
+
+    /**
+     * Random content, in memory and in a file; 64 bytes is the size of a serialized ref, 64 KiB of a source file.
+     */
+    @State(Scope.Benchmark)
+    public static class Data {
+
+        @Param({"64", "65536", "1048576"})
+        public int size;
+
+        @Param({"SHA1", "SHA256"})
+        public HashAlgorithm algorithm;
+
+        public byte[] content;
+        public ByteBuffer buffer;
+        public File file;
+
+        @Setup
+        public void createContent() throws IOException {
+            content = new byte[size];
+            new Random(42).nextBytes(content);
+            buffer = ByteBuffer.wrap(content);
+            file = File.createTempFile("gitlet-hash", ".bin");
+            Files.write(file.toPath(), content);
+        }
+
+        @TearDown
+        public void deleteFile(){
+            file.delete();
+        }
+    }
+
+
+    @Benchmark
+    public String legacy(Data data) throws NoSuchAlgorithmException {
+        MessageDigest m = MessageDigest.getInstance(data.algorithm == HashAlgorithm.SHA1 ? "SHA-1" : "SHA-256");
+        m.update(data.content);
+        Formatter output = new Formatter();
+        for (byte b : m.digest()) output.format("%02x", b);
+        return output.toString();
+    }
+
+    @Benchmark
+    public String bytes(Data data){
+        return data.algorithm.hash(data.content);
+    }
+
+    @Benchmark
+    public String byteBuffer(Data data){
+        data.buffer.rewind();
+        return data.algorithm.hash(data.buffer);
+    }
+
+    /**
+     * the way status hashes a working file, against reading it whole first
+     */
+    @Benchmark
+    public String file(Data data){
+        return data.algorithm.hashFile(data.file);
+    }
+
+    @Benchmark
+    public String readThenHash(Data data){
+        return data.algorithm.hash(Utils.readContents(data.file));
+    }
+}
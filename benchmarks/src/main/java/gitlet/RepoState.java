@@ -0,0 +1,121 @@
+package gitlet;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * A generated repository in a temporary directory, shared by the benchmarks of one fork.
+ *
+ * Gitlet resolves its repository from user.dir once, when Repository is loaded, so every trial sets user.dir
+ * to a new temporary directory before touching any gitlet class and must run in its own fork (the JMH default).
+ *
+ * Shape of the repository:
+ *  fileCount files of fileSize bytes of text on master, committed historyDepth times, every commit changing
+ *  one percent of the files. The branch "other" starts at the middle of the history and has two commits of
+ *  its own changing ten percent of the files.
+ */
+@State(Scope.Benchmark)
+public class RepoState {
+
+    public static final String OTHER_BRANCH = "other";
+
+    @Param({"100", "1000"})
+    public int fileCount;
+
+    @Param({"1024", "16384"})
+    public int fileSize;
+
+    @Param({"10", "100"})
+    public int historyDepth;
+
+    public Path dir;
+    public Random random;
+    private PrintStream console;
+    private int version = 0;
+
+
+    @Setup(Level.Trial)
+    public void createRepository() throws IOException {
+        dir = Files.createTempDirectory("gitlet-bench-");
+        System.setProperty("user.dir", dir.toString());
+        if (!Repository.CWD.toPath().equals(dir)){
+            throw new IllegalStateException("gitlet was already loaded for " + Repository.CWD
+                    + "; run the benchmarks in forked JVMs");
+        }
+        // commands report to System.out; keep that out of the benchmark output
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        random = new Random(42);
+
+        Repository.initializeRepo(new String[]{"init"});
+        try (Session session = Session.open()){
+            for (int i = 0; i < fileCount; i++){
+                writeFile(fileName(i));
+                session.add(fileName(i));
+            }
+            session.commit("initial import");
+            for (int depth = 1; depth < historyDepth; depth++){
+                if (depth == historyDepth / 2){
+                    session.createBranch(OTHER_BRANCH);
+                }
+                changeFiles(session, Math.max(1, fileCount / 100));
+                session.commit("change " + depth);
+            }
+            if (historyDepth < 2){
+                session.createBranch(OTHER_BRANCH);
+            }
+            session.checkoutBranch(OTHER_BRANCH);
+            for (int i = 0; i < 2; i++){
+                changeFiles(session, Math.max(1, fileCount / 10));
+                session.commit("other " + i);
+            }
+            session.checkoutBranch("master");
+        }
+    }
+
+
+    @TearDown(Level.Trial)
+    public void deleteRepository() throws IOException {
+        System.setOut(console);
+        try (Stream<Path> files = Files.walk(dir)){
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+
+    public static String fileName(int i){
+        return "file" + i + ".txt";
+    }
+
+
+    /**
+     * Writes new content to a file: fileSize bytes of lines of text, unique to this call.
+     */
+    public void writeFile(String name) throws IOException {
+        StringBuilder content = new StringBuilder(fileSize + 64);
+        content.append("version ").append(version++).append('\n');
+        while (content.length() < fileSize){
+            content.append("line ").append(random.nextInt(1_000_000)).append(" of ").append(name).append('\n');
+        }
+        content.setLength(fileSize);
+        Files.writeString(dir.resolve(name), content);
+    }
+
+
+    private void changeFiles(Session session, int count) throws IOException {
+        for (int i = 0; i < count; i++){
+            String name = fileName(random.nextInt(fileCount));
+            writeFile(name);
+            session.add(name);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package gitlet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlternatesTest {
+
+    private static final String ID = "0123456789abcdef0123456789abcdef01234567";
+
+    @TempDir
+    Path dir;
+
+    // creates an object folder holding the given objects
+    private File objectFolder(String name, String... ids) throws IOException {
+        File folder = Files.createDirectory(dir.resolve(name)).toFile();
+        for (String id : ids){
+            File object = Utils.join(folder, Utils.getHashHead(id), Utils.getHashBody(id));
+            object.getParentFile().mkdirs();
+            Files.write(object.toPath(), id.getBytes(StandardCharsets.UTF_8));
+        }
+        return folder;
+    }
+
+    // the number of objects in the object folder of a repository, its list of alternates left out
+    private static long objectCount(TestRepo repo) throws IOException {
+        Path objects = repo.getDir().resolve(".gitlet").resolve("objects");
+        try (Stream<Path> paths = Files.walk(objects)) {
+            return paths.filter(Files::isRegularFile).filter(path -> !path.startsWith(objects.resolve("info")))
+                    .count();
+        }
+    }
+
+
+    @Test
+    void objectsAreFoundThroughAChainOfAlternates() throws IOException {
+        File origin = objectFolder("origin", ID);
+        File middle = objectFolder("middle");
+        File clone = objectFolder("clone");
+        Alternates.add(middle, origin);
+        Alternates.add(clone, middle);
+
+        assertEquals(Utils.join(origin, Utils.getHashHead(ID), Utils.getHashBody(ID)), Alternates.find(clone, ID));
+        assertEquals(Alternates.find(clone, ID), Utils.getHashAsFile(clone, ID));
+        assertNull(Alternates.find(clone, "89abcdef0123456789abcdef0123456789abcdef"));
+    }
+
+    @Test
+    void cycleOfAlternatesEnds() throws IOException {
+        File first = objectFolder("first");
+        File second = objectFolder("second");
+        Alternates.add(first, second);
+        Alternates.add(second, first);
+        assertNull(Alternates.find(first, ID));
+    }
+
+    @Test
+    void relativeAlternateIsResolvedFromTheObjectFolder() throws IOException {
+        objectFolder("origin", ID);
+        File clone = objectFolder("clone");
+        File list = Alternates.file(clone);
+        list.getParentFile().mkdirs();
+        Files.write(list.toPath(), "# borrowed\n../origin\n".getBytes(StandardCharsets.UTF_8));
+        assertNotNull(Alternates.find(clone, ID));
+    }
+
+
+    @Test
+    void sharedCloneBorrowsTheObjectsOfOrigin() throws IOException {
+        TestRepo origin = TestRepo.init(Files.createDirectory(dir.resolve("repo")));
+        origin.commit("first", "a.txt", "old\n");
+        String first = origin.headId();
+        origin.commit("second", "a.txt", "new\n");
+        long originObjects = objectCount(origin);
+
+        TestRepo clone = new TestRepo(Files.createDirectory(dir.resolve("shared")));
+        assertTrue(clone.ok("clone", origin.getDir().toString(), "--shared").contains("(shared)."));
+        assertEquals(0, objectCount(clone));
+        assertEquals("new\n", clone.read("a.txt"));
+        clone.ok("checkout", first, "--", "a.txt");
+        assertEquals("old\n", clone.read("a.txt"));
+
+        // new objects are written to the clone only
+        clone.commit("third", "b.txt", "b\n");
+        assertTrue(objectCount(clone) > 0);
+        assertEquals(originObjects, objectCount(origin));
+        assertTrue(clone.ok("log").contains("first"));
+    }
+
+    @Test
+    void sharedCloneOfASharedClone() throws IOException {
+        TestRepo origin = TestRepo.init(Files.createDirectory(dir.resolve("repo")));
+        origin.commit("first", "a.txt", "a\n");
+        TestRepo middle = new TestRepo(Files.createDirectory(dir.resolve("middle")));
+        middle.ok("clone", origin.getDir().toString(), "--shared");
+        middle.commit("second", "b.txt", "b\n");
+
+        TestRepo clone = new TestRepo(Files.createDirectory(dir.resolve("shared")));
+        clone.ok("clone", middle.getDir().toString(), "--shared");
+        assertEquals(0, objectCount(clone));
+        assertEquals("a\n", clone.read("a.txt"));
+        assertEquals("b\n", clone.read("b.txt"));
+    }
+}
@@ -0,0 +1,64 @@
+package gitlet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchTest {
+
+    @TempDir
+    Path dir;
+
+
+    // runs a batch with the given standard input and returns its output
+    private static String batch(TestRepo repo, String input, String... options) throws Exception {
+        String[] args = new String[options.length + 1];
+        args[0] = "batch";
+        System.arraycopy(options, 0, args, 1, options.length);
+        Process process = repo.start(Main.class, args);
+        try (OutputStream in = process.getOutputStream()) {
+            in.write(input.getBytes(StandardCharsets.UTF_8));
+        }
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertTrue(process.waitFor(60, TimeUnit.SECONDS));
+        return output;
+    }
+
+
+    @Test
+    void commandsRunInOrderWithResultLines() throws Exception {
+        TestRepo repo = TestRepo.init(dir);
+        repo.write("a file.txt", "a\n");
+        String output = batch(repo, "add \"a file.txt\"\n# comment\n\ncommit -m 'first commit'\nlog\n");
+        assertTrue(output.contains("--- 1 ok "), output);
+        assertTrue(output.contains("--- 2 ok "), output);
+        assertTrue(output.contains("first commit"), output);
+        assertTrue(output.contains("Batch: 3 commands, 0 failed."), output);
+    }
+
+    @Test
+    void unterminatedQuoteFailsOnlyItsCommand() throws Exception {
+        TestRepo repo = TestRepo.init(dir);
+        repo.write("a.txt", "a\n");
+        String output = batch(repo, "status --no-write\nlog \"unterminated\nbranch zz\n");
+        assertTrue(output.contains("Unterminated quote in batch command: log \"unterminated"), output);
+        assertTrue(output.contains("--- 2 failed 0 "), output);
+        assertTrue(output.contains("--- 3 ok "), output);
+        assertTrue(output.contains("Batch: 3 commands, 1 failed."), output);
+        assertTrue(repo.run("branch", "zz").contains("A branch with that name already exists."));
+    }
+
+    @Test
+    void stopOnErrorEndsTheBatch() throws Exception {
+        TestRepo repo = TestRepo.init(dir);
+        String output = batch(repo, "log \"unterminated\nbranch zz\n", "--stop-on-error");
+        assertTrue(output.contains("--- 1 failed"), output);
+        assertFalse(output.contains("--- 2 "), output);
+    }
+}
@@ -0,0 +1,81 @@
+package gitlet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BundleTest {
+
+    @TempDir
+    Path dir;
+
+    private Path bundle;
+    private TestRepo target;
+
+
+    // bundles the master branch of a repository with two commits, and creates an empty repository to unbundle in
+    private byte[] createBundle() throws Exception {
+        TestRepo origin = TestRepo.init(Files.createDirectory(dir.resolve("origin")));
+        origin.commit("base", "a.txt", "a\n");
+        origin.commit("second", "b.txt", "b\n");
+        bundle = dir.resolve("master.bundle");
+        origin.ok("bundle", "create", bundle.toString(), "master");
+        target = TestRepo.init(Files.createDirectory(dir.resolve("target")));
+        return Files.readAllBytes(bundle);
+    }
+
+    private String unbundle(byte[] content) throws Exception {
+        Files.write(bundle, content);
+        String output = target.run("bundle", "unbundle", bundle.toString());
+        assertFalse(output.contains("Exception"), output);
+        return output;
+    }
+
+
+    @Test
+    void unbundledBranchCanBeCheckedOut() throws Exception {
+        byte[] content = createBundle();
+        assertTrue(unbundle(content).contains("bundle/master"));
+        target.ok("checkout", "bundle/master");
+        assertEquals("b\n", target.read("b.txt"));
+    }
+
+    @Test
+    void truncatedBundleIsRejected() throws Exception {
+        byte[] content = createBundle();
+        String output = unbundle(Arrays.copyOf(content, content.length / 2));
+        assertTrue(output.contains("Corrupt bundle: truncated"), output);
+        assertTrue(target.run("checkout", "bundle/master").contains("A branch with that name does not exist."));
+    }
+
+    @Test
+    void corruptChecksumIsRejected() throws Exception {
+        byte[] content = createBundle();
+        content[content.length - 1] ^= 1;
+        assertTrue(unbundle(content).contains("Corrupt bundle: checksum mismatch"));
+    }
+
+    @Test
+    void negativeOrHugeLengthIsRejectedBeforeAllocating() throws Exception {
+        byte[] content = createBundle();
+        // magic, version, one ref (master and a 40 character id), no prerequisite, then the type and id of the
+        // first object
+        int length = 4 + 4 + 4 + (2 + "master".length()) + (2 + 40) + 4 + 1 + (2 + 40);
+        for (int value : new int[]{-1, Integer.MAX_VALUE}){
+            byte[] corrupt = content.clone();
+            ByteBuffer.wrap(corrupt).putInt(length, value);
+            String output = unbundle(corrupt);
+            assertTrue(output.contains("Corrupt bundle: object"), output);
+            assertTrue(output.contains("bad length"), output);
+        }
+        byte[] corrupt = content.clone();
+        ByteBuffer.wrap(corrupt).putInt(length + 4, -5);
+        assertTrue(unbundle(corrupt).contains("bad length"));
+    }
+}
@@ -0,0 +1,132 @@
+package gitlet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckoutTest {
+
+    @TempDir
+    Path dir;
+
+
+    @Test
+    void checkoutBranchWritesChangedFilesAndDeletesRemovedOnes(){
+        TestRepo repo = TestRepo.init(dir);
+        repo.commit("base", "a.txt", "a\n", "b.txt", "b\n");
+        repo.ok("branch", "other");
+        repo.commit("change", "a.txt", "A\n", "c.txt", "c\n");
+
+        repo.ok("checkout", "other");
+        assertEquals("a\n", repo.read("a.txt"));
+        assertEquals("b\n", repo.read("b.txt"));
+        assertFalse(repo.exists("c.txt"));
+
+        repo.ok("checkout", "master");
+        assertEquals("A\n", repo.read("a.txt"));
+        assertEquals("c\n", repo.read("c.txt"));
+    }
+
+    @Test
+    void checkoutBranchRestoresDeletedUnchangedFile(){
+        TestRepo repo = TestRepo.init(dir);
+        repo.commit("base", "a.txt", "a\n", "b.txt", "b\n");
+        repo.ok("branch", "other");
+        repo.commit("change", "a.txt", "A\n");
+        repo.delete("b.txt");
+
+        repo.ok("checkout", "other");
+        assertEquals("a\n", repo.read("a.txt"));
+        assertEquals("b\n", repo.read("b.txt"));
+    }
+
+    @Test
+    void resetRestoresDeletedFile(){
+        TestRepo repo = TestRepo.init(dir);
+        repo.commit("base", "a.txt", "a\n", "b.txt", "b\n");
+        String head = repo.headId();
+        repo.delete("a.txt");
+
+        repo.ok("reset", head);
+        assertEquals("a\n", repo.read("a.txt"));
+        assertEquals("b\n", repo.read("b.txt"));
+    }
+
+    @Test
+    void checkoutRefusesToOverwriteUntrackedFile(){
+        TestRepo repo = TestRepo.init(dir);
+        repo.commit("base", "a.txt", "a\n");
+        repo.ok("branch", "other");
+        repo.ok("checkout", "other");
+        repo.commit("add b", "b.txt", "b\n");
+        repo.ok("checkout", "master");
+        repo.write("b.txt", "untracked\n");
+
+        assertTrue(repo.run("checkout", "other").contains("There is an untracked or Modified file in the way"));
+        assertEquals("untracked\n", repo.read("b.txt"));
+    }
+
+    @Test
+    void checkoutFileRestoresHeadVersion(){
+        TestRepo repo = TestRepo.init(dir);
+        repo.commit("base", "a.txt", "a\n");
+        repo.write("a.txt", "changed\n");
+
+        repo.ok("checkout", "--", "a.txt");
+        assertEquals("a\n", repo.read("a.txt"));
+    }
+
+    @Test
+    void writesAfterHardlinkCheckoutDoNotModifyObjects(){
+        TestRepo repo = TestRepo.init(dir);
+        repo.ok("config", "checkout.mode", "hardlink");
+        repo.commit("base", "a.txt", "a\n");
+        String base = repo.headId();
+        repo.ok("branch", "other");
+        repo.commit("ours", "a.txt", "ours\n");
+        repo.ok("checkout", "other");
+        repo.commit("theirs", "b.txt", "theirs\n");
+        // a.txt is now a hard link to the object of its base version
+        repo.ok("checkout", "master");
+        repo.ok("checkout", "other");
+
+        // the merge takes the version of master
+        repo.ok("merge", "master");
+        assertEquals("ours\n", repo.read("a.txt"));
+        repo.ok("checkout", base, "--", "a.txt");
+        assertEquals("a\n", repo.read("a.txt"));
+
+        // a.txt is a hard link to the object of its base version again
+        repo.ok("checkout", "--", "a.txt");
+        assertEquals("ours\n", repo.read("a.txt"));
+        repo.ok("checkout", base, "--", "a.txt");
+        assertEquals("a\n", repo.read("a.txt"));
+    }
+
+    @Test
+    void hardlinkCloneDoesNotModifyObjectsOfOrigin() throws Exception {
+        TestRepo origin = TestRepo.init(Files.createDirectory(dir.resolve("origin")));
+        origin.commit("base", "a.txt", "a\n");
+        String base = origin.headId();
+        origin.ok("branch", "other");
+        origin.ok("checkout", "other");
+        origin.commit("theirs", "a.txt", "theirs\n");
+        origin.ok("checkout", "master");
+        origin.commit("ours", "b.txt", "b\n");
+
+        TestRepo clone = new TestRepo(Files.createDirectory(dir.resolve("clone")));
+        clone.ok("clone", origin.getDir().toString(), "--hardlink");
+        clone.ok("config", "checkout.mode", "hardlink");
+        clone.ok("checkout", "other");
+        clone.ok("checkout", "master");
+        clone.ok("merge", "other");
+        assertEquals("theirs\n", clone.read("a.txt"));
+
+        origin.ok("checkout", base, "--", "a.txt");
+        assertEquals("a\n", origin.read("a.txt"));
+    }
+}
@@ -0,0 +1,67 @@
+package gitlet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DaemonTest {
+
+    @TempDir
+    Path dir;
+
+
+    // starts the daemon of the repository and waits until it listens
+    private static Process startDaemon(TestRepo repo) throws Exception {
+        Process daemon = repo.start(Main.class, "daemon");
+        for (int i = 0; i < 200 && !repo.exists(".gitlet/" + Daemon.SOCKET_NAME); i++){
+            Thread.sleep(50);
+        }
+        assertTrue(repo.exists(".gitlet/" + Daemon.SOCKET_NAME), "the daemon did not start");
+        return daemon;
+    }
+
+    private static void stopDaemon(TestRepo repo, Process daemon) throws Exception {
+        assertTrue(repo.runMain(DaemonClient.class, "daemon", "stop").contains("Gitlet daemon stopped."));
+        assertTrue(daemon.waitFor(30, TimeUnit.SECONDS));
+    }
+
+
+    @Test
+    void commandsRunInTheDaemon() throws Exception {
+        TestRepo repo = TestRepo.init(dir);
+        repo.commit("first", "a.txt", "a\n");
+        Process daemon = startDaemon(repo);
+        try{
+            assertTrue(repo.runMain(DaemonClient.class, "log").contains("first"));
+            repo.write("b.txt", "b\n");
+            repo.runMain(DaemonClient.class, "add", "b.txt");
+            repo.runMain(DaemonClient.class, "commit", "-m", "second");
+            assertTrue(repo.runMain(DaemonClient.class, "log").contains("second"));
+        }finally{
+            stopDaemon(repo, daemon);
+        }
+        assertTrue(repo.ok("log").contains("second"));
+    }
+
+    @Test
+    void tracePerfIsForwardedToTheDaemon() throws Exception {
+        TestRepo repo = TestRepo.init(dir);
+        repo.commit("first", "a.txt", "a\n");
+        Process daemon = startDaemon(repo);
+        try{
+            String output = repo.runMain(DaemonClient.class, "--trace-perf=perf.json", "log");
+            assertTrue(output.contains("first"), output);
+            assertTrue(repo.read("perf.json").contains("\"operations\""));
+
+            output = repo.runMain(DaemonClient.class, "--trace-perf", "log");
+            assertTrue(output.contains("gitlet perf:"), output);
+            assertFalse(repo.runMain(DaemonClient.class, "log").contains("gitlet perf:"));
+        }finally{
+            stopDaemon(repo, daemon);
+        }
+    }
+}
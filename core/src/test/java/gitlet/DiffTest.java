@@ -0,0 +1,108 @@
+package gitlet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiffTest {
+
+    @TempDir
+    Path dir;
+
+    // the lines 1 to count, with the given lines replaced
+    private static String lines(int count, String... replacements){
+        StringBuilder text = new StringBuilder();
+        for (int line = 1; line <= count; line++){
+            String content = String.valueOf(line);
+            for (int i = 0; i < replacements.length; i += 2){
+                if (replacements[i].equals(content)) content = replacements[i + 1];
+            }
+            text.append(content).append('\n');
+        }
+        return text.toString();
+    }
+
+
+    @Test
+    void distantEditsGetTheirOwnHunk(){
+        TestRepo repo = TestRepo.init(dir);
+        repo.commit("base", "a.txt", lines(20));
+        String base = repo.headId();
+        repo.commit("edit", "a.txt", lines(20, "2", "two", "18", "eighteen"));
+
+        assertEquals("diff --gitlet a/a.txt b/a.txt\n"
+                + "--- a/a.txt\n"
+                + "+++ b/a.txt\n"
+                + "@@ -1,5 +1,5 @@\n 1\n-2\n+two\n 3\n 4\n 5\n"
+                + "@@ -15,6 +15,6 @@\n 15\n 16\n 17\n-18\n+eighteen\n 19\n 20\n",
+                repo.ok("diff", base, repo.headId()));
+    }
+
+    @Test
+    void closeEditsShareAHunk(){
+        TestRepo repo = TestRepo.init(dir);
+        repo.commit("base", "a.txt", lines(20));
+        String base = repo.headId();
+        repo.commit("edit", "a.txt", lines(20, "2", "two", "8", "eight"));
+
+        String diff = repo.ok("diff", base, repo.headId());
+        assertTrue(diff.contains("@@ -1,11 +1,11 @@\n 1\n-2\n+two\n 3\n 4\n 5\n 6\n 7\n-8\n+eight\n 9\n 10\n 11\n"),
+                diff);
+        // a single hunk
+        assertEquals(diff.indexOf("@@ -"), diff.lastIndexOf("@@ -"), diff);
+    }
+
+    @Test
+    void addedAndDeletedFilesAreComparedWithDevNull(){
+        TestRepo repo = TestRepo.init(dir);
+        repo.commit("base", "a.txt", "a\n");
+        String base = repo.headId();
+        repo.ok("rm", "a.txt");
+        repo.commit("replace", "b.txt", "b\n");
+
+        assertEquals("diff --gitlet a/a.txt b/a.txt\n--- a/a.txt\n+++ /dev/null\n@@ -1,1 +0,0 @@\n-a\n"
+                + "diff --gitlet a/b.txt b/b.txt\n--- /dev/null\n+++ b/b.txt\n@@ -0,0 +1,1 @@\n+b\n",
+                repo.ok("diff", base, repo.headId()));
+    }
+
+    @Test
+    void missingNewlineAtEndIsMarked(){
+        TestRepo repo = TestRepo.init(dir);
+        repo.commit("base", "a.txt", "a\nb");
+        String base = repo.headId();
+        repo.commit("edit", "a.txt", "a\nc\n");
+
+        String diff = repo.ok("diff", base, repo.headId());
+        assertTrue(diff.endsWith("@@ -1,2 +1,2 @@\n a\n-b\n\\ No newline at end of file\n+c\n"), diff);
+    }
+
+    @Test
+    void statAndNameOnlyListChangedFiles(){
+        TestRepo repo = TestRepo.init(dir);
+        repo.commit("base", "a.txt", "a\n", "b.txt", "b\n");
+        String base = repo.headId();
+        repo.commit("edit", "a.txt", "aaa\n", "c.txt", "c\n");
+        String head = repo.headId();
+
+        assertEquals("a.txt\nc.txt\n", repo.ok("diff", "--name-only", base, head));
+        String stat = repo.ok("diff", "--stat", base, head);
+        assertTrue(stat.startsWith("a.txt | "), stat);
+        assertTrue(stat.contains("\nc.txt | 0 -> "), stat);
+        assertTrue(stat.endsWith("2 file(s) changed\n"), stat);
+    }
+
+    @Test
+    void workingTreeDiffShowsTrackedChangesOnly(){
+        TestRepo repo = TestRepo.init(dir);
+        repo.commit("base", "a.txt", "a\n");
+        repo.write("a.txt", "A\n");
+        repo.write("untracked.txt", "u\n");
+
+        assertEquals("diff --gitlet a/a.txt b/a.txt\n--- a/a.txt\n+++ b/a.txt\n@@ -1,1 +1,1 @@\n-a\n+A\n",
+                repo.ok("diff"));
+        assertEquals("a.txt | 2 -> 2 bytes\n1 file(s) changed\n", repo.ok("diff", "--stat"));
+    }
+}
@@ -0,0 +1,70 @@
+package gitlet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FormatTest {
+
+    @TempDir
+    Path dir;
+
+
+    /**
+     * Records another format version in the config of the repository in its working directory.
+     */
+    static class SetVersion {
+
+        public static void main(String[] args){
+            Config config = Config.readFromFile();
+            config.set(Repository.FORMAT_KEY, args[0]);
+            config.saveToFile();
+        }
+    }
+
+
+    @Test
+    void newRepositoryRecordsFormatVersion(){
+        TestRepo repo = TestRepo.init(dir);
+        assertEquals(String.valueOf(Repository.FORMAT_VERSION), repo.ok("config", Repository.FORMAT_KEY).trim());
+        assertTrue(repo.run("config", Repository.FORMAT_KEY, "0").contains("set when the repository is created"));
+    }
+
+    @Test
+    void repositoryWithoutFormatVersionIsRefused() throws Exception {
+        TestRepo repo = TestRepo.init(dir);
+        repo.commit("base", "a.txt", "a\n");
+        // repositories created before the format version had no config file
+        Files.delete(dir.resolve(".gitlet").resolve("config"));
+
+        String output = repo.run("log");
+        assertTrue(output.contains("uses an older on-disk format (version 0)"), output);
+        assertFalse(output.contains("Exception"), output);
+    }
+
+    @Test
+    void repositoryOfNewerFormatIsRefused(){
+        TestRepo repo = TestRepo.init(dir);
+        repo.runMain(SetVersion.class, String.valueOf(Repository.FORMAT_VERSION + 1));
+
+        String output = repo.run("status");
+        assertTrue(output.contains("this version of gitlet only reads version " + Repository.FORMAT_VERSION),
+                output);
+    }
+
+    @Test
+    void cloneOfOldRepositoryIsRefused() throws Exception {
+        TestRepo origin = TestRepo.init(Files.createDirectory(dir.resolve("origin")));
+        origin.commit("base", "a.txt", "a\n");
+        Files.delete(origin.getDir().resolve(".gitlet").resolve("config"));
+
+        TestRepo clone = new TestRepo(Files.createDirectory(dir.resolve("clone")));
+        String output = clone.run("clone", origin.getDir().toString());
+        assertTrue(output.contains("uses an older on-disk format"), output);
+        assertFalse(clone.exists(".gitlet"));
+    }
+}
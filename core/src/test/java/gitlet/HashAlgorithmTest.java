@@ -0,0 +1,95 @@
+package gitlet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashAlgorithmTest {
+
+    @TempDir
+    Path dir;
+
+
+    @Test
+    void knownDigests(){
+        assertEquals("a9993e364706816aba3e25717850c26c9cd0d89d", HashAlgorithm.SHA1.hash("abc"));
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+                HashAlgorithm.SHA256.hash("a", "bc".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(40, HashAlgorithm.SHA1.getHexLength());
+        assertEquals(64, HashAlgorithm.SHA256.getHexLength());
+        assertEquals(HashAlgorithm.SHA256, HashAlgorithm.forName("sha256"));
+    }
+
+    @Test
+    void fileIdMatchesTheHashOfTheContent() throws IOException {
+        // larger than the read buffer
+        byte[] content = new byte[200 * 1024];
+        Arrays.fill(content, (byte) 'x');
+        File file = dir.resolve("big").toFile();
+        Files.write(file.toPath(), content);
+
+        String id = HashAlgorithm.SHA256.hash(content);
+        assertEquals(id, HashAlgorithm.SHA256.hashFile(file));
+        assertEquals(ObjectId.parse(id), HashAlgorithm.SHA256.fileId(file));
+        assertEquals(id, ObjectId.parse(id).toString());
+    }
+
+
+    @Test
+    void sha256RepositoryRoundTrip(){
+        TestRepo repo = new TestRepo(dir);
+        repo.ok("init", "--hash", "sha256");
+        assertEquals("sha256", repo.ok("config", HashAlgorithm.KEY).trim());
+        repo.commit("first", "a.txt", "old\n");
+        String first = repo.headId();
+        assertEquals(64, first.length());
+        assertTrue(repo.exists(".gitlet/objects/" + first.substring(0, 2) + "/" + first.substring(2)));
+        String blob = HashAlgorithm.SHA256.hash("old\n");
+        assertTrue(repo.exists(".gitlet/objects/" + blob.substring(0, 2) + "/" + blob.substring(2)));
+
+        repo.commit("second", "a.txt", "new\n");
+        repo.ok("branch", "other");
+        repo.ok("checkout", first, "--", "a.txt");
+        assertEquals("old\n", repo.read("a.txt"));
+        repo.ok("checkout", "--", "a.txt");
+        assertEquals("new\n", repo.read("a.txt"));
+        repo.ok("reset", first);
+        assertEquals("old\n", repo.read("a.txt"));
+        repo.ok("checkout", "other");
+        assertEquals("new\n", repo.read("a.txt"));
+        assertTrue(repo.run("config", HashAlgorithm.KEY, "sha1").contains("chosen when the repository is created"));
+    }
+
+    @Test
+    void cloneKeepsTheHashAlgorithm() throws IOException {
+        TestRepo origin = new TestRepo(Files.createDirectory(dir.resolve("origin")));
+        origin.ok("init", "--hash", "sha256");
+        origin.commit("first", "a.txt", "a\n");
+        TestRepo clone = new TestRepo(Files.createDirectory(dir.resolve("clone")));
+        clone.ok("clone", origin.getDir().toString());
+
+        assertEquals("sha256", clone.ok("config", HashAlgorithm.KEY).trim());
+        assertEquals(origin.headId(), clone.headId());
+        assertEquals("a\n", clone.read("a.txt"));
+    }
+
+    @Test
+    void remoteWithAnotherAlgorithmIsRefused() throws IOException {
+        TestRepo sha256 = new TestRepo(Files.createDirectory(dir.resolve("sha256")));
+        sha256.ok("init", "--hash", "sha256");
+        sha256.commit("first", "a.txt", "a\n");
+        TestRepo sha1 = TestRepo.init(Files.createDirectory(dir.resolve("sha1")));
+        sha1.commit("first", "a.txt", "a\n");
+
+        sha1.ok("add-remote", "other", sha256.getDir().resolve(".gitlet").toString());
+        assertTrue(sha1.run("fetch", "other", "master").contains("another hash algorithm"));
+    }
+}
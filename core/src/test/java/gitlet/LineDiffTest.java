@@ -0,0 +1,79 @@
+package gitlet;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LineDiffTest {
+
+    private static List<LineDiff.Edit> diff(String a, String b){
+        LineTable table = new LineTable();
+        int[] aIds = table.intern(a.getBytes(StandardCharsets.UTF_8)).getIds();
+        int[] bIds = table.intern(b.getBytes(StandardCharsets.UTF_8)).getIds();
+        return LineDiff.diff(aIds, bIds);
+    }
+
+    private static void assertEdit(LineDiff.Edit edit, int aStart, int aEnd, int bStart, int bEnd){
+        assertEquals(aStart, edit.aStart, "aStart");
+        assertEquals(aEnd, edit.aEnd, "aEnd");
+        assertEquals(bStart, edit.bStart, "bStart");
+        assertEquals(bEnd, edit.bEnd, "bEnd");
+    }
+
+
+    @Test
+    void identicalTextsHaveNoEdit(){
+        assertTrue(diff("a\nb\nc\n", "a\nb\nc\n").isEmpty());
+        assertTrue(diff("", "").isEmpty());
+    }
+
+    @Test
+    void insertionDeletionAndReplacement(){
+        List<LineDiff.Edit> edits = diff("a\nb\nc\n", "a\nx\nb\nc\n");
+        assertEquals(1, edits.size());
+        assertEdit(edits.get(0), 1, 1, 1, 2);
+
+        edits = diff("a\nb\nc\n", "a\nc\n");
+        assertEquals(1, edits.size());
+        assertEdit(edits.get(0), 1, 2, 1, 1);
+
+        edits = diff("a\nb\nc\n", "a\ny\nc\n");
+        assertEquals(1, edits.size());
+        assertEdit(edits.get(0), 1, 2, 1, 2);
+    }
+
+    @Test
+    void emptySides(){
+        List<LineDiff.Edit> edits = diff("", "a\nb\n");
+        assertEquals(1, edits.size());
+        assertEdit(edits.get(0), 0, 0, 0, 2);
+
+        edits = diff("a\nb\n", "");
+        assertEquals(1, edits.size());
+        assertEdit(edits.get(0), 0, 2, 0, 0);
+    }
+
+    @Test
+    void lastLineWithoutNewlineDiffersFromOneWithIt(){
+        List<LineDiff.Edit> edits = diff("a\nb", "a\nb\n");
+        assertEquals(1, edits.size());
+        assertEdit(edits.get(0), 1, 2, 1, 2);
+    }
+
+    @Test
+    void editsAreMinimalAndOrdered(){
+        List<LineDiff.Edit> edits = diff("1\n2\n3\n4\n5\n6\n", "0\n1\n3\n4\n6\n7\n");
+        int changed = 0;
+        int previousEnd = 0;
+        for (LineDiff.Edit edit : edits){
+            assertTrue(edit.aStart >= previousEnd);
+            previousEnd = edit.aEnd;
+            changed += (edit.aEnd - edit.aStart) + (edit.bEnd - edit.bStart);
+        }
+        // insert 0, delete 2, delete 5, insert 7
+        assertEquals(4, changed);
+    }
+}
@@ -0,0 +1,80 @@
+package gitlet;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ManifestTest {
+
+    private static final String A = "0123456789abcdef0123456789abcdef01234567";
+    private static final String B = "89abcdef0123456789abcdef0123456789abcdef";
+
+    private static Manifest manifest(String... files){
+        Map<String, String> content = new HashMap<>();
+        for (int i = 0; i < files.length; i += 2){
+            content.put(files[i], files[i + 1]);
+        }
+        return Manifest.of(content);
+    }
+
+
+    @Test
+    void readsAsMapOfHexIdsInPathOrder(){
+        Manifest manifest = manifest("b.txt", B, "a.txt", A);
+        assertEquals(A, manifest.get("a.txt"));
+        assertNull(manifest.get("c.txt"));
+        assertEquals(Arrays.asList("a.txt", "b.txt"), new ArrayList<>(manifest.keySet()));
+        assertEquals(new TreeMap<>(Map.of("a.txt", A, "b.txt", B)), new TreeMap<>(manifest));
+    }
+
+    @Test
+    void comparesIdsWithoutFormattingThem(){
+        Manifest manifest = manifest("a.txt", A, "b.txt", B);
+        Manifest other = manifest("a.txt", A, "b.txt", A);
+        assertTrue(manifest.sameIdAt(0, other, 0));
+        assertFalse(manifest.sameIdAt(1, other, 1));
+        assertTrue(manifest.hasId("b.txt", ObjectId.parse(B)));
+        assertFalse(manifest.hasId("b.txt", ObjectId.parse(A)));
+        assertFalse(manifest.hasId("c.txt", ObjectId.parse(A)));
+        assertEquals(ObjectId.parse(B), manifest.idAt(1));
+        assertEquals("b.txt", manifest.pathAt(1));
+    }
+
+    @Test
+    void idsViewMatchesContent(){
+        Manifest manifest = manifest("a.txt", A, "b.txt", B);
+        Map<String, ObjectId> ids = manifest.ids();
+        assertEquals(Map.of("a.txt", ObjectId.parse(A), "b.txt", ObjectId.parse(B)), new HashMap<>(ids));
+        assertEquals(ObjectId.parse(A), ids.get("a.txt"));
+        assertTrue(ids.containsKey("b.txt"));
+        assertFalse(ids.containsKey("c.txt"));
+    }
+
+    @Test
+    void withAddsReplacesAndRemovesPaths(){
+        Manifest manifest = manifest("a.txt", A, "b.txt", B);
+        Manifest changed = manifest.with(Map.of("a.txt", ObjectId.parse(B), "c.txt", ObjectId.parse(A)),
+                Collections.singleton("b.txt"));
+        assertEquals(new TreeMap<>(Map.of("a.txt", B, "c.txt", A)), new TreeMap<>(changed));
+        // the original is unchanged
+        assertEquals(B, manifest.get("b.txt"));
+        assertSame(manifest, manifest.with(Collections.emptyMap(), Collections.emptySet()));
+    }
+
+    @Test
+    void serializationKeepsContent() throws Exception {
+        Manifest manifest = manifest("dir/a.txt", A, "dir/b.txt", B, "c.txt", A);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(manifest);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            Manifest read = (Manifest) in.readObject();
+            assertEquals(new TreeMap<>(manifest), new TreeMap<>(read));
+            assertTrue(read.sameIdAt(0, manifest, 0));
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package gitlet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MergeTest {
+
+    private static final String TEXT = "one\ntwo\nthree\nfour\nfive\nsix\nseven\neight\nnine\nten\n";
+    private static final String EDITED = "one\ntwo\nthree\nfour\nfive\nsix\nseven\neight\nnine\nTEN\n";
+
+    @TempDir
+    Path dir;
+
+
+    @Test
+    void changesOnDifferentFilesAreCombined(){
+        TestRepo repo = TestRepo.init(dir);
+        repo.commit("base", "a.txt", "a\n", "b.txt", "b\n", "c.txt", "c\n");
+        repo.ok("branch", "other");
+        repo.commit("edit a", "a.txt", "A\n");
+        repo.ok("checkout", "other");
+        repo.commit("edit b", "b.txt", "B\n");
+        repo.ok("rm", "c.txt");
+        repo.ok("commit", "-m", "remove c");
+        repo.ok("checkout", "master");
+
+        repo.ok("merge", "other");
+        assertEquals("A\n", repo.read("a.txt"));
+        assertEquals("B\n", repo.read("b.txt"));
+        assertFalse(repo.exists("c.txt"));
+    }
+
+    @Test
+    void conflictingChangesLeaveMarkers(){
+        TestRepo repo = TestRepo.init(dir);
+        repo.commit("base", "a.txt", "a\n");
+        repo.ok("branch", "other");
+        repo.commit("ours", "a.txt", "ours\n");
+        repo.ok("checkout", "other");
+        repo.commit("theirs", "a.txt", "theirs\n");
+        repo.ok("checkout", "master");
+
+        assertTrue(repo.ok("merge", "other").contains("Encountered a merge conflict."));
+        assertEquals("<<<<<<< HEAD\nours\n=======\ntheirs\n>>>>>>>\n", repo.read("a.txt"));
+    }
+
+    @Test
+    void fileRenamedInGivenBranchKeepsCurrentEdit(){
+        TestRepo repo = TestRepo.init(dir);
+        repo.commit("base", "a.txt", TEXT);
+        repo.ok("branch", "other");
+        repo.commit("edit", "a.txt", EDITED);
+        repo.ok("checkout", "other");
+        repo.commitRename("rename", "a.txt", "b.txt");
+        repo.ok("checkout", "master");
+
+        repo.ok("merge", "other");
+        assertFalse(repo.exists("a.txt"));
+        assertEquals(EDITED, repo.read("b.txt"));
+        // the merge commit tracks the file at its new path
+        repo.ok("rm", "b.txt");
+        repo.ok("checkout", "--", "b.txt");
+        assertEquals(EDITED, repo.read("b.txt"));
+    }
+
+    @Test
+    void fileRenamedInCurrentBranchTakesGivenEdit(){
+        TestRepo repo = TestRepo.init(dir);
+        repo.commit("base", "a.txt", TEXT);
+        repo.ok("branch", "other");
+        repo.commitRename("rename", "a.txt", "b.txt");
+        repo.ok("checkout", "other");
+        repo.commit("edit", "a.txt", EDITED);
+        repo.ok("checkout", "master");
+
+        repo.ok("merge", "other");
+        assertFalse(repo.exists("a.txt"));
+        assertEquals(EDITED, repo.read("b.txt"));
+    }
+
+    @Test
+    void renameWithEditsOnBothSidesIsMerged(){
+        TestRepo repo = TestRepo.init(dir);
+        repo.commit("base", "a.txt", TEXT);
+        repo.ok("branch", "other");
+        repo.commit("edit", "a.txt", "ONE\n" + TEXT.substring(4));
+        repo.ok("checkout", "other");
+        repo.write("a.txt", EDITED);
+        repo.commitRename("rename and edit", "a.txt", "b.txt");
+        repo.ok("checkout", "master");
+
+        repo.ok("merge", "other");
+        assertFalse(repo.exists("a.txt"));
+        assertEquals("ONE\n" + EDITED.substring(4), repo.read("b.txt"));
+    }
+
+    @Test
+    void mergeTreeSavesMergedCommitWithoutTouchingTheWorkingTree(){
+        TestRepo repo = TestRepo.init(dir);
+        repo.commit("base", "a.txt", TEXT);
+        repo.ok("branch", "other");
+        repo.commit("ours", "a.txt", "ONE\n" + TEXT.substring(4));
+        repo.ok("checkout", "other");
+        repo.commit("theirs", "a.txt", EDITED);
+        repo.ok("checkout", "master");
+
+        String merged = repo.ok("merge-tree", "other").trim();
+        assertEquals("ONE\n" + TEXT.substring(4), repo.read("a.txt"));
+        // the merged blob was saved together with the commit
+        repo.ok("reset", merged);
+        assertEquals("ONE\n" + EDITED.substring(4), repo.read("a.txt"));
+    }
+
+    @Test
+    void mergeTreeConflictSavesNothing(){
+        TestRepo repo = TestRepo.init(dir);
+        repo.commit("base", "a.txt", "a\n", "b.txt", TEXT);
+        repo.ok("branch", "other");
+        repo.commit("ours", "a.txt", "ours\n", "b.txt", "ONE\n" + TEXT.substring(4));
+        repo.ok("checkout", "other");
+        repo.commit("theirs", "a.txt", "theirs\n", "b.txt", EDITED);
+        repo.ok("checkout", "master");
+
+        String output = repo.ok("merge-tree", "other");
+        assertTrue(output.contains("CONFLICT (content): a.txt"), output);
+        // the cleanly merged b.txt was not published either
+        String blob = Utils.sha1(("ONE\n" + EDITED.substring(4)).getBytes(StandardCharsets.UTF_8));
+        assertFalse(repo.exists(".gitlet/objects/" + blob.substring(0, 2) + "/" + blob.substring(2)));
+    }
+
+    @Test
+    void diffReportsCopiesOnlyWhenAsked(){
+        TestRepo repo = TestRepo.init(dir);
+        repo.commit("base", "a.txt", TEXT);
+        String base = repo.headId();
+        repo.commit("copy", "b.txt", TEXT);
+        String head = repo.headId();
+
+        assertFalse(repo.ok("diff", base, head).contains("copy from"));
+        String diff = repo.ok("diff", "--find-copies", base, head);
+        assertTrue(diff.contains("copy from a.txt\ncopy to b.txt\n"), diff);
+    }
+}
@@ -0,0 +1,80 @@
+package gitlet;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ObjectCacheTest {
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void enable(){
+        ObjectCache.setEnabled(true);
+    }
+
+    @AfterEach
+    void disable(){
+        ObjectCache.setEnabled(false);
+    }
+
+    private static void save(File file, ArrayList<String> list) throws IOException {
+        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(file))){
+            out.writeObject(list);
+        }
+    }
+
+
+    @Test
+    void everyReadReturnsItsOwnCopy() throws IOException {
+        File file = dir.resolve("list").toFile();
+        ArrayList<String> list = new ArrayList<>();
+        list.add("a");
+        save(file, list);
+
+        long hits = ObjectCache.getHits();
+        @SuppressWarnings("unchecked")
+        ArrayList<String> first = ObjectCache.read(file, ArrayList.class);
+        first.add("changed by the caller");
+        @SuppressWarnings("unchecked")
+        ArrayList<String> second = ObjectCache.read(file, ArrayList.class);
+
+        assertEquals(hits + 1, ObjectCache.getHits());
+        assertNotSame(first, second);
+        assertEquals(list, second);
+    }
+
+    @Test
+    void commitsAreSharedBetweenReads() throws IOException {
+        File file = dir.resolve("commit").toFile();
+        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(file))){
+            out.writeObject(new Commit());
+        }
+
+        Commit first = ObjectCache.read(file, Commit.class);
+        assertSame(first, ObjectCache.read(file, Commit.class));
+    }
+
+    @Test
+    void replacedFileIsReadAgain() throws IOException {
+        File file = dir.resolve("list").toFile();
+        ArrayList<String> list = new ArrayList<>();
+        list.add("a");
+        save(file, list);
+        assertEquals(list, ObjectCache.read(file, ArrayList.class));
+
+        list.add("b");
+        File temp = dir.resolve("list.tmp").toFile();
+        save(temp, list);
+        assertTrue(temp.renameTo(file));
+        assertEquals(list, ObjectCache.read(file, ArrayList.class));
+    }
+}
@@ -0,0 +1,146 @@
+package gitlet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackTest {
+
+    @TempDir
+    Path dir;
+
+    private static byte[] bytes(String text){
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long fileCount(File folder) throws IOException {
+        try (Stream<Path> paths = Files.walk(folder.toPath())) {
+            return paths.filter(Files::isRegularFile).count();
+        }
+    }
+
+    private File folder(String name) throws IOException {
+        return Files.createDirectory(dir.resolve(name)).toFile();
+    }
+
+    // writes blobs to an object folder and returns their entries
+    private static List<Pack.Entry> blobs(File objectFolder, String... contents){
+        Transaction transaction = new Transaction(objectFolder);
+        List<Pack.Entry> entries = new ArrayList<>();
+        for (String content : contents){
+            String id = Utils.sha1(bytes(content));
+            transaction.writeObject(id, bytes(content));
+            entries.add(new Pack.Entry(Pack.BLOB, id));
+        }
+        transaction.commit();
+        return entries;
+    }
+
+    private static byte[] pack(File objectFolder, List<Pack.Entry> entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Pack.write(out, objectFolder, entries);
+        return out.toByteArray();
+    }
+
+
+    @Test
+    void packRoundTripPublishesEveryObject() throws IOException {
+        File source = folder("source");
+        File target = folder("target");
+        List<Pack.Entry> entries = blobs(source, "a", "b", "c");
+
+        assertEquals(3, Pack.read(new ByteArrayInputStream(pack(source, entries)), new Transaction(target)));
+        for (Pack.Entry entry : entries){
+            assertArrayEquals(Utils.readContents(Utils.getHashAsFile(source, entry.id)),
+                    Utils.readContents(Utils.getHashAsFile(target, entry.id)));
+        }
+        assertEquals(3, fileCount(target));
+    }
+
+    @Test
+    void corruptChecksumPublishesNothing() throws IOException {
+        File source = folder("source");
+        File target = folder("target");
+        byte[] pack = pack(source, blobs(source, "a", "b"));
+        pack[pack.length - 1] ^= 1;
+
+        GitletException e = assertThrows(GitletException.class,
+                () -> Pack.read(new ByteArrayInputStream(pack), new Transaction(target)));
+        assertTrue(e.getMessage().contains("checksum mismatch"), e.getMessage());
+        assertEquals(0, fileCount(target));
+    }
+
+    @Test
+    void blobNotMatchingItsIdIsRejected() throws IOException {
+        File source = folder("source");
+        File target = folder("target");
+        byte[] pack = pack(source, blobs(source, "a", "bbbb"));
+        // the content of the last blob is just before END and the checksum
+        pack[pack.length - 1 - 20 - 1] ^= 1;
+
+        GitletException e = assertThrows(GitletException.class,
+                () -> Pack.read(new ByteArrayInputStream(pack), new Transaction(target)));
+        assertTrue(e.getMessage().contains("does not match its id"), e.getMessage());
+        assertEquals(0, fileCount(target));
+    }
+
+    @Test
+    void truncatedPackPublishesNothing() throws IOException {
+        File source = folder("source");
+        File target = folder("target");
+        byte[] pack = pack(source, blobs(source, "a", "b"));
+
+        GitletException e = assertThrows(GitletException.class, () -> Pack.read(
+                new ByteArrayInputStream(Arrays.copyOf(pack, pack.length - 10)), new Transaction(target)));
+        assertTrue(e.getMessage().contains("truncated"), e.getMessage());
+        assertEquals(0, fileCount(target));
+    }
+
+    @Test
+    void copyStreamsObjectsBetweenFolders() throws IOException {
+        File source = folder("source");
+        File target = folder("target");
+        List<Pack.Entry> entries = blobs(source, "a", "b");
+
+        assertEquals(2, Pack.copy(source, entries, new Transaction(target)));
+        assertEquals(2, fileCount(target));
+    }
+
+
+    @Test
+    void fetchSendsOnlyMissingObjects() throws IOException {
+        TestRepo origin = TestRepo.init(Files.createDirectory(dir.resolve("origin")));
+        origin.commit("base", "a.txt", "a\n");
+        TestRepo clone = new TestRepo(Files.createDirectory(dir.resolve("clone")));
+        clone.ok("clone", origin.getDir().toString());
+
+        origin.commit("second", "b.txt", "b\n");
+        assertTrue(clone.ok("fetch", "origin", "master").contains("Fetched 1 commits and 1 blobs"));
+        assertTrue(clone.ok("fetch", "origin", "master").contains("Fetched 0 commits and 0 blobs"));
+        clone.ok("checkout", "origin/master");
+        assertEquals("b\n", clone.read("b.txt"));
+    }
+
+    @Test
+    void pushSendsOnlyMissingObjects() throws IOException {
+        TestRepo origin = TestRepo.init(Files.createDirectory(dir.resolve("origin")));
+        origin.commit("base", "a.txt", "a\n");
+        TestRepo clone = new TestRepo(Files.createDirectory(dir.resolve("clone")));
+        clone.ok("clone", origin.getDir().toString());
+
+        clone.commit("second", "b.txt", "b\n", "c.txt", "c\n");
+        assertTrue(clone.ok("push", "origin", "master").contains("Pushed 1 commits and 2 blobs"));
+        origin.ok("reset", clone.headId());
+        assertEquals("c\n", origin.read("c.txt"));
+    }
+}
@@ -0,0 +1,59 @@
+package gitlet;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PerfTest {
+
+    @BeforeEach
+    void enable(){
+        Perf.setEnabled(true);
+    }
+
+    @AfterEach
+    void disable(){
+        Perf.setEnabled(false);
+    }
+
+    // returns a counter of an operation from the JSON report
+    private static long counter(String operation, String counter){
+        Matcher matcher = Pattern.compile("\"" + operation + "\": \\{\"calls\": (\\d+), \"bytes\": (\\d+)")
+                .matcher(Perf.toJson());
+        assertTrue(matcher.find(), operation);
+        return Long.parseLong(matcher.group(counter.equals("calls") ? 1 : 2));
+    }
+
+
+    @Test
+    void sha1CountsEncodedBytes(){
+        long before = counter("sha1", "bytes");
+        Utils.sha1("héllo", "€", new byte[3]);
+        assertEquals(6 + 3 + 3, counter("sha1", "bytes") - before);
+    }
+
+    @Test
+    void utf8LengthMatchesEncoder(){
+        for (String text : new String[]{"", "ascii", "é", "€uro", "\uD83D\uDE00", "a\uD83Db", "\uDE00"}){
+            assertEquals(text.getBytes(StandardCharsets.UTF_8).length, Utils.utf8Length(text), text);
+        }
+    }
+
+    @Test
+    void lockIsCountedWithoutRepository(){
+        // the tests do not run in a repository: both locks return early
+        assertFalse(Repository.GITLET_DIR.isDirectory());
+        long shared = counter("lockShared", "calls");
+        long exclusive = counter("lockExclusive", "calls");
+        RepoLock.shared().close();
+        RepoLock.exclusive().close();
+        assertEquals(shared + 1, counter("lockShared", "calls"));
+        assertEquals(exclusive + 1, counter("lockExclusive", "calls"));
+    }
+}
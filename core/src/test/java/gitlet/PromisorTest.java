@@ -0,0 +1,82 @@
+package gitlet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PromisorTest {
+
+    @TempDir
+    Path dir;
+
+    // path of the object file of a blob, relative to the working directory
+    private static String blobFile(String content){
+        String id = Utils.sha1(content.getBytes(StandardCharsets.UTF_8));
+        return ".gitlet/objects/" + Utils.getHashHead(id) + "/" + Utils.getHashBody(id);
+    }
+
+    private TestRepo bloblessClone(TestRepo origin) throws IOException {
+        TestRepo clone = new TestRepo(Files.createDirectory(dir.resolve("clone")));
+        assertTrue(clone.ok("clone", origin.getDir().toString(), "--blobless").contains("(blobless)."));
+        return clone;
+    }
+
+
+    @Test
+    void cloneOnlyHasTheBlobsItChecksOut() throws IOException {
+        TestRepo origin = TestRepo.init(Files.createDirectory(dir.resolve("origin")));
+        origin.commit("first", "a.txt", "old\n");
+        String first = origin.headId();
+        origin.commit("second", "a.txt", "new\n");
+
+        TestRepo clone = bloblessClone(origin);
+        assertEquals("new\n", clone.read("a.txt"));
+        assertFalse(clone.exists(blobFile("old\n")));
+
+        // a blob read for the first time is fetched from origin
+        clone.ok("checkout", first, "--", "a.txt");
+        assertEquals("old\n", clone.read("a.txt"));
+        assertTrue(clone.exists(blobFile("old\n")));
+    }
+
+    @Test
+    void checkoutFetchesTheMissingBlobsInOnePack() throws IOException {
+        TestRepo origin = TestRepo.init(Files.createDirectory(dir.resolve("origin")));
+        origin.commit("base", "a.txt", "a\n");
+        origin.ok("branch", "other");
+        origin.ok("checkout", "other");
+        origin.commit("other", "b.txt", "b\n", "c.txt", "c\n", "d.txt", "d\n");
+        origin.ok("checkout", "master");
+
+        TestRepo clone = bloblessClone(origin);
+        assertFalse(clone.exists(blobFile("b\n")));
+        clone.ok("--trace-perf=perf.json", "checkout", "other");
+        assertEquals("c\n", clone.read("c.txt"));
+        String perf = clone.read("perf.json");
+        assertTrue(perf.contains("\"promisor.fetch\": {\"count\": 1,"), perf);
+
+        // the blobs are here now: going back and forth fetches nothing
+        clone.ok("checkout", "master");
+        clone.ok("--trace-perf=perf.json", "checkout", "other");
+        assertFalse(clone.read("perf.json").contains("promisor.fetch"));
+    }
+
+    @Test
+    void blobMissingFromOriginIsReported() throws IOException {
+        TestRepo origin = TestRepo.init(Files.createDirectory(dir.resolve("origin")));
+        origin.commit("first", "a.txt", "old\n");
+        String first = origin.headId();
+        origin.commit("second", "a.txt", "new\n");
+
+        TestRepo clone = bloblessClone(origin);
+        origin.delete(blobFile("old\n"));
+        assertTrue(clone.run("checkout", first, "--", "a.txt").contains("is missing here and in remote origin"));
+        assertEquals("new\n", clone.read("a.txt"));
+    }
+}
@@ -0,0 +1,101 @@
+package gitlet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RefLockTest {
+
+    @TempDir
+    Path dir;
+
+    private static byte[] bytes(String text){
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String read(File file){
+        return new String(Utils.readContents(file), StandardCharsets.UTF_8);
+    }
+
+
+    @Test
+    void commitReplacesRefAndReleasesLock(){
+        File ref = dir.resolve("master").toFile();
+        File lockFile = dir.resolve("master" + RefLock.SUFFIX).toFile();
+        try (RefLock lock = RefLock.acquire(ref)) {
+            assertTrue(lockFile.isFile());
+            lock.commit(bytes("first"));
+        }
+        assertEquals("first", read(ref));
+        assertFalse(lockFile.exists());
+    }
+
+    @Test
+    void closeWithoutCommitLeavesRef(){
+        File ref = dir.resolve("master").toFile();
+        Transaction.replaceFile(ref, bytes("first"));
+        try (RefLock lock = RefLock.acquire(ref)) {
+            assertNotNull(lock);
+        }
+        assertEquals("first", read(ref));
+        assertFalse(dir.resolve("master" + RefLock.SUFFIX).toFile().exists());
+    }
+
+    @Test
+    void secondWriterWaitsForTheFirst() throws Exception {
+        File ref = dir.resolve("master").toFile();
+        Transaction.replaceFile(ref, bytes("0"));
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try{
+            Future<?> first = pool.submit(() -> {
+                try (RefLock lock = RefLock.acquire(ref)) {
+                    locked.countDown();
+                    release.await();
+                    lock.commit(bytes(String.valueOf(Integer.parseInt(read(ref)) + 1)));
+                }
+                return null;
+            });
+            assertTrue(locked.await(10, TimeUnit.SECONDS));
+            // let the first writer go once the second one is waiting
+            Future<?> later = pool.submit(() -> {
+                Thread.sleep(200);
+                release.countDown();
+                return null;
+            });
+
+            // the second writer only reads the ref once the first one committed
+            try (RefLock lock = RefLock.acquire(ref)) {
+                lock.commit(bytes(String.valueOf(Integer.parseInt(read(ref)) + 1)));
+            }
+            first.get();
+            later.get();
+        }finally{
+            pool.shutdown();
+        }
+        assertEquals("2", read(ref));
+    }
+
+    @Test
+    void writersOfDifferentRefsDoNotWait(){
+        File master = dir.resolve("master").toFile();
+        File other = dir.resolve("other").toFile();
+        try (RefLock first = RefLock.acquire(master); RefLock second = RefLock.acquire(other)) {
+            second.commit(bytes("other"));
+            first.commit(bytes("master"));
+        }
+        assertEquals("master", read(master));
+        assertEquals("other", read(other));
+    }
+}
@@ -0,0 +1,113 @@
+package gitlet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenameDetectorTest {
+
+    private static final ObjectId A = ObjectId.parse("0123456789abcdef0123456789abcdef01234567");
+    private static final ObjectId B = ObjectId.parse("89abcdef0123456789abcdef0123456789abcdef");
+
+    @TempDir
+    Path dir;
+
+    // the lines 1 to count, with the given lines replaced
+    private static String lines(int count, String... replacements){
+        StringBuilder text = new StringBuilder();
+        for (int line = 1; line <= count; line++){
+            String content = "line " + line;
+            for (int i = 0; i < replacements.length; i += 2){
+                if (replacements[i].equals(String.valueOf(line))) content = replacements[i + 1];
+            }
+            text.append(content).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static void assertRename(RenameDetector.Rename rename, String oldPath, String newPath, boolean copy){
+        assertEquals(oldPath, rename.oldPath, "oldPath");
+        assertEquals(newPath, rename.newPath, "newPath");
+        assertEquals(copy, rename.copy, "copy");
+    }
+
+
+    @Test
+    void sameBlobIsAnExactRename(){
+        List<RenameDetector.Rename> renames = RenameDetector.detect(Map.of("a.txt", A, "b.txt", B),
+                Map.of("b.txt", B, "c.txt", A), false);
+        assertEquals(1, renames.size());
+        assertRename(renames.get(0), "a.txt", "c.txt", false);
+        assertEquals(100, renames.get(0).score);
+    }
+
+    @Test
+    void everyDeletedPathIsRenamedOnce(){
+        List<RenameDetector.Rename> renames = RenameDetector.detect(Map.of("a.txt", A, "b.txt", A),
+                Map.of("c.txt", A, "d.txt", A), false);
+        assertEquals(2, renames.size());
+        assertRename(renames.get(0), "a.txt", "c.txt", false);
+        assertRename(renames.get(1), "b.txt", "d.txt", false);
+    }
+
+    @Test
+    void copiesOfAnExistingPathOnlyWhenAsked(){
+        Map<String, ObjectId> oldContent = Map.of("a.txt", A);
+        Map<String, ObjectId> newContent = Map.of("a.txt", A, "b.txt", A);
+        assertTrue(RenameDetector.detect(oldContent, newContent, false).isEmpty());
+
+        List<RenameDetector.Rename> copies = RenameDetector.detect(oldContent, newContent, true);
+        assertEquals(1, copies.size());
+        assertRename(copies.get(0), "a.txt", "b.txt", true);
+    }
+
+
+    @Test
+    void editedFileIsPairedWithTheMostSimilarDeletedOne(){
+        TestRepo repo = TestRepo.init(dir);
+        repo.commit("base", "x.txt", lines(20), "y.txt", lines(20, "1", "other", "2", "other 2", "3", "other 3"));
+        String base = repo.headId();
+        repo.ok("rm", "x.txt");
+        repo.ok("rm", "y.txt");
+        repo.commit("rename", "z.txt", lines(20, "20", "changed"));
+
+        String diff = repo.ok("diff", base, repo.headId());
+        assertTrue(diff.contains("diff --gitlet a/x.txt b/z.txt\nrename from x.txt\nrename to z.txt\n"), diff);
+        assertTrue(diff.contains("-line 20\n+changed\n"), diff);
+        // the other deleted file stays a deletion
+        assertTrue(diff.contains("--- a/y.txt\n+++ /dev/null\n"), diff);
+    }
+
+    @Test
+    void dissimilarFilesAreNotPaired(){
+        TestRepo repo = TestRepo.init(dir);
+        repo.commit("base", "a.txt", lines(10));
+        String base = repo.headId();
+        repo.ok("rm", "a.txt");
+        repo.commit("replace", "b.txt", "something\nelse\nentirely\n");
+
+        String diff = repo.ok("diff", base, repo.headId());
+        assertFalse(diff.contains("rename from"), diff);
+        assertTrue(diff.contains("--- a/a.txt\n+++ /dev/null\n"), diff);
+        assertTrue(diff.contains("--- /dev/null\n+++ b/b.txt\n"), diff);
+    }
+
+    @Test
+    void editedCopyIsFoundWithFindCopies(){
+        TestRepo repo = TestRepo.init(dir);
+        repo.commit("base", "a.txt", lines(20));
+        String base = repo.headId();
+        repo.commit("copy", "b.txt", lines(20, "5", "changed"));
+        String head = repo.headId();
+
+        assertFalse(repo.ok("diff", base, head).contains("copy from"));
+        String diff = repo.ok("diff", "--find-copies", base, head);
+        assertTrue(diff.contains("copy from a.txt\ncopy to b.txt\n"), diff);
+        assertTrue(diff.contains("-line 5\n+changed\n"), diff);
+    }
+}
@@ -0,0 +1,85 @@
+package gitlet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RepoLockTest {
+
+    @TempDir
+    Path dir;
+
+
+    /**
+     * Holds the lock of the repository in its working directory for some milliseconds, then creates the file
+     * "released" and lets the lock go: a command that waited for the lock finds the file.
+     */
+    static class Holder {
+
+        public static void main(String[] args) throws Exception {
+            RepoLock lock = args[0].equals("shared") ? RepoLock.shared() : RepoLock.exclusive();
+            System.out.println("locked");
+            System.out.flush();
+            Thread.sleep(Long.parseLong(args[1]));
+            Files.createFile(Repository.CWD.toPath().resolve("released"));
+            lock.close();
+        }
+    }
+
+
+    // starts a holder and returns once it holds the lock
+    private static Process hold(TestRepo repo, String mode, long millis) throws Exception {
+        Process holder = repo.start(Holder.class, mode, String.valueOf(millis));
+        BufferedReader output = new BufferedReader(new InputStreamReader(holder.getInputStream(),
+                StandardCharsets.UTF_8));
+        assertEquals("locked", output.readLine());
+        return holder;
+    }
+
+    private static void finish(Process holder) throws InterruptedException {
+        assertTrue(holder.waitFor(30, TimeUnit.SECONDS));
+        assertEquals(0, holder.exitValue());
+    }
+
+
+    @Test
+    void writerWaitsForExclusiveLock() throws Exception {
+        TestRepo repo = TestRepo.init(dir);
+        repo.write("a.txt", "a\n");
+        Process holder = hold(repo, "exclusive", 1500);
+
+        repo.ok("add", "a.txt");
+        assertTrue(repo.exists("released"), "add ran while another process held the exclusive lock");
+        finish(holder);
+    }
+
+    @Test
+    void writerWaitsForSharedLock() throws Exception {
+        TestRepo repo = TestRepo.init(dir);
+        repo.write("a.txt", "a\n");
+        Process holder = hold(repo, "shared", 1500);
+
+        repo.ok("add", "a.txt");
+        assertTrue(repo.exists("released"), "add ran while another process held a shared lock");
+        finish(holder);
+    }
+
+    @Test
+    void readersShareTheLock() throws Exception {
+        TestRepo repo = TestRepo.init(dir);
+        repo.commit("base", "a.txt", "a\n");
+        Process holder = hold(repo, "shared", 10_000);
+
+        assertTrue(repo.ok("log").contains("base"));
+        assertFalse(repo.exists("released"), "log waited for another reader");
+        finish(holder);
+    }
+}
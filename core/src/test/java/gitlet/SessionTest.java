@@ -0,0 +1,111 @@
+package gitlet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionTest {
+
+    @TempDir
+    Path dir;
+
+
+    /**
+     * Runs a session in the working directory of its process (see TestRepo). The first argument names the
+     * scenario; a ConcurrentUpdateException is printed instead of failing the process.
+     */
+    static class Driver {
+
+        public static void main(String[] args){
+            try (Session session = Session.open()){
+                switch (args[0]){
+                    case "remove":
+                        session.removeBranch(args[1]);
+                        break;
+                    case "remove-after-move":
+                        session.removeBranch(args[1]);
+                        moveBranch(args[1], session.getHeadId());
+                        break;
+                    case "commit":
+                        session.commit(args[1]);
+                        break;
+                    case "commit-after-move":
+                        session.add(args[1]);
+                        session.commit("session commit");
+                        moveBranch(session.getActiveBranchName(), args[2]);
+                        break;
+                    default:
+                        throw new IllegalArgumentException(args[0]);
+                }
+            }catch (GitletException.ConcurrentUpdateException e){
+                System.out.println("concurrent update: " + e.getMessage());
+            }
+        }
+
+        // moves a branch as another writer would, behind the back of the session
+        private static void moveBranch(String name, String commit){
+            Branch branch = Branch.getBranch(name);
+            assertTrue(branch.compareAndSetRef(branch.getRef(), commit));
+        }
+    }
+
+
+    private TestRepo repoWithOtherBranch(){
+        TestRepo repo = TestRepo.init(dir);
+        repo.commit("base", "a.txt", "a\n");
+        repo.ok("branch", "other");
+        repo.commit("second", "a.txt", "A\n");
+        return repo;
+    }
+
+
+    @Test
+    void removedBranchIsDeletedOnFlush(){
+        TestRepo repo = repoWithOtherBranch();
+        assertEquals("", repo.runMain(Driver.class, "remove", "other"));
+        assertTrue(repo.run("checkout", "other").contains("A branch with that name does not exist."));
+    }
+
+    @Test
+    void branchMovedByAnotherWriterIsNotRemoved(){
+        TestRepo repo = repoWithOtherBranch();
+        String output = repo.runMain(Driver.class, "remove-after-move", "other");
+        assertTrue(output.contains("concurrent update: Branch other was changed by another writer"), output);
+
+        repo.ok("checkout", "other");
+        assertEquals("A\n", repo.read("a.txt"));
+    }
+
+    @Test
+    void commitSavesBlobsOfFilesStagedBeforeTheSession(){
+        TestRepo repo = repoWithOtherBranch();
+        repo.write("b.txt", "b\n");
+        repo.ok("add", "b.txt");
+        assertEquals("", repo.runMain(Driver.class, "commit", "session commit"));
+
+        repo.delete("b.txt");
+        repo.ok("checkout", "--", "b.txt");
+        assertEquals("b\n", repo.read("b.txt"));
+        repo.ok("checkout", "other");
+        repo.ok("checkout", "master");
+        assertEquals("b\n", repo.read("b.txt"));
+    }
+
+    @Test
+    void commitOnBranchMovedByAnotherWriterIsNotSaved(){
+        TestRepo repo = repoWithOtherBranch();
+        String second = repo.headId();
+        repo.ok("checkout", "other");
+        String base = repo.headId();
+        repo.ok("checkout", "master");
+        repo.write("b.txt", "b\n");
+
+        String output = repo.runMain(Driver.class, "commit-after-move", "b.txt", base);
+        assertTrue(output.contains("concurrent update: Branch master was changed by another writer"), output);
+        assertNotEquals(second, repo.headId());
+        assertEquals(base, repo.headId());
+    }
+}
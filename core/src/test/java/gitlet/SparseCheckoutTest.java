@@ -0,0 +1,43 @@
+package gitlet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SparseCheckoutTest {
+
+    @TempDir
+    Path dir;
+
+
+    private TestRepo sparseRepo(){
+        TestRepo repo = TestRepo.init(dir);
+        repo.commit("base", "a.txt", "a\n", "b.txt", "b\n");
+        repo.ok("sparse-checkout", "set", "a.txt");
+        return repo;
+    }
+
+
+    @Test
+    void filesOutsideThePatternsAreRemoved(){
+        TestRepo repo = sparseRepo();
+        assertEquals("a\n", repo.read("a.txt"));
+        assertFalse(repo.exists("b.txt"));
+
+        repo.ok("sparse-checkout", "disable");
+        assertEquals("b\n", repo.read("b.txt"));
+    }
+
+    @Test
+    void statusAndDiffIgnoreFilesOutsideThePatterns(){
+        TestRepo repo = sparseRepo();
+        assertFalse(repo.ok("status").contains("b.txt"));
+        assertEquals("", repo.ok("diff", "--name-only"));
+
+        repo.write("a.txt", "A\n");
+        assertEquals("a.txt\n", repo.ok("diff", "--name-only"));
+    }
+}
@@ -0,0 +1,153 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A working directory with a gitlet repository, driven through the command line. Repository.CWD is read once
+ * per process from user.dir, so every command runs in its own JVM with the directory as working directory.
+ */
+class TestRepo {
+
+    private final Path dir;
+
+
+    TestRepo(Path dir){
+        this.dir = dir;
+    }
+
+
+    /**
+     * creates a repository in an empty directory
+     */
+    static TestRepo init(Path dir){
+        TestRepo repo = new TestRepo(dir);
+        repo.ok("init");
+        return repo;
+    }
+
+
+    /**
+     * runs a command and returns its output
+     */
+    String run(String... args){
+        return runMain(Main.class, args);
+    }
+
+
+    /**
+     * runs the main method of a class in the directory and returns its output
+     */
+    String runMain(Class<?> mainClass, String... args){
+        try{
+            Process process = start(mainClass, args);
+            byte[] output = process.getInputStream().readAllBytes();
+            if (!process.waitFor(60, TimeUnit.SECONDS)){
+                process.destroyForcibly();
+                fail("gitlet " + String.join(" ", args) + " did not finish");
+            }
+            return new String(output, StandardCharsets.UTF_8);
+        }catch (IOException | InterruptedException e){
+            throw new AssertionError("Could not run gitlet " + String.join(" ", args), e);
+        }
+    }
+
+
+    /**
+     * starts the main method of a class in the directory without waiting for it; its output and errors are read
+     * from getInputStream
+     */
+    Process start(Class<?> mainClass, String... args) throws IOException {
+        List<String> command = new ArrayList<>(Arrays.asList(
+                System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+                "-cp", System.getProperty("java.class.path"), mainClass.getName()));
+        command.addAll(Arrays.asList(args));
+        return new ProcessBuilder(command).directory(dir.toFile()).redirectErrorStream(true).start();
+    }
+
+
+    /**
+     * runs a command that must not print an error, and returns its output
+     */
+    String ok(String... args){
+        String output = run(args);
+        assertFalse(output.contains("Exception"), "gitlet " + String.join(" ", args) + ":\n" + output);
+        return output;
+    }
+
+
+    void write(String path, String content){
+        try{
+            Path file = dir.resolve(path);
+            Files.createDirectories(file.getParent());
+            Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        }catch (IOException e){
+            throw new AssertionError(e);
+        }
+    }
+
+    String read(String path){
+        try{
+            return new String(Files.readAllBytes(dir.resolve(path)), StandardCharsets.UTF_8);
+        }catch (IOException e){
+            throw new AssertionError(e);
+        }
+    }
+
+    boolean exists(String path){
+        return Files.exists(dir.resolve(path));
+    }
+
+    void delete(String path){
+        try{
+            Files.delete(dir.resolve(path));
+        }catch (IOException e){
+            throw new AssertionError(e);
+        }
+    }
+
+    Path getDir(){
+        return dir;
+    }
+
+
+    /**
+     * writes, stages and commits files given as path, content pairs
+     */
+    void commit(String message, String... files){
+        for (int i = 0; i < files.length; i += 2){
+            write(files[i], files[i + 1]);
+            ok("add", files[i]);
+        }
+        ok("commit", "-m", message);
+    }
+
+    /**
+     * returns the id of the head commit, as printed first by log
+     */
+    String headId(){
+        String log = ok("log");
+        int start = log.indexOf("Commit: ") + "Commit: ".length();
+        return log.substring(start, log.indexOf('\n', start));
+    }
+
+    /**
+     * moves a tracked file and commits the move
+     */
+    void commitRename(String message, String oldPath, String newPath){
+        String content = read(oldPath);
+        ok("rm", oldPath);
+        write(newPath, content);
+        ok("add", newPath);
+        ok("commit", "-m", message);
+    }
+}
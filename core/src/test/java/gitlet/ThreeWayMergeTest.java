@@ -0,0 +1,100 @@
+package gitlet;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThreeWayMergeTest {
+
+    private static ThreeWayMerge.Result merge(String base, String ours, String theirs){
+        return ThreeWayMerge.merge(bytes(base), bytes(ours), bytes(theirs));
+    }
+
+    private static byte[] bytes(String text){
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(ThreeWayMerge.Result result){
+        return new String(result.getContent(), StandardCharsets.UTF_8);
+    }
+
+
+    @Test
+    void changesToDifferentLinesMergeCleanly(){
+        ThreeWayMerge.Result result = merge("a\nb\nc\nd\ne\n", "A\nb\nc\nd\ne\n", "a\nb\nc\nd\nE\n");
+        assertFalse(result.hasConflicts());
+        assertEquals("A\nb\nc\nd\nE\n", text(result));
+    }
+
+    @Test
+    void insertionsAndDeletionsOnBothSidesMergeCleanly(){
+        ThreeWayMerge.Result result = merge("a\nb\nc\nd\ne\n", "a\nx\nb\nc\nd\ne\n", "a\nb\nc\nd\n");
+        assertFalse(result.hasConflicts());
+        assertEquals("a\nx\nb\nc\nd\n", text(result));
+    }
+
+    @Test
+    void sameChangeOnBothSidesIsNotAConflict(){
+        ThreeWayMerge.Result result = merge("a\nb\nc\n", "a\nB\nc\n", "a\nB\nc\n");
+        assertFalse(result.hasConflicts());
+        assertEquals("a\nB\nc\n", text(result));
+    }
+
+    @Test
+    void onlyOneSideChanged(){
+        assertEquals("a\nB\nc\n", text(merge("a\nb\nc\n", "a\nb\nc\n", "a\nB\nc\n")));
+        assertEquals("a\nB\nc\n", text(merge("a\nb\nc\n", "a\nB\nc\n", "a\nb\nc\n")));
+    }
+
+    @Test
+    void overlappingChangesMakeOneConflictHunk(){
+        ThreeWayMerge.Result result = merge("a\nb\nc\nd\n", "a\nours\nc\nd\n", "a\ntheirs\nc\nd\n");
+        assertEquals(1, result.getConflicts());
+        assertEquals("a\n<<<<<<< HEAD\nours\n=======\ntheirs\n>>>>>>>\nc\nd\n", text(result));
+    }
+
+    @Test
+    void adjacentChangesAreOneHunk(){
+        ThreeWayMerge.Result result = merge("a\nb\nc\n", "a\nB\nc\n", "a\nb\nC\n");
+        assertEquals(1, result.getConflicts());
+        assertEquals("a\n<<<<<<< HEAD\nB\nc\n=======\nb\nC\n>>>>>>>\n", text(result));
+    }
+
+    @Test
+    void separateOverlapsMakeSeparateHunks(){
+        ThreeWayMerge.Result result = merge("1\n2\n3\n4\n5\n", "x\n2\n3\n4\ny\n", "X\n2\n3\n4\nY\n");
+        assertEquals(2, result.getConflicts());
+        assertEquals("<<<<<<< HEAD\nx\n=======\nX\n>>>>>>>\n2\n3\n4\n<<<<<<< HEAD\ny\n=======\nY\n>>>>>>>\n",
+                text(result));
+    }
+
+    @Test
+    void fileAddedOnBothSidesWithDifferentContent(){
+        ThreeWayMerge.Result result = merge("", "ours\n", "theirs\n");
+        assertEquals(1, result.getConflicts());
+        assertEquals("<<<<<<< HEAD\nours\n=======\ntheirs\n>>>>>>>\n", text(result));
+    }
+
+    @Test
+    void fileDeletedOnOneSideAndChangedOnTheOther(){
+        ThreeWayMerge.Result result = merge("a\nb\n", "", "a\nB\n");
+        assertTrue(result.hasConflicts());
+        assertEquals("<<<<<<< HEAD\n=======\na\nB\n>>>>>>>\n", text(result));
+    }
+
+    @Test
+    void allSidesEmpty(){
+        ThreeWayMerge.Result result = merge("", "", "");
+        assertFalse(result.hasConflicts());
+        assertEquals(0, result.getContent().length);
+    }
+
+    @Test
+    void missingFinalNewlineStillGetsMarkersOnTheirOwnLine(){
+        ThreeWayMerge.Result result = merge("a\n", "ours", "theirs");
+        assertEquals(1, result.getConflicts());
+        assertEquals("<<<<<<< HEAD\nours\n=======\ntheirs\n>>>>>>>\n", text(result));
+    }
+}
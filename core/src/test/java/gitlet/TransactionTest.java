@@ -0,0 +1,94 @@
+package gitlet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionTest {
+
+    @TempDir
+    Path dir;
+
+    private static byte[] bytes(String text){
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String read(File file){
+        return new String(Utils.readContents(file), StandardCharsets.UTF_8);
+    }
+
+    // every file under the folder, relative to it
+    private List<String> files() throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            return paths.filter(Files::isRegularFile).map(path -> dir.relativize(path).toString())
+                    .sorted().collect(Collectors.toList());
+        }
+    }
+
+    private File objectFile(String id){
+        return Utils.join(dir.toFile(), Utils.getHashHead(id), Utils.getHashBody(id));
+    }
+
+
+    @Test
+    void objectsArePublishedOnCommit() throws IOException {
+        String a = Utils.sha1(bytes("a"));
+        String b = Utils.sha1(bytes("b"));
+        Transaction transaction = new Transaction(dir.toFile());
+        transaction.writeObject(a, bytes("a"));
+        transaction.writeObject(b, bytes("b"));
+        assertFalse(objectFile(a).exists());
+        assertFalse(objectFile(b).exists());
+
+        transaction.commit();
+        assertEquals("a", read(objectFile(a)));
+        assertEquals("b", read(objectFile(b)));
+        // no temporary file is left behind
+        assertEquals(2, files().size(), files().toString());
+    }
+
+    @Test
+    void abortPublishesNothing() throws IOException {
+        Transaction transaction = new Transaction(dir.toFile());
+        transaction.writeObject(Utils.sha1(bytes("a")), bytes("a"));
+        transaction.abort();
+        transaction.commit();
+        assertTrue(files().isEmpty(), files().toString());
+    }
+
+    @Test
+    void existingObjectIsNotWrittenAgain() throws IOException {
+        String a = Utils.sha1(bytes("a"));
+        Transaction first = new Transaction(dir.toFile());
+        first.writeObject(a, bytes("a"));
+        first.commit();
+        long modified = objectFile(a).lastModified();
+
+        Transaction second = new Transaction(dir.toFile());
+        second.writeObject(a, bytes("a"));
+        second.writeObject(a, bytes("a"));
+        assertEquals(1, files().size(), files().toString());
+        second.commit();
+        assertEquals(modified, objectFile(a).lastModified());
+    }
+
+    @Test
+    void replaceFileSwapsContentAtomically() throws IOException {
+        File file = dir.resolve("ref").toFile();
+        Transaction.replaceFile(file, bytes("first"));
+        assertEquals("first", read(file));
+        Transaction.replaceFile(file, bytes("second"));
+        assertEquals("second", read(file));
+        assertEquals(List.of("ref"), files());
+    }
+}
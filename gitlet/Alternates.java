@@ -0,0 +1,102 @@
+package gitlet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static gitlet.Utils.*;
+
+/**
+ * This class lets an object folder borrow objects from other object folders, its alternates, listed one path
+ * per line in objects/info/alternates (clone --shared writes it). An object missing from a folder is looked
+ * up in its alternates, and in their own alternates, in order (see Utils.getHashAsFile). Alternates are only
+ * ever read: new objects are always written to the repository's own object folder.
+ *
+ * The list of a folder is read once per process. A repository must not outlive the object folders it borrows
+ * from; deleting one loses every object only found there.
+ */
+public class Alternates {
+
+    // a chain of alternates longer than this is most likely a cycle
+    private static final int MAX_DEPTH = 5;
+    private static final ConcurrentHashMap<File, List<File>> FOLDERS = new ConcurrentHashMap<>();
+
+
+    /**
+     * returns the alternates file of an object folder
+     */
+    static File file(File objectFolder){
+        return join(objectFolder, "info", "alternates");
+    }
+
+
+    /**
+     * returns the alternates of an object folder, empty if it has none
+     */
+    public static List<File> of(File objectFolder){
+        return FOLDERS.computeIfAbsent(objectFolder, Alternates::read);
+    }
+
+    private static List<File> read(File objectFolder){
+        File file = file(objectFolder);
+        if (!file.isFile()){
+            return Collections.emptyList();
+        }
+        List<File> folders = new ArrayList<>();
+        for (String line : readContentAsString(file).split("\n")){
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#")){
+                File folder = new File(line);
+                folders.add(folder.isAbsolute() ? folder : join(objectFolder, line));
+            }
+        }
+        return Collections.unmodifiableList(folders);
+    }
+
+
+    /**
+     * Looks an object up in the alternates of an object folder.
+     * @param objectFolder - the object folder missing the object
+     * @param hash - object id
+     * @return - the object file in an alternate, or null if no alternate has it
+     */
+    public static File find(File objectFolder, String hash){
+        return find(objectFolder, hash, 0);
+    }
+
+    private static File find(File objectFolder, String hash, int depth){
+        if (depth == MAX_DEPTH){
+            return null;
+        }
+        for (File alternate : of(objectFolder)){
+            File file = join(alternate, getHashHead(hash), getHashBody(hash));
+            if (file.isFile()){
+                return file;
+            }
+            file = find(alternate, hash, depth + 1);
+            if (file != null){
+                return file;
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Adds an alternate to an object folder.
+     * @param objectFolder - the object folder that borrows objects
+     * @param alternate - the object folder to borrow from
+     */
+    public static void add(File objectFolder, File alternate){
+        if (!alternate.isDirectory()){
+            throw error("No object folder at %s", alternate.getPath());
+        }
+        File file = file(objectFolder);
+        file.getParentFile().mkdirs();
+        String content = file.isFile() ? readContentAsString(file) : "";
+        Transaction.replaceFile(file, (content + alternate.getAbsolutePath() + "\n").getBytes());
+        FOLDERS.remove(objectFolder);
+    }
+}
@@ -0,0 +1,170 @@
+package gitlet;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static gitlet.Utils.*;
+
+/**
+ * This class implements batch mode: many commands read from standard input and run in one process.
+ *
+ *  java gitlet.Main batch [-z] [--stop-on-error]
+ *
+ * Commands are separated by newlines, or by NUL characters with -z (so an argument may contain a newline).
+ * Every command is split into arguments on whitespace; single or double quotes group words into one argument
+ * and a backslash escapes the next character. Empty commands and commands starting with # are skipped.
+ * The output of every command is followed by one result line:
+ *  --- N ok TIMEms
+ *  --- N failed CODE TIMEms
+ * where N is the number of the command, starting at 1, and CODE the exit code the command would have had on
+ * its own (user errors exit with 0). A failed command does not stop the batch unless --stop-on-error is given.
+ * Objects, refs and the index are read through ObjectCache while the batch runs.
+ */
+public class Batch {
+
+    private static boolean running = false;
+
+
+    /**
+     * Handles the batch command.
+     * @param args - command line arguments
+     */
+    public static void batch(String[] args){
+        boolean nul = false;
+        boolean stopOnError = false;
+        for (int i = 1; i < args.length; i++){
+            switch (args[i]){
+                case "-z":
+                    nul = true;
+                    break;
+                case "--stop-on-error":
+                    stopOnError = true;
+                    break;
+                default:
+                    exitWithError("Usage: batch [-z] [--stop-on-error]", 0);
+            }
+        }
+        if (running || Daemon.isRunning()){
+            exitWithError("batch cannot be used inside a batch or through the daemon", 0);
+        }
+
+        boolean cached = ObjectCache.isEnabled();
+        ObjectCache.setEnabled(true);
+        running = true;
+        int count = 0;
+        int failed = 0;
+        try{
+            Reader input = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            String command;
+            while ((command = readCommand(input, nul ? '\0' : '\n')) != null){
+                List<String> words = split(command);
+                if (words != null && (words.isEmpty() || words.get(0).startsWith("#"))){
+                    continue;
+                }
+                count++;
+                if (!runCommand(command, words, count)){
+                    failed++;
+                    if (stopOnError) break;
+                }
+            }
+        }catch (IOException e){
+            throw error("Could not read the batch commands: %s", e.getMessage());
+        }finally{
+            running = false;
+            ObjectCache.setEnabled(cached);
+        }
+        System.out.println("Batch: " + count + " commands, " + failed + " failed.");
+        if (failed > 0){
+            throw new GitletException(null, 1);
+        }
+    }
+
+
+    /**
+     * Runs one command and prints its result line. A command that could not be split fails like any other.
+     * @param command - the command as read
+     * @param words - its arguments, null if a quote is not terminated
+     * @return - true if the command succeeded
+     */
+    private static boolean runCommand(String command, List<String> words, int number){
+        long start = System.nanoTime();
+        String result = " ok ";
+        try{
+            if (words == null){
+                exitWithError("Unterminated quote in batch command: " + command, 0);
+            }
+            Main.run(words.toArray(new String[0]));
+        }catch (GitletException e){
+            if (e.getMessage() != null){
+                System.out.println(e.getMessage());
+            }
+            result = " failed " + e.getExitCode() + " ";
+        }catch (RuntimeException e){
+            System.out.println("Error: " + e.getMessage());
+            result = " failed 1 ";
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("--- " + number + result + millis + "ms");
+        System.out.flush();
+        return result.equals(" ok ");
+    }
+
+
+    /**
+     * reads characters up to the next separator
+     * @return - the command read, or null at the end of the input
+     */
+    private static String readCommand(Reader input, char separator) throws IOException {
+        StringBuilder command = new StringBuilder();
+        int c;
+        while ((c = input.read()) != -1){
+            if (c == separator){
+                return command.toString();
+            }
+            command.append((char) c);
+        }
+        return command.length() == 0 ? null : command.toString();
+    }
+
+
+    /**
+     * Splits a command into arguments on whitespace, honoring quotes and backslash escapes.
+     * @return - the arguments, or null if a quote is not terminated
+     */
+    static List<String> split(String command){
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        boolean inWord = false;
+        char quote = 0;
+        for (int i = 0; i < command.length(); i++){
+            char c = command.charAt(i);
+            if (c == '\\' && i + 1 < command.length() && quote != '\''){
+                word.append(command.charAt(++i));
+                inWord = true;
+            }else if (quote != 0){
+                if (c == quote) quote = 0; else word.append(c);
+            }else if (c == '"' || c == '\''){
+                quote = c;
+                inWord = true;
+            }else if (Character.isWhitespace(c)){
+                if (inWord){
+                    words.add(word.toString());
+                    word.setLength(0);
+                    inWord = false;
+                }
+            }else{
+                word.append(c);
+                inWord = true;
+            }
+        }
+        if (quote != 0){
+            return null;
+        }
+        if (inWord){
+            words.add(word.toString());
+        }
+        return words;
+    }
+}
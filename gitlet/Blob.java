@@ -2,6 +2,7 @@ package gitlet;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
 
 import static  gitlet.Utils.*;
 
@@ -31,11 +32,37 @@ public class Blob {
             }
         }
 
+        /**
+         * Adds the blob to a transaction, to be published with the other objects of the transaction.
+         * @param transaction
+         */
+        public void saveBlob(Transaction transaction){
+            transaction.writeObject(this.blobHash, this.content);
+        }
+
         public String getHash(){
             return this.blobHash;
         }
 
-        private File createEmptyBlobFile(String blob_sha){
+        /**
+         * Reads the content of the blob with the given hash from the object folder. In a partial clone a
+         * missing blob is fetched first (see Promisor).
+         * @param hash - blob id
+         * @return - the content of the blob
+         */
+        public static byte[] readBlob(String hash){
+            File file = getHashAsFile(hash);
+            if (!file.isFile()){
+                Promisor.prefetch(Collections.singleton(hash));
+            }
+            return readContents(file);
+        }
+
+        public static byte[] readBlob(ObjectId id){
+            return readBlob(id.toString());
+        }
+
+        private static File createEmptyBlobFile(String blob_sha){
             String head_name = getHashHead(blob_sha);  // get the first two char of the sha1 string
             String body_name = getHashBody(blob_sha);  // get the last n - 2 characters of the sha1 string
 
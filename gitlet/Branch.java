@@ -11,10 +11,12 @@ import static gitlet.Utils.*;
  */
 public class Branch implements Dumpable, Comparable {
 
+    private static final long serialVersionUID = 1L;
+
     // current commit being referenced by the Master node
 
     // referehce to the head commit
-    private String ref = null;
+    private ObjectId ref = null;
     private String name;
     private static final File BRANCH_DIR = join(Repository.GITLET_DIR, "refs", "heads");
 
@@ -56,19 +58,28 @@ public class Branch implements Dumpable, Comparable {
     public static Branch getBranch(String name){
         File file = join(BRANCH_DIR, name);
         if(!file.isFile()){
-            exitWithError("A branch with that name does not exist.", 0);
+            throw new GitletException.NotFoundException("A branch with that name does not exist.");
         }
         return readObjectFromFile(file, Branch.class);
     }
 
 
 
+    /**
+     * Set the active commit of the given branch without saving the branch
+     * @param commit - Commit Id
+     */
+    void setRef(String commit){
+        this.ref = ObjectId.parse(commit);
+    }
+
+
     /**
      * Set the active commit of the given branch
      * @param commit - Commit Id
      */
     public void updateRef(String commit){
-        this.ref = commit;
+        this.ref = ObjectId.parse(commit);
         this.saveToFile();
     }
 
@@ -76,14 +87,55 @@ public class Branch implements Dumpable, Comparable {
     // saves branch object to the object tree in the repository
     public void saveToFile(){
         File branchFile = join(BRANCH_DIR, this.name);
+        try (RefLock lock = RefLock.acquire(branchFile)) {
+            lock.commit(serialize(this));
+        }
+    }
+
+
+    /**
+     * Moves the branch to a commit only if it still points at the expected commit. The check and the update
+     * happen under the lock file of the branch, so of two writers expecting the same commit only one succeeds.
+     * @param expected - the commit the branch must point at, null if the branch must not exist yet
+     * @param commit - the commit id to move the branch to
+     * @return - true if the branch was moved, false if it points at another commit
+     */
+    public boolean compareAndSetRef(String expected, String commit){
+        File branchFile = join(BRANCH_DIR, this.name);
+        try (RefLock lock = RefLock.acquire(branchFile)) {
+            ObjectId current = branchFile.isFile() ? readObjectFromFile(branchFile, Branch.class).ref : null;
+            if (!Objects.equals(current, ObjectId.parse(expected))){
+                return false;
+            }
+            this.ref = ObjectId.parse(commit);
+            lock.commit(serialize(this));
+            return true;
+        }
+    }
+
+
+    /**
+     * Deletes the branch only if it still points at the expected commit, under the lock file of the branch
+     * (see compareAndSetRef).
+     * @param expected - the commit the branch must point at, null if the branch must not exist
+     * @return - true if the branch was deleted (or did not exist and was not expected to), false if it points
+     *           at another commit
+     */
+    public boolean compareAndRemove(String expected){
+        File branchFile = join(BRANCH_DIR, this.name);
+        RefLock lock = RefLock.acquire(branchFile);
         try{
-            if(!branchFile.isFile()){
-            branchFile.createNewFile();
+            ObjectId current = branchFile.isFile() ? readObjectFromFile(branchFile, Branch.class).ref : null;
+            if (!Objects.equals(current, ObjectId.parse(expected))){
+                return false;
             }
-        }catch (IOException e){
-            exitWithError("Could not create branch " + this.name, 0);
+            if (current != null && !branchFile.delete()){
+                throw error("Could not delete branch %s", this.name);
+            }
+            return true;
+        }finally{
+            lock.close();
         }
-        writeObject(branchFile, this);
     }
 
 
@@ -114,19 +166,28 @@ public class Branch implements Dumpable, Comparable {
             exitWithError("Cannot merge a branch with itself.", 0);
         }
 
-        Commit splitCommit = this.getSplit(branchName);
-        Commit givenBranchCommit =  Commit.getCommit(givenBranch.ref);
+        Commit splitCommit;
+        Perf.Phase splitPhase = Perf.phase("merge.split");
+        try{
+            splitCommit = this.getSplit(branchName);
+        }finally{
+            splitPhase.close();
+        }
+        Commit givenBranchCommit =  Commit.getCommit(givenBranch.getRef());
         Commit activeCommit = Commit.getActiveCommit();
 
         // check if there are untracked files in the active commit
 
         List<String> filesInDir = getPlaneFileNameInDir(Repository.CWD);
+        SparseCheckout sparse = SparseCheckout.readFromFile();
         for (String file : filesInDir){
+            if (activeCommit.getContent().containsKey(file) && !sparse.matches(file)){
+                continue;
+            }
             if (!activeCommit.getContent().containsKey(file)){
                 exitWithError("There is an untracked or Modified file in the way; delete it, or add and commit it first.", 0);
             }
-            Blob blob = new Blob(file);
-            if (!blob.getHash().equals(activeCommit.getContent().get(file))){
+            if (!activeCommit.getContent().hasId(file, HashAlgorithm.current().fileId(join(Repository.CWD, file)))){
                 exitWithError("There is an untracked or Modified file in the way; delete it, or add and commit it first.", 0);
             }
         }
@@ -145,57 +206,82 @@ public class Branch implements Dumpable, Comparable {
 
         // ACTUAL IMPLEMENTATION OF THE METHOD
 
-        HashMap<String, String> splitContent = splitCommit.getContent();
-        HashMap<String, String> activeContent = activeCommit.getContent();
-        HashMap<String, String> givenBranchContent = givenBranchCommit.getContent();
+        Manifest splitContent = splitCommit.getContent();
+        Manifest activeContent = activeCommit.getContent();
+        Manifest givenBranchContent = givenBranchCommit.getContent();
 
-        // TO BE COMPLETE
+        // Plan the change of every path from the three manifests, then apply them all and stage them at once
+        MergePlan plan;
+        boolean conflict;
+        Perf.Phase planPhase = Perf.phase("merge.plan");
+        try{
+            plan = MergePlan.compute(splitContent, activeContent, givenBranchContent);
+        }finally{
+            planPhase.close();
+        }
+        Perf.Phase applyPhase = Perf.phase("merge.apply");
+        try{
+            conflict = plan.execute(stageArea);
+        }finally{
+            applyPhase.close();
+        }
 
-        // Any files that have been modified in the given branch since the split point, but not modified in the current
-        // branch since the split point should be changed to their versions in the given branch
+        if (conflict){
+            System.out.println("Encountered a merge conflict.");
+        }
 
+        Repository.makeCommit("Merged " + givenBranch.name + " into " +  this.name);
 
 
-        // Any files that were not present at the split point and are present only in the given branch
-        // should be checked out and staged.
-        for (Map.Entry<String, String> file: givenBranchContent.entrySet()) {
-            if(!splitContent.containsKey(file.getKey()) && !activeContent.containsKey(file.getKey())){
-                Repository.checkoutFileInCommit(givenBranchCommit.getCommitHash(), file.getKey());
-                Repository.add(file.getKey());
-            }
+    }
 
-        }
 
+    /**
+     * Merges the given branch into this branch without touching the working directory or the staging area.
+     * The merged content is computed from the three commits and the object folder only. If every file merges
+     * cleanly the result is saved as a candidate commit whose id is printed; no branch is moved. Otherwise the
+     * conflicting files are listed.
+     * @param branchName - name of the branch to merge into this one
+     */
+    public void mergeTree(String branchName){
+        Branch givenBranch = Branch.getBranch(branchName);
+        if (this.name.equals(branchName)){
+            exitWithError("Cannot merge a branch with itself.", 0);
+        }
 
-        // Any files present at the split point, unmodified in the current branch,
-        // and absent in the given branch should be removed (and untracked).
-        for (Map.Entry<String, String> file: splitContent.entrySet()) {
+        Commit splitCommit = this.getSplit(branchName);
+        Commit givenBranchCommit = Commit.getCommit(givenBranch.getRef());
+        Commit activeCommit = Commit.getCommit(getRef());
 
-            if(activeContent.containsKey(file.getKey()) &&
-                    activeContent.get(file.getKey()).equals(file.getValue()) &&
-                    !givenBranchContent.containsKey(file.getKey())){
-                Repository.rm(file.getKey());
-            }
+        // the merge of a branch with one of its ancestors is simply the most recent of the two commits
+        if (splitCommit.compareTo(givenBranchCommit) > -1){
+            System.out.println(getRef());
+            return;
+        }
+        if (splitCommit.compareTo(activeCommit) > -1){
+            System.out.println(givenBranch.getRef());
+            return;
+        }
 
-            // Handle merge conflic if file in the current branch has different content from file in the given branch
-            if (activeContent.containsKey(file.getKey()) && givenBranchContent.containsKey(file.getKey())){
-                if (!activeContent.get(file.getValue())
-                        .equals(givenBranchContent.get(file.getValue()))){
-                    File fileObj = join(Repository.CWD, file.getKey());
-                    writeContents(fileObj, "<<<<<<< HEAD\n" +
-                            "contents of " + file.getKey() + " in current branch\n" +
-                            "=======\n" +
-                            "contents of " + file.getKey() + "  in given branch\n" +
-                            ">>>>>>>");
-                    System.out.println("Encountered a merge conflict.");
-
-                }
+        MergePlan plan = MergePlan.compute(splitCommit.getContent(), activeCommit.getContent(),
+                givenBranchCommit.getContent());
+        List<String> conflicts = new ArrayList<>();
+        Transaction transaction = new Transaction();
+        Manifest merged = plan.executeInMemory(activeCommit.getContent(), conflicts, transaction);
+        if (!conflicts.isEmpty()){
+            transaction.abort();
+            for (String path : conflicts){
+                System.out.println("CONFLICT (content): " + path);
             }
+            exitWithError("Encountered a merge conflict.", 1);
         }
 
-        Repository.makeCommit("Merged " + givenBranch.name + " into " +  this.name);
-
-
+        Commit commit = new Commit("Merged " + givenBranch.name + " into " + this.name, getRef());
+        commit.setContent(merged);
+        String commitHash = hashObj(commit);
+        commit.saveToFile(commitHash, transaction);
+        transaction.commit();
+        System.out.println(commitHash);
     }
 
 
@@ -210,31 +296,31 @@ public class Branch implements Dumpable, Comparable {
      */
     public Commit getSplit(String branchName){
 
-        HashSet<String> commitSet = new HashSet<>();
+        HashSet<ObjectId> commitSet = new HashSet<>();
         Commit current = Commit.getActiveCommit();
-        commitSet.add(this.ref); // adding the first commit id to the commit set
+        commitSet.add(getRefId()); // adding the first commit id to the commit set
 
         // add all the commit id in current branch to commitSet
-        while(current.getParent()!=null) {
-            commitSet.add(current.getParent());
-            current= readObjectFromFile(getHashAsFile(current.getParent()), Commit.class);
+        while(current.getParentId()!=null) {
+            commitSet.add(current.getParentId());
+            current= Commit.getCommit(current.getParentId());
+            Perf.commitTraversed();
         }
 
         // add all the commit id in the given branch to the commitSet
         Branch givenBranch = Branch.getBranch(branchName);
-        Commit headCommit =  Commit.getCommit(givenBranch.ref);
+        Commit headCommit =  Commit.getCommit(givenBranch.getRefId());
 
-        if(!commitSet.add(givenBranch.ref)){
-            return Commit.getCommit(givenBranch.ref);
+        if(!commitSet.add(givenBranch.getRefId())){
+            return headCommit;
         }
 
-        while(headCommit.getParent()!=null) {
-            if(!commitSet.add(headCommit.getParent())){
-                return Commit.getCommit(headCommit.getParent());
+        while(headCommit.getParentId()!=null) {
+            if(!commitSet.add(headCommit.getParentId())){
+                return Commit.getCommit(headCommit.getParentId());
             }
-            headCommit= readObjectFromFile(getHashAsFile(headCommit.getParent()), Commit.class);
-
-            current= readObjectFromFile(getHashAsFile(headCommit.getParent()), Commit.class);
+            headCommit= Commit.getCommit(headCommit.getParentId());
+            Perf.commitTraversed();
         }
 
         return null;
@@ -248,6 +334,10 @@ public class Branch implements Dumpable, Comparable {
 
 
     public String getRef(){
+        return ObjectId.format(ref);
+    }
+
+    public ObjectId getRefId(){
         return ref;
     }
 
@@ -0,0 +1,408 @@
+package gitlet;
+
+import java.io.*;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static gitlet.Utils.*;
+
+/**
+ * This class moves history between repositories that cannot reach each other through a single file, a bundle.
+ *
+ *  bundle create FILE BRANCH... [--base COMMIT]...   writes the commits and blobs of the branches to FILE, except
+ *                                                    those reachable from the base commits (branch names or ids)
+ *  bundle unbundle FILE                              adds the objects of FILE to the repository and points the
+ *                                                    branch bundle/NAME at every branch NAME of the bundle
+ *
+ * Format:
+ *  "GLBD", version (int)
+ *  number of refs (int), then the name (UTF) and commit (UTF) of each
+ *  number of prerequisites (int), then each commit (UTF): the commits the bundle builds on, which the receiving
+ *  repository must already have
+ *  for every object, in the order of a pack (see Pack.Builder): type (byte), id (UTF), length (int), compressed
+ *  length (int), content compressed with Deflater
+ *  END (byte)
+ *  SHA-1 of everything before (20 bytes)
+ *
+ * create reads every object once and writes it as soon as it is compressed, so memory use is bounded by the
+ * largest object. Objects are compressed one by one so that unbundle can inflate and verify them on every core
+ * while one thread reads the file and hands the objects, in order, to a transaction; the objects are published
+ * only once the checksum of the whole file matched.
+ */
+public class Bundle {
+
+    public static final String BRANCH_PREFIX = "bundle";
+
+    private static final byte[] MAGIC = {'G', 'L', 'B', 'D'};
+    // 2 since commits and branches store their ids as bytes (see Repository.FORMAT_VERSION)
+    private static final int VERSION = 2;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // the largest object a bundle may hold; lengths are read before the checksum is checked
+    private static final int MAX_OBJECT_SIZE = 1 << 30;
+
+
+    /**
+     * Handles the bundle command.
+     * @param args - command line arguments
+     */
+    public static void bundle(String[] args){
+        if (args.length >= 4 && args[1].equals("create")){
+            create(args);
+        }else if (args.length == 3 && args[1].equals("unbundle")){
+            unbundle(new File(args[2]));
+        }else{
+            exitWithError("Usage: bundle create FILE BRANCH... [--base COMMIT]... | bundle unbundle FILE", 0);
+        }
+    }
+
+
+    /**
+     * Writes a bundle of branches.
+     * @param args - bundle create FILE BRANCH... [--base COMMIT]...
+     */
+    private static void create(String[] args){
+        File file = new File(args[2]);
+        LinkedHashMap<String, String> refs = new LinkedHashMap<>();
+        HashSet<String> bases = new HashSet<>();
+        for (int i = 3; i < args.length; i++){
+            if (args[i].equals("--base")){
+                if (++i == args.length){
+                    exitWithError("Missing commit after --base", 0);
+                }
+                bases.add(resolve(args[i]));
+            }else{
+                refs.put(args[i], Branch.getBranch(args[i]).getRef());
+            }
+        }
+        if (refs.isEmpty()){
+            exitWithError("Please name at least one branch to bundle.", 0);
+        }
+
+        Pack.Builder pack = new Pack.Builder(Commit.OBJECT_FOLDER);
+        LinkedHashSet<String> prerequisites = new LinkedHashSet<>();
+        Perf.Phase selectPhase = Perf.phase("bundle.select");
+        try{
+            for (String commit : refs.values()){
+                List<String> commits = withoutBaseHistory(pack.walk(commit, bases::contains), bases);
+                if (!commits.isEmpty()){
+                    String parent = Commit.getCommit(commits.get(0)).getParent();
+                    if (parent != null && !pack.isListed(parent)){
+                        prerequisites.add(parent);
+                    }
+                }
+                pack.add(commits, id -> false);
+            }
+        }finally{
+            selectPhase.close();
+        }
+
+        Promisor.prefetchEntries(pack.getEntries());
+        long bytes;
+        Perf.Phase writePhase = Perf.phase("bundle.write");
+        try{
+            bytes = write(file, refs, prerequisites, pack.getEntries());
+        }finally{
+            writePhase.close();
+        }
+        System.out.printf("Bundled %d commits and %d blobs of %d branches in %s (%d bytes).%n",
+                pack.getCommitCount(), pack.getBlobCount(), refs.size(), file.getPath(), bytes);
+    }
+
+
+    /**
+     * returns the commit a base names: a branch, or else a commit id
+     */
+    private static String resolve(String base){
+        if (new Branch(base).exist()){
+            return Branch.getBranch(base).getRef();
+        }
+        if (base.length() != HashAlgorithm.current().getHexLength() || !getHashAsFile(base).isFile()){
+            exitWithError("No commit with that id exists.", 0);
+        }
+        return base;
+    }
+
+
+    /**
+     * Removes the commits reachable from a base from the commits walked from a branch. A walk stops at a base,
+     * so there is nothing to remove unless it went down to the initial commit; then the history of every base
+     * is walked down to the first commit shared with the branch.
+     * @param commits - the commits walked, oldest first
+     * @param bases - the base commits
+     * @return - the commits not reachable from any base, oldest first
+     */
+    private static List<String> withoutBaseHistory(List<String> commits, Set<String> bases){
+        if (bases.isEmpty() || commits.isEmpty() || Commit.getCommit(commits.get(0)).getParent() != null){
+            return commits;
+        }
+        HashMap<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < commits.size(); i++){
+            positions.put(commits.get(i), i);
+        }
+        int shared = -1;
+        for (String base : bases){
+            for (String id = base; id != null; id = Commit.getCommit(id).getParent()){
+                Integer position = positions.get(id);
+                if (position != null){
+                    shared = Math.max(shared, position);
+                    break;
+                }
+                Perf.commitTraversed();
+            }
+        }
+        return commits.subList(shared + 1, commits.size());
+    }
+
+
+    /**
+     * Writes a bundle file. The file is removed if writing fails.
+     * @return - the size of the bundle
+     */
+    private static long write(File file, Map<String, String> refs, Set<String> prerequisites,
+                              List<Pack.Entry> entries){
+        MessageDigest digest = Pack.newDigest();
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try (BufferedOutputStream buffered = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE)) {
+            DataOutputStream data = new DataOutputStream(new DigestOutputStream(buffered, digest));
+            data.write(MAGIC);
+            data.writeInt(VERSION);
+            data.writeInt(refs.size());
+            for (Map.Entry<String, String> ref : refs.entrySet()){
+                data.writeUTF(ref.getKey());
+                data.writeUTF(ref.getValue());
+            }
+            data.writeInt(prerequisites.size());
+            for (String commit : prerequisites){
+                data.writeUTF(commit);
+            }
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            for (Pack.Entry entry : entries){
+                byte[] content = readContents(getHashAsFile(entry.id));
+                if (content.length > MAX_OBJECT_SIZE){
+                    throw error("Object %s is too large for a bundle", entry.id);
+                }
+                deflater.reset();
+                deflater.setInput(content);
+                deflater.finish();
+                compressed.reset();
+                while (!deflater.finished()){
+                    compressed.write(buffer, 0, deflater.deflate(buffer));
+                }
+                data.writeByte(entry.type);
+                data.writeUTF(entry.id);
+                data.writeInt(content.length);
+                data.writeInt(compressed.size());
+                compressed.writeTo(data);
+            }
+            data.writeByte(Pack.END);
+            data.flush();
+            buffered.write(digest.digest());
+        }catch (IOException e){
+            file.delete();
+            throw error("Could not write %s: %s", file.getPath(), e.getMessage());
+        }finally{
+            deflater.end();
+        }
+        return file.length();
+    }
+
+
+    /**
+     * Adds the objects of a bundle to the repository and creates or moves the branches bundle/NAME.
+     * @param file - the bundle
+     */
+    private static void unbundle(File file){
+        if (!file.isFile()){
+            exitWithError("No bundle at " + file.getPath(), 0);
+        }
+        LinkedHashMap<String, String> refs = new LinkedHashMap<>();
+        int count;
+        Perf.Phase readPhase = Perf.phase("bundle.read");
+        try (InputStream in = new FileInputStream(file)) {
+            count = read(in, refs);
+        }catch (IOException e){
+            throw error("Could not read %s: %s", file.getPath(), e.getMessage());
+        }finally{
+            readPhase.close();
+        }
+
+        for (Map.Entry<String, String> ref : refs.entrySet()){
+            Branch branch = new Branch(BRANCH_PREFIX + "/" + ref.getKey());
+            join(Repository.GITLET_DIR, "refs", "heads", branch.getName()).getParentFile().mkdirs();
+            String current = branch.exist() ? Branch.getBranch(branch.getName()).getRef() : null;
+            if (!branch.compareAndSetRef(current, ref.getValue())){
+                throw new GitletException.ConcurrentUpdateException("Branch " + branch.getName()
+                        + " was changed by another command while unbundling; unbundle again.");
+            }
+        }
+        System.out.println("Unbundled " + count + " objects.");
+        for (Map.Entry<String, String> ref : refs.entrySet()){
+            System.out.println(ref.getValue() + " " + BRANCH_PREFIX + "/" + ref.getKey());
+        }
+    }
+
+
+    /**
+     * Reads a bundle: checks its prerequisites, inflates and verifies its objects in parallel and publishes them
+     * once the checksum matched. Nothing is published if the bundle is corrupt or truncated.
+     * @param in - the bundle
+     * @param refs - receives the branches of the bundle
+     * @return - the number of objects read
+     */
+    static int read(InputStream in, Map<String, String> refs) throws IOException {
+        MessageDigest digest = Pack.newDigest();
+        BufferedInputStream buffered = new BufferedInputStream(in, BUFFER_SIZE);
+        DataInputStream data = new DataInputStream(new DigestInputStream(buffered, digest));
+        Transaction transaction = new Transaction();
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "gitlet-unbundle");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // objects being inflated, oldest first; at most a few per thread are kept in memory
+        ArrayDeque<Future<byte[]>> inflating = new ArrayDeque<>();
+        ArrayDeque<String> ids = new ArrayDeque<>();
+        HashSet<String> commits = new HashSet<>();
+        int count = 0;
+        try{
+            byte[] magic = new byte[MAGIC.length];
+            data.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)){
+                throw error("Not a gitlet bundle");
+            }
+            int version = data.readInt();
+            if (version != VERSION){
+                throw error("The bundle uses format version %d; this version of gitlet only reads version %d",
+                        version, VERSION);
+            }
+            for (int i = data.readInt(); i > 0; i--){
+                String name = data.readUTF();
+                String commit = data.readUTF();
+                if (name.isEmpty() || name.startsWith("/") || name.contains("..") || name.endsWith(RefLock.SUFFIX)){
+                    throw error("Corrupt bundle: bad branch name %s", name);
+                }
+                Pack.checkEntry(Pack.COMMIT, commit);
+                refs.put(name, commit);
+            }
+            for (int i = data.readInt(); i > 0; i--){
+                String commit = data.readUTF();
+                Pack.checkEntry(Pack.COMMIT, commit);
+                if (!getHashAsFile(commit).isFile()){
+                    exitWithError("The bundle requires commit " + commit + ", which this repository does not have.",
+                            0);
+                }
+            }
+            for (byte type = data.readByte(); type != Pack.END; type = data.readByte()){
+                String id = data.readUTF();
+                Pack.checkEntry(type, id);
+                if (type == Pack.COMMIT){
+                    commits.add(id);
+                }
+                int length = data.readInt();
+                int compressedLength = data.readInt();
+                if (length < 0 || length > MAX_OBJECT_SIZE || compressedLength < 0
+                        || compressedLength > maxCompressedLength(length)){
+                    throw error("Corrupt bundle: object %s has a bad length", id);
+                }
+                // read in chunks, so a truncated bundle does not allocate the announced length up front
+                byte[] compressed = data.readNBytes(compressedLength);
+                if (compressed.length != compressedLength){
+                    throw new EOFException();
+                }
+                byte entryType = type;
+                inflating.add(pool.submit(() -> inflate(entryType, id, compressed, length)));
+                ids.add(id);
+                if (inflating.size() >= 4 * threads){
+                    transaction.writeObject(ids.remove(), await(inflating.remove()));
+                    count++;
+                }
+            }
+            while (!inflating.isEmpty()){
+                transaction.writeObject(ids.remove(), await(inflating.remove()));
+                count++;
+            }
+            byte[] expected = digest.digest();
+            byte[] checksum = new byte[expected.length];
+            new DataInputStream(buffered).readFully(checksum);
+            if (!MessageDigest.isEqual(expected, checksum)){
+                throw error("Corrupt bundle: checksum mismatch");
+            }
+            for (String commit : refs.values()){
+                if (!commits.contains(commit) && !getHashAsFile(commit).isFile()){
+                    throw error("Corrupt bundle: branch points at missing commit %s", commit);
+                }
+            }
+        }catch (EOFException e){
+            transaction.abort();
+            throw error("Corrupt bundle: truncated after %d objects", count);
+        }catch (IOException | RuntimeException e){
+            transaction.abort();
+            throw e;
+        }finally{
+            pool.shutdownNow();
+        }
+        transaction.commit();
+        return count;
+    }
+
+
+    /**
+     * returns the largest size Deflater can compress an object of the given length to (see zlib deflateBound)
+     */
+    private static long maxCompressedLength(int length){
+        return length + (length >> 12) + (length >> 14) + (length >> 25) + 64L;
+    }
+
+
+    /**
+     * inflates and verifies one object of a bundle
+     */
+    private static byte[] inflate(byte type, String id, byte[] compressed, int length){
+        Inflater inflater = new Inflater();
+        try{
+            byte[] content = new byte[length];
+            inflater.setInput(compressed);
+            // a byte past the expected length tells an object longer than announced from a complete one
+            byte[] extra = new byte[1];
+            int read = 0;
+            while (!inflater.finished()){
+                int n = read < length ? inflater.inflate(content, read, length - read) : inflater.inflate(extra);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())){
+                    break;
+                }
+                read += n;
+            }
+            if (read != length || !inflater.finished()){
+                throw error("Corrupt bundle: object %s has the wrong length", id);
+            }
+            Pack.verify(type, id, content);
+            return content;
+        }catch (DataFormatException e){
+            throw error("Corrupt bundle: object %s cannot be inflated", id);
+        }finally{
+            inflater.end();
+        }
+    }
+
+    private static byte[] await(Future<byte[]> object){
+        try{
+            return object.get();
+        }catch (ExecutionException e){
+            if (e.getCause() instanceof RuntimeException){
+                throw (RuntimeException) e.getCause();
+            }
+            throw error("Could not read an object: %s", e.getCause());
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw error("Interrupted while unbundling");
+        }
+    }
+}
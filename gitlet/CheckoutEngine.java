@@ -0,0 +1,336 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static gitlet.Utils.*;
+
+/**
+ * This class writes blobs from the object folder into the working directory on several threads.
+ * Reader threads hand the blobs to writer threads through a bounded queue; the total size of the blobs waiting
+ * in the queue is capped, so memory use does not depend on the size of the checkout.
+ * The checkout.mode setting selects how a blob becomes a working file:
+ *  transfer (default) - readers check the object file, writers copy it with FileChannel.transferTo, without
+ *                       going through the heap.
+ *  copy - readers load the content of the blob and writers write it.
+ *  hardlink - readers make the object file read-only, writers hard link the working file to it. Falls back to
+ *             transfer when the link cannot be created (for example across file systems).
+ * The number of threads is read from the checkout.threads setting (defaults to the number of processors),
+ * and checkout.stats=true prints the throughput of every checkout.
+ */
+public class CheckoutEngine {
+
+    public static final String THREADS_KEY = "checkout.threads";
+    public static final String STATS_KEY = "checkout.stats";
+    public static final String MODE_KEY = "checkout.mode";
+
+    public enum Mode { TRANSFER, COPY, HARDLINK }
+
+    // maximum number of bytes read but not yet written
+    private static final int MAX_PENDING_BYTES = 64 * 1024 * 1024;
+    private static final Item DONE = new Item(null, null, null);
+
+    private final int threads;
+    private final int readers;
+    private final int writers;
+    private final boolean printStats;
+    private final Mode mode;
+
+
+    public CheckoutEngine(int threads, boolean printStats, Mode mode){
+        this.threads = Math.max(1, threads);
+        this.readers = Math.max(1, this.threads / 2);
+        this.writers = Math.max(1, this.threads - readers);
+        this.printStats = printStats;
+        this.mode = mode;
+    }
+
+
+    /**
+     * returns an engine configured from the repository configuration
+     */
+    public static CheckoutEngine fromConfig(){
+        Config config = Config.readFromFile();
+        int threads = config.getInt(THREADS_KEY, Runtime.getRuntime().availableProcessors());
+        String mode = config.get(MODE_KEY, Mode.TRANSFER.name()).toUpperCase(Locale.ROOT);
+        try{
+            return new CheckoutEngine(threads, config.getBoolean(STATS_KEY), Mode.valueOf(mode));
+        }catch (IllegalArgumentException e){
+            throw error("Config %s must be transfer, copy or hardlink", MODE_KEY);
+        }
+    }
+
+
+    /**
+     * Writes every given file into the working directory.
+     * @param files - path of each file mapped to the id of the blob to write there
+     * @return - the throughput of the checkout
+     */
+    public Stats checkout(Map<String, String> files){
+        long start = System.nanoTime();
+        Promisor.prefetch(files.values());
+        List<Map.Entry<String, String>> entries = new ArrayList<>(files.entrySet());
+        long bytes;
+        if (entries.size() <= 1 || threads == 1){
+            bytes = 0;
+            for (Map.Entry<String, String> file : entries){
+                bytes += write(read(file));
+            }
+        }else{
+            bytes = runPipeline(entries);
+        }
+        Stats stats = new Stats(entries.size(), bytes, System.nanoTime() - start);
+        if (printStats){
+            System.out.println(stats);
+        }
+        return stats;
+    }
+
+
+    /**
+     * Runs the reader and writer threads until every file is written.
+     * @return - the number of bytes written
+     */
+    private long runPipeline(List<Map.Entry<String, String>> entries){
+        BlockingQueue<Item> queue = new ArrayBlockingQueue<>(4 * writers);
+        Semaphore pendingBytes = new Semaphore(MAX_PENDING_BYTES);
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger readersLeft = new AtomicInteger(readers);
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        long[] written = new long[writers];
+        List<Thread> threads = new ArrayList<>();
+
+        for (int r = 0; r < readers; r++){
+            threads.add(new Thread(() -> {
+                try{
+                    int i;
+                    while (failure.get() == null && (i = next.getAndIncrement()) < entries.size()){
+                        Item item = read(entries.get(i));
+                        pendingBytes.acquire(permits(item));
+                        queue.put(item);
+                    }
+                }catch (InterruptedException e){
+                    failure.compareAndSet(null, error("Checkout interrupted"));
+                }catch (RuntimeException e){
+                    failure.compareAndSet(null, e);
+                }finally{
+                    if (readersLeft.decrementAndGet() == 0){
+                        finish(queue);
+                    }
+                }
+            }, "checkout-reader-" + r));
+        }
+        for (int w = 0; w < writers; w++){
+            int writer = w;
+            threads.add(new Thread(() -> {
+                try{
+                    Item item;
+                    while ((item = queue.take()) != DONE){
+                        try{
+                            if (failure.get() == null){
+                                written[writer] += write(item);
+                            }
+                        }finally{
+                            pendingBytes.release(permits(item));
+                        }
+                    }
+                }catch (InterruptedException e){
+                    failure.compareAndSet(null, error("Checkout interrupted"));
+                }catch (RuntimeException e){
+                    failure.compareAndSet(null, e);
+                    // keep draining the queue so that readers blocked on it can finish
+                    drain(queue, pendingBytes);
+                }
+            }, "checkout-writer-" + w));
+        }
+
+        for (Thread thread : threads){
+            thread.start();
+        }
+        try{
+            for (Thread thread : threads){
+                thread.join();
+            }
+        }catch (InterruptedException e){
+            throw error("Checkout interrupted");
+        }
+        if (failure.get() != null){
+            throw failure.get();
+        }
+        long bytes = 0;
+        for (long count : written){
+            bytes += count;
+        }
+        return bytes;
+    }
+
+    /**
+     * The reader stage: loads the content of a blob in copy mode, otherwise only checks its object file, and
+     * makes it read-only before it is hard linked.
+     * @param file - path of the working file mapped to the id of its blob
+     * @return - the item to hand to a writer
+     */
+    private Item read(Map.Entry<String, String> file){
+        File object = getHashAsFile(file.getValue());
+        if (mode == Mode.COPY){
+            return new Item(file.getKey(), Blob.readBlob(file.getValue()), object);
+        }
+        if (!object.isFile()){
+            throw error("Missing object %s", object.getName());
+        }
+        if (mode == Mode.HARDLINK){
+            object.setWritable(false, false);
+        }
+        return new Item(file.getKey(), null, object);
+    }
+
+    /**
+     * The writer stage: creates one working file, from the content read or from the object file, either as a
+     * hard link or with FileChannel.transferTo.
+     * @return - the size of the file
+     */
+    private long write(Item item){
+        File target = join(Repository.CWD, item.path);
+        if (item.content != null){
+            writeContents(target, item.content);
+            return item.content.length;
+        }
+        if (mode == Mode.HARDLINK){
+            try{
+                Files.deleteIfExists(target.toPath());
+                Files.createLink(target.toPath(), item.object.toPath());
+                return item.object.length();
+            }catch (IOException | UnsupportedOperationException e){
+                // not supported here (e.g. different file systems): copy the file instead
+            }
+        }
+        return transferContents(item.object, target);
+    }
+
+
+    /**
+     * Copies a file into another one with FileChannel.transferTo, so the bytes never enter the heap.
+     * Like Utils.writeContents, the copy is written to a new file renamed over the target, so a target hard
+     * linked to an object is replaced, not modified.
+     * @return - the number of bytes copied
+     */
+    public static long transferContents(File from, File to){
+        File temp = tempFileFor(to);
+        long size;
+        try (FileChannel in = FileChannel.open(from.toPath(), StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(temp.toPath(), StandardOpenOption.WRITE,
+                     StandardOpenOption.CREATE_NEW)) {
+            size = in.size();
+            long position = 0;
+            while (position < size){
+                position += in.transferTo(position, size - position, out);
+            }
+        }catch (IOException e){
+            temp.delete();
+            throw error("Could not write %s: %s", to.getName(), e.getMessage());
+        }
+        Transaction.moveAtomically(temp, to);
+        return size;
+    }
+
+
+    /**
+     * Tells every writer thread that no more blobs are coming.
+     */
+    private void finish(BlockingQueue<Item> queue){
+        try{
+            for (int w = 0; w < writers; w++){
+                queue.put(DONE);
+            }
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void drain(BlockingQueue<Item> queue, Semaphore pendingBytes){
+        try{
+            Item item;
+            while ((item = queue.take()) != DONE){
+                pendingBytes.release(permits(item));
+            }
+        }catch (InterruptedException ignored){
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * returns the number of byte permits a blob holds while it waits in the queue. A blob larger than the
+     * whole budget takes the whole budget, so it is written alone. A blob that was not loaded takes one.
+     */
+    private static int permits(Item item){
+        return item.content == null ? 1 : Math.min(Math.max(1, item.content.length), MAX_PENDING_BYTES);
+    }
+
+
+    /**
+     * A blob read by a reader thread and waiting to be written to path. The content is only loaded in copy mode.
+     */
+    private static class Item {
+
+        private final String path;
+        private final byte[] content;
+        private final File object;
+
+        private Item(String path, byte[] content, File object){
+            this.path = path;
+            this.content = content;
+            this.object = object;
+        }
+    }
+
+
+    /**
+     * The number of files and bytes written by a checkout, and the time it took.
+     */
+    public static class Stats {
+
+        private final int files;
+        private final long bytes;
+        private final long nanos;
+
+        private Stats(int files, long bytes, long nanos){
+            this.files = files;
+            this.bytes = bytes;
+            this.nanos = nanos;
+        }
+
+        public int getFiles(){
+            return files;
+        }
+
+        public long getBytes(){
+            return bytes;
+        }
+
+        public double filesPerSecond(){
+            return nanos == 0 ? 0 : files * 1e9 / nanos;
+        }
+
+        public double megabytesPerSecond(){
+            return nanos == 0 ? 0 : bytes * 1e9 / nanos / (1024 * 1024);
+        }
+
+        @Override
+        public String toString(){
+            return String.format("Checked out %d files (%.1f MB) in %.1f ms: %.0f files/s, %.1f MB/s",
+                    files, bytes / (1024.0 * 1024.0), nanos / 1e6, filesPerSecond(), megabytesPerSecond());
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package gitlet;
+
+import java.io.File;
+import java.util.*;
+
+import static gitlet.Utils.*;
+
+/**
+ * This class represents the changes needed to move the working directory from one commit to another.
+ * The two manifests are walked side by side in path order and compared by their packed blob ids, so files that
+ * are the same in both commits are never read, hashed or rewritten; they are only written again when their
+ * working file is missing from the listing of the working directory, which is read once per plan. Only the ids
+ * the checkout writes are formatted, for the checkout engine. Only the paths the checkout writes or deletes are
+ * checked for local changes.
+ * Files outside of the sparse checkout patterns are neither written nor checked.
+ */
+public class CheckoutPlan {
+
+    /*
+     * writes - files added or changed in the target commit, or missing from the working directory, mapped to
+     *          their blob id in the target commit.
+     * deletes - files tracked by the current commit and absent from the target commit.
+     */
+    private final TreeMap<String, String> writes = new TreeMap<>();
+    private final TreeSet<String> deletes = new TreeSet<>();
+    private final Manifest current;
+    private final Set<String> filesInDir;
+
+
+    private CheckoutPlan(Manifest current, Set<String> filesInDir){
+        this.current = current;
+        this.filesInDir = filesInDir;
+    }
+
+
+    /**
+     * Compares the content of the current commit with the content of the target commit, against the files
+     * currently in the working directory.
+     * @param current - content of the commit the working directory is at
+     * @param target - content of the commit to checkout
+     * @return - the checkout plan
+     */
+    public static CheckoutPlan compute(Manifest current, Manifest target){
+        return compute(current, target, workingFiles());
+    }
+
+    /**
+     * Compares the content of the current commit with the content of the target commit. A file that is the
+     * same in both commits is written again only when it is missing from filesInDir, so it costs no file
+     * system call.
+     * @param current - content of the commit the working directory is at
+     * @param target - content of the commit to checkout
+     * @param filesInDir - names of the files in the working directory, see workingFiles
+     * @return - the checkout plan
+     */
+    public static CheckoutPlan compute(Manifest current, Manifest target, Set<String> filesInDir){
+        CheckoutPlan plan = new CheckoutPlan(current, filesInDir);
+        SparseCheckout sparse = SparseCheckout.readFromFile();
+        int i = 0;
+        int j = 0;
+        while (i < current.size() || j < target.size()){
+            int order = j == target.size() ? -1 : i == current.size() ? 1
+                    : current.pathAt(i).compareTo(target.pathAt(j));
+            if (order < 0){
+                // only tracked by the current commit
+                if (sparse.matches(current.pathAt(i))){
+                    plan.deletes.add(current.pathAt(i));
+                }
+                i++;
+                continue;
+            }
+            String file = target.pathAt(j);
+            if (sparse.matches(file) && (order > 0 || !current.sameIdAt(i, target, j)
+                    || !filesInDir.contains(file))){
+                plan.writes.put(file, target.idAt(j).toString());
+            }
+            if (order == 0){
+                i++;
+            }
+            j++;
+        }
+        return plan;
+    }
+
+
+    /**
+     * Exits with an error if the checkout would overwrite an untracked file or lose a local modification.
+     * Only the files the plan touches are hashed.
+     */
+    public void checkWorkingTree(){
+        for (String file : writes.keySet()){
+            if (filesInDir.contains(file) && !isUnchanged(file)){
+                throw new GitletException.DirtyWorkingTreeException(
+                        "There is an untracked or Modified file in the way; delete it, or add and commit it first.");
+            }
+        }
+        for (String file : deletes){
+            if (filesInDir.contains(file) && !isUnchanged(file)){
+                throw new GitletException.DirtyWorkingTreeException(
+                        "There is an untracked or Modified file in the way; delete it, or add and commit it first.");
+            }
+        }
+    }
+
+    /**
+     * returns the names of the files in the working directory, listed once
+     */
+    public static Set<String> workingFiles(){
+        HashSet<String> filesInDir = new HashSet<>();
+        List<String> files = getPlaneFileNameInDir(Repository.CWD);
+        if (files != null){
+            filesInDir.addAll(files);
+        }
+        return filesInDir;
+    }
+
+    /**
+     * returns true if the working file is tracked and identical to its version in the current commit
+     */
+    private boolean isUnchanged(String file){
+        ObjectId id = current.getId(file);
+        return id != null && id.equals(HashAlgorithm.current().fileId(join(Repository.CWD, file)));
+    }
+
+
+    /**
+     * Writes the added and changed files with the checkout engine and deletes the removed ones.
+     */
+    public void execute(){
+        Perf.Phase writePhase = Perf.phase("checkout.write");
+        try{
+            CheckoutEngine.fromConfig().checkout(writes);
+        }finally{
+            writePhase.close();
+        }
+        for (String file : deletes){
+            File fileObj = join(Repository.CWD, file);
+            if (fileObj.isFile()){
+                restrictDelete(fileObj);
+            }
+        }
+    }
+
+
+    public Map<String, String> getWrites(){
+        return writes;
+    }
+
+    public Set<String> getDeletes(){
+        return deletes;
+    }
+}
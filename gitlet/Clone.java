@@ -0,0 +1,141 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static gitlet.Utils.*;
+
+/**
+ * This class creates a repository in the working directory as a copy of another repository on the local
+ * filesystem, which becomes its remote "origin" (see Remote).
+ *
+ *  clone PATH [--blobless | --shared | --hardlink]
+ *
+ * Every branch of the remote is copied under the same name and its active branch is checked out. The objects
+ * come in one pack, selected like a fetch (see Pack.Builder), and the clone names them with the same hash
+ * algorithm (see HashAlgorithm).
+ * --blobless makes a partial clone: only the commits are copied, and the blobs are fetched from origin the
+ * first time an operation reads them (see Promisor), so a clone costs the current tree instead of the
+ * whole history.
+ * --shared copies no object: the object folder of origin becomes an alternate of the clone (see Alternates),
+ * so the clone costs its refs and working directory. Origin must then keep every object it has.
+ * --hardlink hard-links the object files of origin instead of copying them; objects are never modified in
+ * place, so both repositories can share the files. Objects that cannot be linked (another filesystem) are
+ * copied.
+ */
+public class Clone {
+
+    public static final String ORIGIN = "origin";
+
+
+    /**
+     * Handles the clone command.
+     * @param args - command line arguments
+     */
+    public static void cloneRepository(String[] args){
+        String mode = null;
+        String path = null;
+        for (int i = 1; i < args.length; i++){
+            if (args[i].equals("--blobless") || args[i].equals("--shared") || args[i].equals("--hardlink")){
+                if (mode != null){
+                    path = null;
+                    break;
+                }
+                mode = args[i];
+            }else if (path == null){
+                path = args[i];
+            }else{
+                path = null;
+                break;
+            }
+        }
+        if (path == null){
+            exitWithError("Usage: clone PATH [--blobless | --shared | --hardlink]", 0);
+        }
+        List<String> files = getPlaneFileNameInDir(Repository.CWD);
+        if (files != null && !files.isEmpty()){
+            exitWithError("The working directory must be empty to clone into it.", 0);
+        }
+
+        File source = Remote.resolve(path);
+        if (!join(source, "objects").isDirectory()){
+            exitWithError("Remote directory not found.", 0);
+        }
+        Repository.checkFormat(source);
+        Repository.setUpFolderStructure();
+        HashAlgorithm.use(HashAlgorithm.of(source));
+        new Index();
+        Remote.addRemote(ORIGIN, source.getPath());
+        File sourceObjects = join(source, "objects");
+        Map<String, String> branches = Remote.readBranches(source, false);
+        String active = readObjectFromFile(join(source, "refs", "heads", "HEAD"), Head.class).getRef();
+
+        boolean blobless = "--blobless".equals(mode);
+        Pack.Builder pack = new Pack.Builder(sourceObjects);
+        for (String commit : branches.values()){
+            pack.add(pack.walk(commit, id -> false), id -> blobless);
+        }
+        if ("--shared".equals(mode)){
+            Alternates.add(Commit.OBJECT_FOLDER, sourceObjects);
+        }else if ("--hardlink".equals(mode)){
+            link(sourceObjects, pack.getEntries());
+        }else{
+            Pack.copy(sourceObjects, pack.getEntries(), new Transaction());
+        }
+        if (blobless){
+            Config config = Config.readFromFile();
+            config.set(Promisor.REMOTE_KEY, ORIGIN);
+            config.saveToFile();
+        }
+
+        for (Map.Entry<String, String> branch : branches.entrySet()){
+            new Branch(branch.getKey()).updateRef(branch.getValue());
+        }
+        new Head().updateRef(active);
+        CheckoutEngine.fromConfig().checkout(Commit.getCommit(branches.get(active)).getContent());
+        System.out.println("Cloned " + pack.getCommitCount() + " commits and " + pack.getBlobCount()
+                + " blobs on " + branches.size() + " branches"
+                + (mode == null ? "." : " (" + mode.substring(2) + ")."));
+    }
+
+
+    /**
+     * Hard-links objects of another repository into the object folder, copying those that cannot be linked.
+     * @param sourceObjects - object folder of the other repository
+     * @param entries - the objects to link
+     */
+    private static void link(File sourceObjects, List<Pack.Entry> entries){
+        List<Pack.Entry> copies = new ArrayList<>();
+        Set<File> dirs = new HashSet<>();
+        Perf.Phase linkPhase = Perf.phase("clone.link");
+        try{
+            for (Pack.Entry entry : entries){
+                File target = getHashAsFile(entry.id);
+                File dir = target.getParentFile();
+                dir.mkdir();
+                try{
+                    Files.createLink(target.toPath(), getHashAsFile(sourceObjects, entry.id).toPath());
+                    dirs.add(dir);
+                }catch (IOException | UnsupportedOperationException e){
+                    copies.add(entry);
+                }
+            }
+            if (Transaction.isDurable()){
+                for (File dir : dirs){
+                    Transaction.forceDirectory(dir);
+                }
+            }
+        }finally{
+            linkPhase.close();
+        }
+        if (!copies.isEmpty()){
+            Pack.copy(sourceObjects, copies, new Transaction());
+        }
+    }
+}
@@ -17,16 +17,21 @@ import static gitlet.Utils.*;
  */
 public class Commit implements Dumpable, Comparable {
 
+    private static final long serialVersionUID = 1L;
+
     static final File OBJECT_FOLDER = join(Repository.GITLET_DIR, "objects"); // to be filled
     static final File REFS_FOLDER = join(Repository.GITLET_DIR, "refs"); // to be filled
 
+    // commits that lose the race for their branch this many times give up (see publish)
+    private static final int MAX_PUBLISH_ATTEMPTS = 10;
+
 
     private String message;
     private String timestamp;
-    private String parent;
+    private ObjectId parent;
     private String commitHash;
 
-    private HashMap<String, String> content = new HashMap<>();
+    private Manifest content = Manifest.EMPTY;
 
     /**
      * Constructor to create a new commit with given message
@@ -39,20 +44,31 @@ public class Commit implements Dumpable, Comparable {
     public  Commit(String message, String parent){
         this.message = message;
         this.timestamp = this.getCurrentTime();
-        this.parent = parent;
+        this.parent = ObjectId.parse(parent);
     }
 
 
     /**
-     * Clones the content of its parent commit
+     * Clones the content of its parent commit. The manifest is immutable, so it is shared rather than copied.
      * @param  Commit parent
      */
     public void cloneParentCommit(Commit parent){
-        for(Map.Entry<String, String> data : parent.content.entrySet()){
-            String filename = data.getKey();
-            String hash = data.getValue();
-            this.content.put(filename, hash);
-        }
+        this.content = parent.content;
+    }
+
+
+    /**
+     * Replaces the content of the commit, for commits whose content is computed (merges, generated histories)
+     * @param content - every tracked path mapped to its blob id
+     */
+    void setContent(Map<String, String> content){
+        this.content = Manifest.of(content);
+    }
+
+
+    // replaces the creation time, for generated histories (see Generator)
+    void setTimestamp(String timestamp){
+        this.timestamp = timestamp;
     }
 
 
@@ -79,6 +95,10 @@ public class Commit implements Dumpable, Comparable {
         return commit;
     }
 
+    public static Commit getCommit(ObjectId id){
+        return readObjectFromFile(getHashAsFile(id), Commit.class);
+    }
+
 
     /**
      * This method saves a commit Object to the object folder using their sha1 values as name.
@@ -101,6 +121,17 @@ public class Commit implements Dumpable, Comparable {
     }
 
 
+    /**
+     * Adds the commit object to a transaction, to be published with the other objects of the transaction.
+     * @param hash - the commit id
+     * @param transaction
+     */
+    public void saveToFile(String hash, Transaction transaction){
+        this.commitHash = hash;
+        transaction.writeObject(hash, serialize(this));
+    }
+
+
     /**
      * this method return the most recent commit made (The active commit)
      * @return Commit object
@@ -117,31 +148,102 @@ public class Commit implements Dumpable, Comparable {
 
     /**
      * Update the content of the commit object with the information found in the staging area.
+     * The staging area is left as is; it is cleared once the commit has been published.
      */
     public void updateWithStagedFile(){
-        Index stageArea = Index.readFromFile();
+        updateWithStagedFile(Index.readFromFile());
+    }
 
+
+    /**
+     * Update the content of the commit object with the information found in the given staging area.
+     * @param stageArea
+     */
+    public void updateWithStagedFile(Index stageArea){
         if (stageArea.getStageEntry().isEmpty() && stageArea.getStageRemove().isEmpty()){
-            exitWithError("No File To Commit! Use the add command to add files", 0);
+            throw new GitletException.InvalidStateException("No File To Commit! Use the add command to add files");
         }
 
-        this.content.putAll(stageArea.getStageEntry()); // update the commit content with the files in staging area for addition
-        // delete all the files present in current commit and in stage for removal area
-        for (Map.Entry<String, String> file : stageArea.getStageRemove().entrySet()) {
-            this.content.remove(file.getKey());
+        // update the commit content with the files in staging area for addition, and delete all the files
+        // present in current commit and in stage for removal area
+        this.content = this.content.with(stageArea.getStageEntry(), stageArea.getStageRemove().keySet());
+    }
+
+
+    /**
+     * Publishes a commit made from a staging area and moves the branch to it with a compare-and-set, so the
+     * branch only moves if nobody else moved it since the commit was made. When another writer wins the race,
+     * the staged changes are replayed onto the new tip of the branch and the commit tried again, unless that
+     * writer changed one of the files this commit changes.
+     * @param commit - the new commit, child of parent
+     * @param branch - the branch to commit to, as it was read when the commit was made
+     * @param parent - the commit the branch pointed at
+     * @param stageArea - the staging area the commit was made from
+     * @param transaction - transaction holding the blobs of the commit
+     * @return - the commit published, which is a new commit if it had to be replayed
+     */
+    static Commit publish(Commit commit, Branch branch, Commit parent, Index stageArea, Transaction transaction){
+        String expected = branch.getRef();
+        for (int attempt = 1; ; attempt++){
+            String hash = hashObj(commit);
+            commit.saveToFile(hash, transaction);
+            transaction.commit();
+            if (branch.compareAndSetRef(expected, hash)){
+                return commit;
+            }
+            if (attempt == MAX_PUBLISH_ATTEMPTS){
+                throw new GitletException.ConcurrentUpdateException("Branch " + branch.getName()
+                        + " keeps moving; could not commit after " + attempt + " attempts.");
+            }
+            expected = Branch.getBranch(branch.getName()).getRef();
+            commit = commit.replay(expected, parent, stageArea);
+        }
+    }
+
+
+    /**
+     * Makes a copy of this commit on top of another tip: the content of the tip with the staged changes applied.
+     * @param tipId - id of the new parent
+     * @param parent - the original parent, to find the files the tip changed
+     * @param stageArea - the staged changes
+     * @return - the new commit
+     */
+    private Commit replay(String tipId, Commit parent, Index stageArea){
+        Commit tip = getCommit(tipId);
+        for (Map.Entry<String, ObjectId> file : stageArea.getStageEntry().entrySet()){
+            ObjectId theirs = tip.content.getId(file.getKey());
+            if (!Objects.equals(theirs, parent.content.getId(file.getKey())) && !file.getValue().equals(theirs)){
+                throw conflict(file.getKey());
+            }
+        }
+        for (String file : stageArea.getStageRemove().keySet()){
+            ObjectId theirs = tip.content.getId(file);
+            if (theirs != null && !theirs.equals(parent.content.getId(file))){
+                throw conflict(file);
+            }
         }
-        stageArea.clear();
-        stageArea.saveToFile();
+        Commit commit = new Commit(this.message, tipId);
+        commit.cloneParentCommit(tip);
+        commit.updateWithStagedFile(stageArea);
+        return commit;
+    }
+
+    private static GitletException conflict(String file){
+        return new GitletException.ConcurrentUpdateException("File " + file
+                + " was changed by a concurrent commit on this branch; nothing was committed.");
     }
 
 
     /**
-     * saves all the content of the commit in the object folder
+     * adds all the content of the commit to a transaction.
+     * Files outside of the sparse checkout are not in the working directory; their blobs are already saved.
      */
-    public void saveBlobs(){
+    public void saveBlobs(Transaction transaction){
+        SparseCheckout sparse = SparseCheckout.readFromFile();
         for (Map.Entry<String, String> file : this.content.entrySet()) {
+            if (!sparse.matches(file.getKey())) continue;
             Blob blob = new Blob(file.getKey());
-            blob.saveBlob();
+            blob.saveBlob(transaction);
         }
     }
 
@@ -149,6 +251,10 @@ public class Commit implements Dumpable, Comparable {
     /** Getter Methods **/
 
     public String getParent() {
+        return ObjectId.format(parent);
+    }
+
+    public ObjectId getParentId(){
         return parent;
     }
 
@@ -156,7 +262,7 @@ public class Commit implements Dumpable, Comparable {
         return message;
     }
 
-    public HashMap<String, String> getContent(){
+    public Manifest getContent(){
         return content;
     }
 
@@ -177,6 +283,7 @@ public class Commit implements Dumpable, Comparable {
 	        while(current.parent!=null) {
                 displayLog(current.commitHash, current.timestamp, current.message);
     		    current= readObjectFromFile(getHashAsFile(current.parent), Commit.class);
+    		    Perf.commitTraversed();
             }
             displayLog(current.commitHash, current.timestamp, current.message);
     }
@@ -192,7 +299,7 @@ public class Commit implements Dumpable, Comparable {
         Commit current = null;
         for(String branchName :branches){
 
-            if (branchName.equals("HEAD")) continue;
+            if (branchName.equals("HEAD") || branchName.endsWith(RefLock.SUFFIX)) continue;
 
             else {
                 Branch branch = Branch.getBranch(branchName);
@@ -203,6 +310,7 @@ public class Commit implements Dumpable, Comparable {
                         commitSet.add(current);
                     }
                     current= readObjectFromFile(getHashAsFile(current.parent), Commit.class);
+                    Perf.commitTraversed();
                 }
             }
         }
@@ -223,6 +331,7 @@ public class Commit implements Dumpable, Comparable {
                 System.out.println(current.commitHash);
             }
             current= readObjectFromFile(getHashAsFile(current.parent), Commit.class);
+            Perf.commitTraversed();
         }
     }
 
@@ -0,0 +1,129 @@
+package gitlet;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static gitlet.Utils.*;
+
+/**
+ * This class represents the repository configuration: a set of key/value settings saved in .gitlet/config.
+ * Repositories created before the file existed simply have an empty configuration.
+ */
+public class Config implements Dumpable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final File CONFIG_FILE = join(Repository.GITLET_DIR, "config");
+
+    private HashMap<String, String> settings = new HashMap<>();
+
+
+    /**
+     * reads the configuration from file
+     * @return - Config object, empty if the repository has no config file
+     */
+    public static Config readFromFile(){
+        return readFromFile(Repository.GITLET_DIR);
+    }
+
+    /**
+     * reads the configuration of any repository
+     * @param gitletDir - the .gitlet directory of the repository
+     * @return - Config object, empty if the repository has no config file
+     */
+    public static Config readFromFile(File gitletDir){
+        File file = join(gitletDir, CONFIG_FILE.getName());
+        if (!file.isFile()){
+            return new Config();
+        }
+        return readObjectFromFile(file, Config.class);
+    }
+
+
+    // saves the config object to file
+    public void saveToFile(){
+        writeObject(CONFIG_FILE, this);
+    }
+
+
+    public String get(String key){
+        return settings.get(key);
+    }
+
+    public String get(String key, String defaultValue){
+        return settings.getOrDefault(key, defaultValue);
+    }
+
+    /**
+     * returns the integer value of a setting, or defaultValue if it is not set
+     */
+    public int getInt(String key, int defaultValue){
+        String value = settings.get(key);
+        if (value == null){
+            return defaultValue;
+        }
+        try{
+            return Integer.parseInt(value);
+        }catch (NumberFormatException e){
+            throw error("Config %s must be a number, found %s", key, value);
+        }
+    }
+
+    public boolean getBoolean(String key){
+        return Boolean.parseBoolean(settings.get(key));
+    }
+
+    public void set(String key, String value){
+        settings.put(key, value);
+    }
+
+    public void unset(String key){
+        settings.remove(key);
+    }
+
+
+    /**
+     * Handles the config command.
+     *  config              lists every setting
+     *  config KEY          prints the value of KEY
+     *  config KEY VALUE    sets KEY to VALUE
+     *  config --unset KEY  removes KEY
+     * @param args - command line arguments
+     */
+    public static void config(String[] args){
+        Config config = readFromFile();
+        if (args.length == 3 && (args[1].equals(HashAlgorithm.KEY) || args[2].equals(HashAlgorithm.KEY))){
+            exitWithError("The hash algorithm is chosen when the repository is created.", 0);
+        }
+        if (args.length == 3 && (args[1].equals(Repository.FORMAT_KEY) || args[2].equals(Repository.FORMAT_KEY))){
+            exitWithError("The format version is set when the repository is created.", 0);
+        }
+        if (args.length == 1){
+            config.dump();
+        }else if (args.length == 2){
+            String value = config.get(args[1]);
+            if (value == null){
+                exitWithError("No value set for " + args[1], 0);
+            }
+            System.out.println(value);
+        }else if (args.length == 3 && args[1].equals("--unset")){
+            config.unset(args[2]);
+            config.saveToFile();
+        }else if (args.length == 3){
+            config.set(args[1], args[2]);
+            config.saveToFile();
+        }else{
+            exitWithError("Usage: config [--unset] [KEY [VALUE]]", 0);
+        }
+    }
+
+
+    @Override
+    public void dump() {
+        for (Map.Entry<String, String> setting : new TreeMap<>(settings).entrySet()){
+            System.out.println(setting.getKey() + "=" + setting.getValue());
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package gitlet;
+
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static gitlet.Utils.*;
+
+/**
+ * This class implements the gitlet daemon: a long running process that serves commands for the repository in
+ * its working directory over a Unix domain socket (.gitlet/daemon.sock). It avoids the JVM startup of every
+ * command and keeps recently read refs, index and objects in memory (see ObjectCache).
+ *
+ *  java gitlet.Main daemon          starts the daemon in the current repository
+ *  java gitlet.Main daemon stop     stops it
+ *  java gitlet.DaemonClient ARGS    runs a command through the daemon (or locally if none is running)
+ *  bin/gitlet-client ARGS           the same without starting a JVM, with nc (see the script)
+ *
+ * Protocol, in java.io.DataOutput encoding: the client sends its working directory (writeUTF), the number of
+ * arguments (writeInt) and every argument (writeUTF). The daemon answers with output chunks, each one a length
+ * (writeInt, positive) followed by that many bytes, then -1 (writeInt) and the exit code of the command (writeInt).
+ * Commands are served one at a time.
+ */
+public class Daemon {
+
+    public static final String SOCKET_NAME = "daemon.sock";
+
+    private static boolean running = false;
+
+
+    /**
+     * returns true if this process is serving commands as the daemon
+     */
+    static boolean isRunning(){
+        return running;
+    }
+
+
+    /**
+     * Handles the daemon command.
+     * @param args - command line arguments
+     */
+    public static void daemon(String[] args){
+        if (!Repository.GITLET_DIR.isDirectory()){
+            exitWithError("Not in an initialized Gitlet directory.", 0);
+        }
+        if (running){
+            if (args.length == 2 && args[1].equals("stop")){
+                running = false;
+                System.out.println("Gitlet daemon stopped.");
+                return;
+            }
+            exitWithError("The gitlet daemon is already running.", 0);
+        }
+        if (args.length == 2 && args[1].equals("stop")){
+            int code = DaemonClient.send(Repository.CWD.getAbsolutePath(), args);
+            if (code < 0){
+                exitWithError("No gitlet daemon is running.", 0);
+            }
+            return;
+        }
+        if (args.length != 1){
+            exitWithError("Usage: daemon [stop]", 0);
+        }
+        serve();
+    }
+
+
+    /**
+     * Listens on the socket and runs every command received until a stop command arrives.
+     */
+    private static void serve(){
+        File socketFile = join(Repository.GITLET_DIR, SOCKET_NAME);
+        if (socketFile.exists()){
+            if (DaemonClient.isAlive(socketFile)){
+                exitWithError("The gitlet daemon is already running.", 0);
+            }
+            socketFile.delete();
+        }
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socketFile.toPath()));
+            socketFile.deleteOnExit();
+            ObjectCache.setEnabled(true);
+            running = true;
+            System.out.println("Gitlet daemon listening on " + socketFile.getPath());
+            while (running){
+                try (SocketChannel client = server.accept()) {
+                    handle(client);
+                }catch (IOException e){
+                    System.err.println("Gitlet daemon: " + e.getMessage());
+                }
+            }
+        }catch (IOException e){
+            throw error("Could not start the gitlet daemon: %s", e.getMessage());
+        }finally{
+            running = false;
+            ObjectCache.setEnabled(false);
+            socketFile.delete();
+        }
+    }
+
+
+    /**
+     * Reads one command from a client, runs it with System.out sent to the client, and sends its exit code.
+     */
+    private static void handle(SocketChannel client) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(client)));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(client)));
+        String cwd = in.readUTF();
+        String[] args = new String[in.readInt()];
+        for (int i = 0; i < args.length; i++){
+            args[i] = in.readUTF();
+        }
+
+        PrintStream console = System.out;
+        PrintStream output = new PrintStream(new BufferedOutputStream(new ChunkOutputStream(out)), false,
+                StandardCharsets.UTF_8);
+        int exitCode = 0;
+        System.setOut(output);
+        try{
+            if (!Files.isSameFile(Paths.get(cwd), Repository.CWD.toPath())){
+                exitWithError("This daemon serves " + Repository.CWD.getPath() + ", not " + cwd, 1);
+            }
+            Main.run(Perf.startTrace(args));
+        }catch (GitletException e){
+            if (e.getMessage() != null){
+                output.println(e.getMessage());
+            }
+            exitCode = e.getExitCode();
+        }catch (RuntimeException e){
+            output.println("Error: " + e);
+            exitCode = 1;
+        }finally{
+            // the summary of --trace-perf goes to the client with the output of the command
+            Perf.endTrace(output);
+            output.flush();
+            System.setOut(console);
+        }
+        out.writeInt(-1);
+        out.writeInt(exitCode);
+        out.flush();
+    }
+
+
+    /**
+     * An output stream sending everything written to it as length prefixed chunks.
+     */
+    private static class ChunkOutputStream extends OutputStream {
+
+        private final DataOutputStream out;
+
+        private ChunkOutputStream(DataOutputStream out){
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len > 0){
+                out.writeInt(len);
+                out.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+}
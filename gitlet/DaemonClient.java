@@ -0,0 +1,89 @@
+package gitlet;
+
+import java.io.*;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Paths;
+
+/**
+ * Thin client for the gitlet daemon (see Daemon for the protocol).
+ * Usage: java gitlet.DaemonClient ARGS, with the same arguments as gitlet.Main. The command runs in the daemon
+ * serving the current directory; if no daemon is running it runs in this process instead.
+ * The client is a JVM itself, so every call still pays a JVM startup (over 100 ms): the daemon saves the
+ * loading of the repository, not the process start. bin/gitlet-client speaks the same protocol from a shell
+ * script, with nc, so a command served by the daemon starts no JVM at all.
+ */
+public class DaemonClient {
+
+    public static void main(String[] args) {
+        String cwd = System.getProperty("user.dir");
+        int exitCode = send(cwd, args);
+        if (exitCode < 0) {
+            Main.main(args);
+            return;
+        }
+        System.exit(exitCode);
+    }
+
+
+    /**
+     * Sends a command to the daemon of the repository at cwd and copies its output to System.out.
+     * @param cwd - working directory of the command
+     * @param args - command line arguments
+     * @return - the exit code of the command, or -1 if no daemon could be reached
+     */
+    static int send(String cwd, String[] args) {
+        File socketFile = Paths.get(cwd, ".gitlet", Daemon.SOCKET_NAME).toFile();
+        if (!socketFile.exists()) {
+            return -1;
+        }
+        SocketChannel channel;
+        try {
+            channel = SocketChannel.open(UnixDomainSocketAddress.of(socketFile.toPath()));
+        } catch (IOException e) {
+            return -1;
+        }
+        try (channel) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeUTF(cwd);
+            out.writeInt(args.length);
+            for (String arg : args) {
+                out.writeUTF(arg);
+            }
+            out.flush();
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            byte[] buffer = new byte[8192];
+            int length;
+            while ((length = in.readInt()) >= 0) {
+                while (length > 0) {
+                    int read = in.read(buffer, 0, Math.min(length, buffer.length));
+                    if (read < 0) {
+                        throw new EOFException();
+                    }
+                    System.out.write(buffer, 0, read);
+                    length -= read;
+                }
+            }
+            System.out.flush();
+            return in.readInt();
+        } catch (IOException e) {
+            System.out.flush();
+            throw Utils.error("Lost connection to the gitlet daemon: %s", e.getMessage());
+        }
+    }
+
+
+    /**
+     * returns true if a daemon accepts connections on the given socket file
+     */
+    static boolean isAlive(File socketFile) {
+        try {
+            SocketChannel.open(UnixDomainSocketAddress.of(socketFile.toPath())).close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
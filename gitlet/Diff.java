@@ -0,0 +1,361 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static gitlet.Utils.*;
+
+/**
+ * This class compares two commits, or the head commit and the working directory.
+ * The two manifests are walked side by side in sorted order and paths whose blob ids match are skipped without
+ * reading them. Line diffs are only computed for the changed files, on a pool of worker threads.
+ * In --name-only and --stat mode no file content is read at all.
+ */
+public class Diff {
+
+    private static final int CONTEXT = 3;
+
+    /**
+     * PATCH - print the line differences of every changed file.
+     * STAT - print the changed files with their old and new size.
+     * NAME_ONLY - print the names of the changed files.
+     */
+    public enum Mode { PATCH, STAT, NAME_ONLY }
+
+    private final TreeMap<String, ObjectId> oldContent;
+    private final TreeMap<String, ObjectId> newContent;
+    private final boolean newIsWorkingTree;
+    private final Mode mode;
+    private final boolean findCopies;
+
+
+    private Diff(Map<String, ObjectId> oldContent, Map<String, ObjectId> newContent, boolean newIsWorkingTree,
+                 Mode mode, boolean findCopies){
+        this.oldContent = new TreeMap<>(oldContent);
+        this.newContent = new TreeMap<>(newContent);
+        this.newIsWorkingTree = newIsWorkingTree;
+        this.mode = mode;
+        this.findCopies = findCopies;
+    }
+
+
+    /**
+     * Handles the diff command.
+     *  diff [--stat | --name-only]                      compares the head commit with the working directory
+     *  diff [--stat | --name-only] COMMIT_A COMMIT_B    compares two commits
+     *  diff --find-copies COMMIT_A COMMIT_B             also reports the files copied from a file of COMMIT_A
+     * @param args - command line arguments
+     */
+    public static void diff(String[] args){
+        Mode mode = Mode.PATCH;
+        boolean findCopies = false;
+        List<String> commits = new ArrayList<>();
+        for (int i = 1; i < args.length; i++){
+            if (args[i].equals("--stat")){
+                mode = Mode.STAT;
+            }else if (args[i].equals("--name-only")){
+                mode = Mode.NAME_ONLY;
+            }else if (args[i].equals("--find-copies")){
+                findCopies = true;
+            }else{
+                commits.add(args[i]);
+            }
+        }
+
+        Diff diff;
+        if (commits.isEmpty()){
+            Commit activeCommit = Commit.getActiveCommit();
+            SparseCheckout sparse = SparseCheckout.readFromFile();
+            diff = new Diff(sparseContent(activeCommit, sparse), workingTreeContent(activeCommit, sparse), true,
+                    mode, findCopies);
+        }else if (commits.size() == 2){
+            diff = new Diff(resolve(commits.get(0)).getContent().ids(), resolve(commits.get(1)).getContent().ids(),
+                    false, mode, findCopies);
+        }else{
+            exitWithError("Usage: diff [--stat | --name-only] [--find-copies] [COMMIT_A COMMIT_B]", 0);
+            return;
+        }
+        diff.print();
+    }
+
+    private static Commit resolve(String commitId){
+        if (commitId.length() < 3 || !getHashAsFile(commitId).isFile()){
+            exitWithError("No commit with that id exists.", 0);
+        }
+        return Commit.getCommit(commitId);
+    }
+
+    /**
+     * returns the content of the head commit inside the sparse checkout: tracked files outside of it are not in
+     * the working directory and are left out of a diff with it, as status does
+     */
+    private static HashMap<String, ObjectId> sparseContent(Commit activeCommit, SparseCheckout sparse){
+        HashMap<String, ObjectId> content = new HashMap<>();
+        for (Map.Entry<String, ObjectId> file : activeCommit.getContent().ids().entrySet()){
+            if (sparse.matches(file.getKey())){
+                content.put(file.getKey(), file.getValue());
+            }
+        }
+        return content;
+    }
+
+    /**
+     * returns the blob id of every file of the working directory that is tracked by the head commit or staged
+     * for addition. Untracked files and tracked files outside of the sparse checkout are left out.
+     */
+    private static HashMap<String, ObjectId> workingTreeContent(Commit activeCommit, SparseCheckout sparse){
+        HashMap<String, ObjectId> content = new HashMap<>();
+        Set<String> stageEntry = Index.readFromFile().getStageEntry().keySet();
+        List<String> files = getPlaneFileNameInDir(Repository.CWD);
+        if (files != null){
+            for (String file : files){
+                boolean tracked = activeCommit.getContent().containsKey(file);
+                if (tracked && !sparse.matches(file)){
+                    continue;
+                }
+                if (tracked || stageEntry.contains(file)){
+                    content.put(file, HashAlgorithm.current().fileId(join(Repository.CWD, file)));
+                }
+            }
+        }
+        return content;
+    }
+
+
+    /**
+     * Joins the two sorted manifests and returns the changed paths in order. Unchanged paths are skipped by
+     * comparing blob ids only. Renames (and copies, with --find-copies) are only detected between commits,
+     * where both blobs are in the object folder.
+     */
+    private List<Change> changes(){
+        List<Change> changes = new ArrayList<>();
+        Iterator<Map.Entry<String, ObjectId>> oldIter = oldContent.entrySet().iterator();
+        Iterator<Map.Entry<String, ObjectId>> newIter = newContent.entrySet().iterator();
+        Map.Entry<String, ObjectId> oldEntry = oldIter.hasNext() ? oldIter.next() : null;
+        Map.Entry<String, ObjectId> newEntry = newIter.hasNext() ? newIter.next() : null;
+
+        while (oldEntry != null || newEntry != null){
+            int cmp = oldEntry == null ? 1 : newEntry == null ? -1 : oldEntry.getKey().compareTo(newEntry.getKey());
+            if (cmp < 0){
+                changes.add(new Change(oldEntry.getKey(), oldEntry.getKey(), oldEntry.getValue(), null));
+                oldEntry = oldIter.hasNext() ? oldIter.next() : null;
+            }else if (cmp > 0){
+                changes.add(new Change(newEntry.getKey(), newEntry.getKey(), null, newEntry.getValue()));
+                newEntry = newIter.hasNext() ? newIter.next() : null;
+            }else{
+                if (!oldEntry.getValue().equals(newEntry.getValue())){
+                    changes.add(new Change(oldEntry.getKey(), newEntry.getKey(),
+                            oldEntry.getValue(), newEntry.getValue()));
+                }
+                oldEntry = oldIter.hasNext() ? oldIter.next() : null;
+                newEntry = newIter.hasNext() ? newIter.next() : null;
+            }
+        }
+
+        if (newIsWorkingTree || mode != Mode.PATCH){
+            return changes;
+        }
+        List<RenameDetector.Rename> renames = RenameDetector.detect(oldContent, newContent, findCopies);
+        if (renames.isEmpty()){
+            return changes;
+        }
+        HashMap<String, RenameDetector.Rename> byOld = new HashMap<>();
+        HashMap<String, RenameDetector.Rename> byNew = new HashMap<>();
+        for (RenameDetector.Rename rename : renames){
+            if (!rename.copy) byOld.put(rename.oldPath, rename);
+            byNew.put(rename.newPath, rename);
+        }
+        List<Change> result = new ArrayList<>();
+        for (Change change : changes){
+            if (change.newHash == null && byOld.containsKey(change.oldPath)){
+                continue;
+            }
+            RenameDetector.Rename rename = change.oldHash == null ? byNew.get(change.newPath) : null;
+            if (rename != null){
+                result.add(new Change(rename.oldPath, rename.newPath, oldContent.get(rename.oldPath),
+                        change.newHash, rename.copy));
+            }else{
+                result.add(change);
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * Prints the differences in the requested mode.
+     */
+    private void print(){
+        List<Change> changes = changes();
+        if (mode == Mode.NAME_ONLY){
+            for (Change change : changes){
+                System.out.println(change.newPath);
+            }
+            return;
+        }
+        if (mode == Mode.STAT){
+            for (Change change : changes){
+                System.out.println(change.newPath + " | " + size(change.oldHash, change.oldPath, false)
+                        + " -> " + size(change.newHash, change.newPath, newIsWorkingTree) + " bytes");
+            }
+            System.out.println(changes.size() + " file(s) changed");
+            return;
+        }
+
+        int threads = Math.max(1, Math.min(changes.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try{
+            List<Future<byte[]>> patches = new ArrayList<>();
+            for (Change change : changes){
+                patches.add(pool.submit(() -> patch(change)));
+            }
+            for (Future<byte[]> patch : patches){
+                byte[] bytes = patch.get();
+                System.out.write(bytes, 0, bytes.length);
+            }
+            System.out.flush();
+        }catch (InterruptedException | ExecutionException e){
+            Throwable cause = e.getCause() == null ? e : e.getCause();
+            if (cause instanceof GitletException){
+                throw (GitletException) cause;
+            }
+            throw error("Diff failed: %s", cause.getMessage());
+        }finally{
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * returns the size of a version of a file from file metadata only, 0 if the file is absent.
+     */
+    private static long size(ObjectId hash, String path, boolean workingTree){
+        if (hash == null){
+            return 0;
+        }
+        return workingTree ? join(Repository.CWD, path).length() : getHashAsFile(hash).length();
+    }
+
+
+    /**
+     * Computes the unified diff of a single change. Runs on a worker thread.
+     */
+    private byte[] patch(Change change){
+        byte[] oldData = change.oldHash == null ? new byte[0] : Blob.readBlob(change.oldHash);
+        byte[] newData;
+        if (change.newHash == null){
+            newData = new byte[0];
+        }else if (newIsWorkingTree){
+            newData = readContents(join(Repository.CWD, change.newPath));
+        }else{
+            newData = Blob.readBlob(change.newHash);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        String oldName = change.oldHash == null ? "/dev/null" : "a/" + change.oldPath;
+        String newName = change.newHash == null ? "/dev/null" : "b/" + change.newPath;
+        write(out, "diff --gitlet a/" + change.oldPath + " b/" + change.newPath + "\n");
+        if (change.copy){
+            write(out, "copy from " + change.oldPath + "\ncopy to " + change.newPath + "\n");
+        }else if (!change.oldPath.equals(change.newPath)){
+            write(out, "rename from " + change.oldPath + "\nrename to " + change.newPath + "\n");
+        }
+        if (isBinary(oldData) || isBinary(newData)){
+            write(out, "Binary files " + oldName + " and " + newName + " differ\n");
+            return out.toByteArray();
+        }
+        write(out, "--- " + oldName + "\n+++ " + newName + "\n");
+
+        LineTable table = new LineTable();
+        LineTable.Text oldText = table.intern(oldData);
+        LineTable.Text newText = table.intern(newData);
+        List<LineDiff.Edit> edits = LineDiff.diff(oldText.getIds(), newText.getIds());
+
+        int first = 0;
+        while (first < edits.size()){
+            // group the edits separated by less than two contexts worth of unchanged lines into one hunk
+            int last = first;
+            while (last + 1 < edits.size() && edits.get(last + 1).aStart - edits.get(last).aEnd <= 2 * CONTEXT){
+                last++;
+            }
+            LineDiff.Edit start = edits.get(first);
+            LineDiff.Edit end = edits.get(last);
+            int aStart = Math.max(0, start.aStart - CONTEXT);
+            int bStart = Math.max(0, start.bStart - CONTEXT);
+            int aEnd = Math.min(oldText.lineCount(), end.aEnd + CONTEXT);
+            int bEnd = Math.min(newText.lineCount(), end.bEnd + CONTEXT);
+            write(out, "@@ -" + range(aStart, aEnd) + " +" + range(bStart, bEnd) + " @@\n");
+
+            int a = aStart;
+            for (int k = first; k <= last; k++){
+                LineDiff.Edit edit = edits.get(k);
+                writeLines(out, ' ', oldText, a, edit.aStart);
+                writeLines(out, '-', oldText, edit.aStart, edit.aEnd);
+                writeLines(out, '+', newText, edit.bStart, edit.bEnd);
+                a = edit.aEnd;
+            }
+            writeLines(out, ' ', oldText, a, aEnd);
+            first = last + 1;
+        }
+        return out.toByteArray();
+    }
+
+    private static String range(int start, int end){
+        return (end == start ? start : start + 1) + "," + (end - start);
+    }
+
+    private static void writeLines(ByteArrayOutputStream out, char prefix, LineTable.Text text, int from, int to){
+        for (int line = from; line < to; line++){
+            out.write(prefix);
+            int start = text.lineStart(line);
+            int end = text.lineEnd(line);
+            out.write(text.getData(), start, end - start);
+            if (end == start || text.getData()[end - 1] != '\n'){
+                write(out, "\n\\ No newline at end of file\n");
+            }
+        }
+    }
+
+    private static void write(ByteArrayOutputStream out, String text){
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static boolean isBinary(byte[] data){
+        int limit = Math.min(data.length, 8000);
+        for (int i = 0; i < limit; i++){
+            if (data[i] == 0) return true;
+        }
+        return false;
+    }
+
+
+    /**
+     * A changed path. oldHash is null for an added file and newHash is null for a deleted file.
+     * copy is true if newPath was copied from oldPath, which still exists.
+     */
+    private static class Change {
+
+        private final String oldPath;
+        private final String newPath;
+        private final ObjectId oldHash;
+        private final ObjectId newHash;
+        private final boolean copy;
+
+        private Change(String oldPath, String newPath, ObjectId oldHash, ObjectId newHash){
+            this(oldPath, newPath, oldHash, newHash, false);
+        }
+
+        private Change(String oldPath, String newPath, ObjectId oldHash, ObjectId newHash, boolean copy){
+            this.oldPath = oldPath;
+            this.newPath = newPath;
+            this.oldHash = oldHash;
+            this.newHash = newHash;
+            this.copy = copy;
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package gitlet;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+import static gitlet.Utils.*;
+
+/**
+ * This class generates a synthetic repository in the working directory, for scale and regression testing.
+ * Blobs, commits and refs are written directly with the persistence code of Blob, Commit and Branch, without
+ * going through the working directory or the staging area; only the head commit of master is checked out.
+ *
+ *  java gitlet.Generator [--seed N] [--files N] [--sizes DIST] [--commits N] [--branch-rate P]
+ *                        [--merge-rate P] [--change-ratio P] [--no-checkout]
+ *
+ *  --seed          seed of every random choice; the same options always give the same commit ids (default 1)
+ *  --files         number of files in the first commit (default 1000)
+ *  --sizes         size of the generated files: fixed:BYTES, uniform:MIN:MAX or lognormal:MEDIAN:SIGMA
+ *                  (default lognormal:4096:1.0, capped at 16MB)
+ *  --commits       number of commits after the first one (default 1000)
+ *  --branch-rate   probability for each commit to be preceded by the creation of a new branch (default 0.02)
+ *  --merge-rate    probability for each commit to be a merge of another branch into master (default 0.01)
+ *  --change-ratio  fraction of the files changed by each commit, at least one (default 0.01); one change in ten
+ *                  adds a file and one in ten deletes one
+ *
+ * Commits are spread over the live branches at random. A merge commit takes the version of the merged branch
+ * for every file that differs from master, and has master as its only parent, like the merge command.
+ * Every commit stores its whole manifest, so the time and space used grow with files x commits.
+ */
+public class Generator {
+
+    private static final int MAX_SIZE = 16 * 1024 * 1024;
+    private static final int COMMITS_PER_TRANSACTION = 1000;
+    private static final LocalDateTime EPOCH = LocalDateTime.of(2020, 1, 1, 0, 0);
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy   HH:mm:ss");
+
+    private long seed = 1;
+    private int files = 1000;
+    private String sizes = "lognormal:4096:1.0";
+    private int commits = 1000;
+    private double branchRate = 0.02;
+    private double mergeRate = 0.01;
+    private double changeRatio = 0.01;
+    private boolean checkout = true;
+
+    private Random random;
+    private SizeDistribution sizeDistribution;
+    private Transaction transaction = new Transaction();
+    private final LinkedHashMap<String, Tip> branches = new LinkedHashMap<>();
+    private int nextFile = 0;
+    private int commitCount = 0;
+    private int mergeCount = 0;
+    private long blobCount = 0;
+    private long blobBytes = 0;
+
+
+    public static void main(String[] args) {
+        int exitCode = 0;
+        try {
+            parse(args).generate();
+        } catch (GitletException e) {
+            if (e.getMessage() != null) {
+                System.out.println(e.getMessage());
+            }
+            exitCode = e.getExitCode();
+        }
+        System.out.flush();
+        System.exit(exitCode);
+    }
+
+
+    /**
+     * reads the options of the command line
+     * @param args - command line arguments
+     * @return - Generator
+     */
+    static Generator parse(String[] args){
+        Generator generator = new Generator();
+        for (int i = 0; i < args.length; i++){
+            String option = args[i];
+            if (option.equals("--no-checkout")){
+                generator.checkout = false;
+                continue;
+            }
+            if (i + 1 == args.length){
+                exitWithError("Missing value for " + option, 1);
+            }
+            String value = args[++i];
+            try{
+                switch (option){
+                    case "--seed": generator.seed = Long.parseLong(value); break;
+                    case "--files": generator.files = Integer.parseInt(value); break;
+                    case "--sizes": generator.sizes = value; break;
+                    case "--commits": generator.commits = Integer.parseInt(value); break;
+                    case "--branch-rate": generator.branchRate = Double.parseDouble(value); break;
+                    case "--merge-rate": generator.mergeRate = Double.parseDouble(value); break;
+                    case "--change-ratio": generator.changeRatio = Double.parseDouble(value); break;
+                    default: exitWithError("Unknown option " + option, 1);
+                }
+            }catch (NumberFormatException e){
+                exitWithError("Invalid value for " + option + ": " + value, 1);
+            }
+        }
+        if (generator.files < 1 || generator.commits < 0){
+            exitWithError("--files must be at least 1 and --commits at least 0", 1);
+        }
+        return generator;
+    }
+
+
+    /**
+     * Creates the repository and generates its history.
+     */
+    public void generate(){
+        long start = System.nanoTime();
+        random = new Random(seed);
+        sizeDistribution = SizeDistribution.parse(sizes);
+        Repository.setUpFolderStructure();
+        new Index();
+
+        Commit initial = new Commit();
+        initial.setTimestamp(timestamp(0));
+        Tip master = new Tip(saveCommit(initial), initial.getContent());
+        branches.put("master", master);
+
+        HashMap<String, String> content = new HashMap<>();
+        for (int i = 0; i < files; i++){
+            content.put(newFileName(), newBlob());
+        }
+        commit(master, "Initial import of " + files + " files", content);
+
+        for (int c = 0; c < commits; c++){
+            if (random.nextDouble() < branchRate){
+                Tip from = randomBranch();
+                branches.put("branch-" + branches.size(), new Tip(from.commit, from.content));
+            }
+            if (branches.size() > 1 && random.nextDouble() < mergeRate){
+                merge();
+            }else{
+                change(randomBranch());
+            }
+        }
+        transaction.commit();
+
+        for (Map.Entry<String, Tip> branch : branches.entrySet()){
+            new Branch(branch.getKey()).updateRef(branch.getValue().commit);
+        }
+        new Head().updateRef("master");
+        if (checkout){
+            CheckoutEngine.fromConfig().checkout(master.content);
+        }
+
+        System.out.printf("Generated %d commits (%d merges) on %d branches, %d files in master, "
+                        + "%d blobs (%.1f MB) in %.1f s%n", commitCount + 1, mergeCount, branches.size(),
+                master.content.size(), blobCount, blobBytes / 1e6, (System.nanoTime() - start) / 1e9);
+    }
+
+
+    /**
+     * Makes a commit on a branch changing change-ratio of its files.
+     */
+    private void change(Tip branch){
+        HashMap<String, String> content = new HashMap<>(branch.content);
+        List<String> paths = new ArrayList<>(content.keySet());
+        Collections.sort(paths);
+        int changes = Math.max(1, (int) Math.round(changeRatio * paths.size()));
+        for (int i = 0; i < changes; i++){
+            double kind = random.nextDouble();
+            if (kind < 0.1 || paths.isEmpty()){
+                content.put(newFileName(), newBlob());
+            }else{
+                String path = paths.get(random.nextInt(paths.size()));
+                if (kind < 0.2 && content.size() > 1){
+                    content.remove(path);
+                }else if (content.containsKey(path)){
+                    content.put(path, newBlob());
+                }
+            }
+        }
+        commit(branch, "Change " + changes + " files", content);
+    }
+
+
+    /**
+     * Merges a random branch into master: files that differ take the version of the merged branch.
+     */
+    private void merge(){
+        List<String> names = new ArrayList<>(branches.keySet());
+        String name = names.get(1 + random.nextInt(names.size() - 1));
+        Tip master = branches.get("master");
+        Tip given = branches.get(name);
+        if (given.commit.equals(master.commit)){
+            change(master);
+            return;
+        }
+        HashMap<String, String> content = new HashMap<>(master.content);
+        content.putAll(given.content);
+        mergeCount++;
+        commit(master, "Merged " + name + " into master", content);
+    }
+
+
+    private void commit(Tip branch, String message, HashMap<String, String> content){
+        Commit commit = new Commit(message, branch.commit);
+        commit.setTimestamp(timestamp(++commitCount));
+        commit.setContent(content);
+        branch.commit = saveCommit(commit);
+        branch.content = commit.getContent();
+        if (commitCount % COMMITS_PER_TRANSACTION == 0){
+            transaction.commit();
+            transaction = new Transaction();
+        }
+    }
+
+    private String saveCommit(Commit commit){
+        String hash = hashObj(commit);
+        commit.saveToFile(hash, transaction);
+        return hash;
+    }
+
+
+    private Tip randomBranch(){
+        int index = random.nextInt(branches.size());
+        Iterator<Tip> tips = branches.values().iterator();
+        for (int i = 0; i < index; i++){
+            tips.next();
+        }
+        return tips.next();
+    }
+
+    private String newFileName(){
+        return String.format("file%07d.txt", nextFile++);
+    }
+
+
+    /**
+     * Writes a new blob of lines of printable text, with a size drawn from the size distribution.
+     * @return - the id of the blob
+     */
+    private String newBlob(){
+        byte[] content = new byte[sizeDistribution.next(random)];
+        random.nextBytes(content);
+        for (int i = 0; i < content.length; i++){
+            content[i] = (i % 64 == 63) ? (byte) '\n' : (byte) ('a' + (content[i] & 0x0f));
+        }
+        String hash = sha1(content);
+        transaction.writeObject(hash, content);
+        blobCount++;
+        blobBytes += content.length;
+        return hash;
+    }
+
+    private static String timestamp(int minutes){
+        return "Date: " + EPOCH.plusMinutes(minutes).format(TIME_FORMAT);
+    }
+
+
+    /**
+     * The commit a branch points at, and the content of that commit.
+     */
+    private static class Tip {
+
+        private String commit;
+        private Map<String, String> content;
+
+        private Tip(String commit, Map<String, String> content){
+            this.commit = commit;
+            this.content = content;
+        }
+    }
+
+
+    /**
+     * A distribution of file sizes: fixed:BYTES, uniform:MIN:MAX or lognormal:MEDIAN:SIGMA.
+     */
+    private static class SizeDistribution {
+
+        private final String kind;
+        private final double first;
+        private final double second;
+
+        private SizeDistribution(String kind, double first, double second){
+            this.kind = kind;
+            this.first = first;
+            this.second = second;
+        }
+
+        private static SizeDistribution parse(String spec){
+            String[] parts = spec.split(":");
+            try{
+                if (parts[0].equals("fixed") && parts.length == 2){
+                    return new SizeDistribution("fixed", Double.parseDouble(parts[1]), 0);
+                }
+                if ((parts[0].equals("uniform") || parts[0].equals("lognormal")) && parts.length == 3){
+                    return new SizeDistribution(parts[0], Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+                }
+            }catch (NumberFormatException e){
+                // reported below
+            }
+            throw error("Invalid size distribution %s: use fixed:BYTES, uniform:MIN:MAX or lognormal:MEDIAN:SIGMA",
+                    spec);
+        }
+
+        private int next(Random random){
+            double size;
+            switch (kind){
+                case "fixed":
+                    size = first;
+                    break;
+                case "uniform":
+                    size = first + random.nextDouble() * (second - first);
+                    break;
+                default:
+                    size = first * Math.exp(second * random.nextGaussian());
+            }
+            return (int) Math.max(0, Math.min(MAX_SIZE, Math.round(size)));
+        }
+    }
+}
@@ -3,17 +3,85 @@ package gitlet;
 /**
  *  General exception indicating a Gitlet error.  For fatal errors, the
  *  result of .getMessage() is the error message to be printed.
+ *  The nested subclasses let code embedding gitlet (see Session) tell the
+ *  usual failures apart; they are user errors and end a command with status 0.
  */
-class GitletException extends RuntimeException {
+public class GitletException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The status the process exits with when this exception ends a command. */
+    private final int exitCode;
 
     /** A GitletException with no message. */
     GitletException() {
         super();
+        this.exitCode = 1;
     }
 
     /** A GitletException MSG as its message. */
     GitletException(String msg) {
+        this(msg, 1);
+    }
+
+    /** A GitletException MSG as its message, ending the command with status EXITCODE. */
+    GitletException(String msg, int exitCode) {
         super(msg);
+        this.exitCode = exitCode;
+    }
+
+    public int getExitCode() {
+        return exitCode;
+    }
+
+
+    /** A commit, branch or file that does not exist. */
+    public static class NotFoundException extends GitletException {
+
+        private static final long serialVersionUID = 1L;
+
+        NotFoundException(String msg) {
+            super(msg, 0);
+        }
+    }
+
+    /** A branch or repository that already exists. */
+    public static class AlreadyExistsException extends GitletException {
+
+        private static final long serialVersionUID = 1L;
+
+        AlreadyExistsException(String msg) {
+            super(msg, 0);
+        }
     }
 
+    /** An operation that would overwrite an untracked or modified file. */
+    public static class DirtyWorkingTreeException extends GitletException {
+
+        private static final long serialVersionUID = 1L;
+
+        DirtyWorkingTreeException(String msg) {
+            super(msg, 0);
+        }
+    }
+
+    /** A ref moved by another writer in a way the operation cannot build on. */
+    public static class ConcurrentUpdateException extends GitletException {
+
+        private static final long serialVersionUID = 1L;
+
+        ConcurrentUpdateException(String msg) {
+            super(msg, 0);
+        }
+    }
+
+    /** A commit with nothing staged, or another operation not possible in the current state. */
+    public static class InvalidStateException extends GitletException {
+
+        private static final long serialVersionUID = 1L;
+
+        InvalidStateException(String msg) {
+            super(msg, 0);
+        }
+    }
 }
@@ -0,0 +1,221 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import static gitlet.Utils.*;
+
+/**
+ * This class represents the hash algorithm that names the objects of a repository, chosen when the repository is
+ * created (init --hash, or the one of the repository cloned) and recorded in the core.hashAlgorithm setting.
+ * Repositories without the setting use sha1. Every object of a repository is named with the same algorithm, so
+ * it can never change afterwards, and objects only move between repositories using the same one.
+ *
+ * Hashing is called for every file read by status, add, checkout and reset, so each thread keeps one digest per
+ * algorithm and one read buffer instead of creating them on every call, and ids are formatted through a table.
+ */
+public enum HashAlgorithm {
+
+    SHA1("sha1", "SHA-1", 20),
+    SHA256("sha256", "SHA-256", 32);
+
+    public static final String KEY = "core.hashAlgorithm";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final ThreadLocal<ByteBuffer> BUFFER =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocate(BUFFER_SIZE));
+    // the algorithm of the repository, read from the config once per process
+    private static volatile HashAlgorithm current;
+
+    private final String name;
+    private final String digestName;
+    private final int length;
+    private final ThreadLocal<MessageDigest> digest;
+
+
+    HashAlgorithm(String name, String digestName, int length){
+        this.name = name;
+        this.digestName = digestName;
+        this.length = length;
+        this.digest = ThreadLocal.withInitial(this::newDigest);
+    }
+
+
+    /**
+     * returns the hash algorithm of the repository
+     */
+    public static HashAlgorithm current(){
+        HashAlgorithm algorithm = current;
+        if (algorithm == null){
+            algorithm = of(Repository.GITLET_DIR);
+            current = algorithm;
+        }
+        return algorithm;
+    }
+
+
+    /**
+     * returns the hash algorithm of any repository
+     * @param gitletDir - the .gitlet directory of the repository
+     */
+    public static HashAlgorithm of(File gitletDir){
+        return forName(Config.readFromFile(gitletDir).get(KEY, SHA1.name));
+    }
+
+
+    /**
+     * returns the hash algorithm with the given name (sha1 or sha256)
+     */
+    public static HashAlgorithm forName(String name){
+        HashAlgorithm algorithm = find(name);
+        if (algorithm == null){
+            throw error("Unknown hash algorithm %s", name);
+        }
+        return algorithm;
+    }
+
+    /**
+     * returns the hash algorithm with the given name, or null if there is none
+     */
+    public static HashAlgorithm find(String name){
+        for (HashAlgorithm algorithm : values()){
+            if (algorithm.name.equals(name)){
+                return algorithm;
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Records the hash algorithm of a new repository, before its first object is written.
+     * @param algorithm - the algorithm to name objects with
+     */
+    static void use(HashAlgorithm algorithm){
+        Config config = Config.readFromFile();
+        config.set(KEY, algorithm.name);
+        config.saveToFile();
+        current = algorithm;
+    }
+
+
+    public String getName(){
+        return this.name;
+    }
+
+    /**
+     * returns the length of an object id, in hex characters
+     */
+    public int getHexLength(){
+        return this.length * 2;
+    }
+
+
+    /**
+     * returns the id of the concatenation of strings (as UTF-8) and byte arrays
+     */
+    public String hash(Object... content){
+        MessageDigest m = digest.get();
+        for (Object ob : content){
+            if (ob instanceof byte[]){
+                m.update((byte[]) ob);
+            }else if (ob instanceof String){
+                m.update(((String) ob).getBytes(StandardCharsets.UTF_8));
+            }else{
+                m.reset();
+                throw new IllegalArgumentException("incorrect value to hash");
+            }
+        }
+        return toHex(m.digest());
+    }
+
+
+    /**
+     * returns the id of the remaining bytes of a buffer, which are consumed
+     */
+    public String hash(ByteBuffer content){
+        MessageDigest m = digest.get();
+        m.update(content);
+        return toHex(m.digest());
+    }
+
+
+    /**
+     * returns the id of the content of a channel, read from its position to its end through a reused buffer
+     */
+    public String hash(FileChannel channel) throws IOException {
+        return toHex(digest(channel));
+    }
+
+    private byte[] digest(FileChannel channel) throws IOException {
+        MessageDigest m = digest.get();
+        ByteBuffer buffer = BUFFER.get();
+        try{
+            buffer.clear();
+            while (channel.read(buffer) >= 0){
+                buffer.flip();
+                m.update(buffer);
+                buffer.clear();
+            }
+        }catch (IOException e){
+            m.reset();
+            throw e;
+        }
+        return m.digest();
+    }
+
+
+    /**
+     * returns the id of the content of a file, without reading the whole file in memory
+     */
+    public String hashFile(File file){
+        return toHex(digestFile(file));
+    }
+
+    /**
+     * returns the id of the content of a file as an ObjectId, to compare it with the ids of a commit without
+     * formatting it
+     */
+    public ObjectId fileId(File file){
+        return ObjectId.wrap(digestFile(file));
+    }
+
+    private byte[] digestFile(File file){
+        Perf.OperationEvent event = Perf.begin(Perf.Op.SHA1);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            byte[] id = digest(channel);
+            Perf.end(Perf.Op.SHA1, event, file, channel.size());
+            return id;
+        }catch (IOException e){
+            throw new IllegalArgumentException(e.getMessage());
+        }
+    }
+
+
+    /**
+     * returns the lowercase hex form of a digest
+     */
+    public static String toHex(byte[] bytes){
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++){
+            chars[2 * i] = HEX[(bytes[i] >> 4) & 0xf];
+            chars[2 * i + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+
+    private MessageDigest newDigest(){
+        try{
+            return MessageDigest.getInstance(digestName);
+        }catch (NoSuchAlgorithmException e){
+            throw error("%s is not available", digestName);
+        }
+    }
+}
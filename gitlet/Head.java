@@ -2,12 +2,15 @@ package gitlet;
 
 import java.io.File;
 import java.io.Serializable;
+import java.util.Objects;
 
 /**
  * This class represents the Head which references the currently active commit
  */
 public class Head implements Dumpable {
 
+    private static final long serialVersionUID = 1L;
+
     // current commit being referenced by the Head node
     private String ref = null;
 
@@ -17,6 +20,11 @@ public class Head implements Dumpable {
         return ref;
     }
 
+    // changes the referenced branch without saving it
+    void setRef(String branch){
+        this.ref = branch;
+    }
+
     public void updateRef(String branch){
         this.ref = branch;
         this.saveToFile();
@@ -24,7 +32,27 @@ public class Head implements Dumpable {
 
     // saves head object
     public void saveToFile(){
-        Utils.writeObject(HEAD_FILE, this);
+        try (RefLock lock = RefLock.acquire(HEAD_FILE)) {
+            lock.commit(Utils.serialize(this));
+        }
+    }
+
+
+    /**
+     * Points HEAD at a branch only if it still points at the expected branch (see Branch.compareAndSetRef).
+     * @param expected - the branch HEAD must point at
+     * @param branch - the branch to point at
+     * @return - true if HEAD was changed, false if it points at another branch
+     */
+    public boolean compareAndSetRef(String expected, String branch){
+        try (RefLock lock = RefLock.acquire(HEAD_FILE)) {
+            if (!Objects.equals(readFromFile().ref, expected)){
+                return false;
+            }
+            this.ref = branch;
+            lock.commit(Utils.serialize(this));
+            return true;
+        }
     }
 
     /**
@@ -1,29 +1,36 @@
 package gitlet;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 import static gitlet.Utils.*;
 
 /**
  * This class represents the staging area which will track changes in our entire directory.
  * It will have two major areas. The Stage Active and Stage Remove area.
- *
+ * On disk each area is its sorted paths, front-coded (see PathTable), followed by their blob ids.
  */
 
 public class Index implements Dumpable {
 
+    private static final long serialVersionUID = 1L;
+
     private static final File INDEX_FILE = Utils.join(Repository.GITLET_DIR, "INDEX");
 
     /*
     * stageEntry - track the files in the staging area that are ready to be committed.
     * stageRemove - track the files in the staging area that should not be included in the commit.
+    * Both map a file to the id of its blob (see ObjectId); they are written by writeObject.
     */
-    private HashMap<String, String> stageEntry = new HashMap<>();
-    private  HashMap<String, String> stageRemove = new HashMap<>();
+    private transient HashMap<String, ObjectId> stageEntry = new HashMap<>();
+    private transient HashMap<String, ObjectId> stageRemove = new HashMap<>();
 
 
 
@@ -34,7 +41,7 @@ public class Index implements Dumpable {
 
     // saves index object to file
     public void saveToFile(){
-        writeObject(INDEX_FILE, this);
+        Utils.writeObject(INDEX_FILE, this);
     }
 
 
@@ -73,10 +80,10 @@ public class Index implements Dumpable {
     private void addFile(Commit activeCommit, String filename){
         Blob blob = new Blob(filename);
         String blob_hash = blob.getHash();
+        ObjectId blobId = ObjectId.parse(blob_hash);
         if (activeCommit.getContent().containsKey(filename)){
             // check if the content of the blob has changed since the most recent commit
-            String prev_version = activeCommit.getContent().get(filename);
-            if (prev_version.equals(blob_hash)) {
+            if (activeCommit.getContent().hasId(filename, blobId)) {
                 // remove the file from the staging area if already exist there
                 if (stageEntry.containsKey(filename)) stageEntry.remove(filename);
                 exitWithError("File Was Not Staged: No change made to file " + filename, 0);
@@ -87,12 +94,12 @@ public class Index implements Dumpable {
         System.out.println("File: " + filename + "  was added to staging area for addition");
 
         if (stageEntry.containsKey(filename)){
-            String stageVersion = stageEntry.get(filename);
-            if (stageVersion.equals(blob_hash)){
+            ObjectId stageVersion = stageEntry.get(filename);
+            if (stageVersion.equals(blobId)){
                 exitWithError("This version of the file is already staged", 0);
             }
         }
-        stageEntry.put(filename, blob_hash);
+        stageEntry.put(filename, blobId);
     }
 
 
@@ -102,7 +109,7 @@ public class Index implements Dumpable {
         for (String filename: files){
             Blob blob = new Blob(filename);
             String blob_hash = blob.getHash();
-            stageEntry.put(filename, blob_hash);
+            stageEntry.put(filename, ObjectId.parse(blob_hash));
         }
     }
 
@@ -114,7 +121,7 @@ public class Index implements Dumpable {
     	else if (activeCommit.getContent().containsKey(filename)) {
     		   Blob blob = new Blob(filename);
     	       String blob_hash = blob.getHash();
-    	       stageRemove.put(filename, blob_hash);
+    	       stageRemove.put(filename, ObjectId.parse(blob_hash));
                Utils.restrictDelete(filename);
     	}
     	 else System.out.print("No reason to remove the file.");
@@ -122,11 +129,34 @@ public class Index implements Dumpable {
 
 
 
-    public HashMap<String, String> getStageEntry(){
+    /**
+     * Stages a file for addition with an already computed blob hash, replacing any pending removal.
+     * The index is not saved; callers staging many files save it once at the end.
+     * @param filename
+     * @param id - blob id of the new version of the file
+     */
+    public void stageFile(String filename, ObjectId id){
+        stageRemove.remove(filename);
+        stageEntry.put(filename, id);
+    }
+
+
+    /**
+     * Stages a tracked file for removal. The file itself is left untouched and the index is not saved.
+     * @param filename
+     * @param id - blob id of the version of the file being removed
+     */
+    public void stageRemoval(String filename, ObjectId id){
+        stageEntry.remove(filename);
+        stageRemove.put(filename, id);
+    }
+
+
+    public HashMap<String, ObjectId> getStageEntry(){
         return this.stageEntry;
     }
 
-    public HashMap<String, String> getStageRemove(){
+    public HashMap<String, ObjectId> getStageRemove(){
         return this.stageRemove;
     }
 
@@ -139,6 +169,16 @@ public class Index implements Dumpable {
         this.saveToFile();
     }
 
+    /**
+     * Unstages the entries of a committed staging area, keeping whatever was staged since then, and saves.
+     * @param committed - the staging area the commit was made from
+     */
+    public void clearCommitted(Index committed){
+        stageEntry.entrySet().removeIf(entry -> entry.getValue().equals(committed.stageEntry.get(entry.getKey())));
+        stageRemove.entrySet().removeIf(entry -> entry.getValue().equals(committed.stageRemove.get(entry.getKey())));
+        this.saveToFile();
+    }
+
     /**
      * returns true if the staging area is empty and false otherwise
      * @return - Boolean
@@ -147,12 +187,42 @@ public class Index implements Dumpable {
         return stageEntry.isEmpty() && stageRemove.isEmpty();
     }
 
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        writeArea(out, stageEntry);
+        writeArea(out, stageRemove);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        stageEntry = readArea(in);
+        stageRemove = readArea(in);
+    }
+
+    private static void writeArea(ObjectOutputStream out, Map<String, ObjectId> area) throws IOException {
+        TreeMap<String, ObjectId> sorted = new TreeMap<>(area);
+        PathTable.write(out, sorted.keySet().toArray(new String[0]));
+        for (ObjectId id : sorted.values()){
+            id.write(out);
+        }
+    }
+
+    private static HashMap<String, ObjectId> readArea(ObjectInputStream in) throws IOException {
+        String[] paths = PathTable.read(in);
+        HashMap<String, ObjectId> area = new HashMap<>();
+        for (String path : paths){
+            area.put(path, ObjectId.read(in));
+        }
+        return area;
+    }
+
+
     @Override
     public void dump() {
         System.out.println("Staging index for addition contains...");
         for (Map.Entry content: this.stageEntry.entrySet()) {
             String filename = (String) content.getKey();
-            String hash = (String) content.getValue();
+            ObjectId hash = (ObjectId) content.getValue();
             System.out.println(filename + " : " + hash);
         }
     }
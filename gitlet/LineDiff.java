@@ -0,0 +1,175 @@
+package gitlet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class computes the differences between two sequences of interned lines (see LineTable).
+ * It uses the linear space variant of the Myers O(ND) algorithm: the middle snake of the edit graph is found
+ * with a forward and a backward search, and the two halves on each side of it are diffed recursively.
+ * Only int arrays proportional to the number of lines are allocated, so multi-megabyte files stay cheap.
+ */
+public class LineDiff {
+
+    private final int[] a;
+    private final int[] b;
+    private final boolean[] deleted;
+    private final boolean[] inserted;
+    private int[] forward;
+    private int[] backward;
+
+
+    private LineDiff(int[] a, int[] b){
+        this.a = a;
+        this.b = b;
+        this.deleted = new boolean[a.length];
+        this.inserted = new boolean[b.length];
+    }
+
+
+    /**
+     * Computes a minimal list of edits turning the lines of a into the lines of b.
+     * @param a - line ids of the old version
+     * @param b - line ids of the new version
+     * @return - the edits in increasing order
+     */
+    public static List<Edit> diff(int[] a, int[] b){
+        LineDiff diff = new LineDiff(a, b);
+        int max = a.length + b.length + 2;
+        diff.forward = new int[2 * max + 2];
+        diff.backward = new int[2 * max + 2];
+        diff.compare(0, a.length, 0, b.length);
+        return diff.collectEdits();
+    }
+
+
+    /**
+     * Marks the lines of a[aLo, aHi) and b[bLo, bHi) that are not part of a longest common subsequence.
+     */
+    private void compare(int aLo, int aHi, int bLo, int bHi){
+        while (aLo < aHi && bLo < bHi && a[aLo] == b[bLo]){
+            aLo++;
+            bLo++;
+        }
+        while (aLo < aHi && bLo < bHi && a[aHi - 1] == b[bHi - 1]){
+            aHi--;
+            bHi--;
+        }
+        if (aLo == aHi){
+            for (int i = bLo; i < bHi; i++) inserted[i] = true;
+            return;
+        }
+        if (bLo == bHi){
+            for (int i = aLo; i < aHi; i++) deleted[i] = true;
+            return;
+        }
+        int[] snake = middleSnake(aLo, aHi, bLo, bHi);
+        compare(aLo, snake[0], bLo, snake[1]);
+        compare(snake[2], aHi, snake[3], bHi);
+    }
+
+
+    /**
+     * Finds the middle snake of the edit graph of a[aLo, aHi) and b[bLo, bHi).
+     * @return - {x start, y start, x end, y end} of the snake in absolute line numbers
+     */
+    private int[] middleSnake(int aLo, int aHi, int bLo, int bHi){
+        int n = aHi - aLo;
+        int m = bHi - bLo;
+        int delta = n - m;
+        boolean odd = (delta & 1) != 0;
+        int offset = (n + m + 1) / 2 + 1;
+        int[] vf = forward;
+        int[] vb = backward;
+        vf[offset + 1] = 0;
+        vb[offset + 1] = 0;
+
+        for (int d = 0; d <= (n + m + 1) / 2; d++){
+            // forward search, x is the number of lines consumed from the start of a
+            for (int k = -d; k <= d; k += 2){
+                int x;
+                if (k == -d || (k != d && vf[offset + k - 1] < vf[offset + k + 1])){
+                    x = vf[offset + k + 1];
+                }else{
+                    x = vf[offset + k - 1] + 1;
+                }
+                int y = x - k;
+                int x0 = x;
+                int y0 = y;
+                while (x < n && y < m && a[aLo + x] == b[bLo + y]){
+                    x++;
+                    y++;
+                }
+                vf[offset + k] = x;
+                int kr = delta - k;
+                if (odd && kr >= -(d - 1) && kr <= d - 1 && x + vb[offset + kr] >= n){
+                    return new int[]{aLo + x0, bLo + y0, aLo + x, bLo + y};
+                }
+            }
+            // backward search, x is the number of lines consumed from the end of a
+            for (int k = -d; k <= d; k += 2){
+                int x;
+                if (k == -d || (k != d && vb[offset + k - 1] < vb[offset + k + 1])){
+                    x = vb[offset + k + 1];
+                }else{
+                    x = vb[offset + k - 1] + 1;
+                }
+                int y = x - k;
+                int x0 = x;
+                int y0 = y;
+                while (x < n && y < m && a[aHi - 1 - x] == b[bHi - 1 - y]){
+                    x++;
+                    y++;
+                }
+                vb[offset + k] = x;
+                int kf = delta - k;
+                if (!odd && kf >= -d && kf <= d && x + vf[offset + kf] >= n){
+                    return new int[]{aHi - x, bHi - y, aHi - x0, bHi - y0};
+                }
+            }
+        }
+        throw Utils.error("No middle snake found while diffing");
+    }
+
+
+    /**
+     * Groups the marked lines into contiguous edits.
+     */
+    private List<Edit> collectEdits(){
+        List<Edit> edits = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length){
+            if (i < a.length && j < b.length && !deleted[i] && !inserted[j]){
+                i++;
+                j++;
+                continue;
+            }
+            int aStart = i;
+            int bStart = j;
+            while (i < a.length && deleted[i]) i++;
+            while (j < b.length && inserted[j]) j++;
+            edits.add(new Edit(aStart, i, bStart, j));
+        }
+        return edits;
+    }
+
+    /**
+     * A single change: lines [aStart, aEnd) of the old version were replaced by lines [bStart, bEnd)
+     * of the new version. Either range may be empty.
+     */
+    public static class Edit {
+
+        public final int aStart;
+        public final int aEnd;
+        public final int bStart;
+        public final int bEnd;
+
+        public Edit(int aStart, int aEnd, int bStart, int bEnd){
+            this.aStart = aStart;
+            this.aEnd = aEnd;
+            this.bStart = bStart;
+            this.bEnd = bEnd;
+        }
+    }
+}
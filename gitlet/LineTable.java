@@ -0,0 +1,175 @@
+package gitlet;
+
+import java.util.Arrays;
+
+/**
+ * This class interns the lines of one or more texts to small int ids so that they can be compared and diffed
+ * without building a String for every line. Two lines get the same id if and only if their bytes are equal.
+ * Each interned text only keeps its raw bytes, the offsets of its lines and the ids of its lines.
+ */
+public class LineTable {
+
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    /*
+     * texts - every text interned so far, used to compare candidate lines byte by byte.
+     * slots - open addressing hash table mapping a line to (id + 1), 0 marks an empty slot.
+     * idText / idLine - the text and line number where the line with a given id was first seen.
+     * idHash - the hash of the line with a given id, kept to avoid re-hashing when the table grows.
+     */
+    private Text[] texts = new Text[3];
+    private int textCount = 0;
+    private int[] slots = new int[INITIAL_CAPACITY];
+    private int[] idText = new int[INITIAL_CAPACITY];
+    private int[] idLine = new int[INITIAL_CAPACITY];
+    private int[] idHash = new int[INITIAL_CAPACITY];
+    private int size = 0;
+
+
+    /**
+     * Splits a text into lines (each line keeps its trailing newline) and interns every line.
+     * @param data - the raw content of a file
+     * @return - the interned text
+     */
+    public Text intern(byte[] data){
+        int[] starts = lineStarts(data);
+        int lines = starts.length - 1;
+        Text text = new Text(data, starts, new int[lines]);
+        if (textCount == texts.length){
+            texts = Arrays.copyOf(texts, textCount * 2);
+        }
+        int textIndex = textCount;
+        texts[textCount++] = text;
+        for (int line = 0; line < lines; line++){
+            text.ids[line] = lookup(textIndex, line);
+        }
+        return text;
+    }
+
+
+    /**
+     * returns the number of distinct lines seen so far
+     * @return int
+     */
+    public int size(){
+        return size;
+    }
+
+
+    /**
+     * Finds the id of the given line, assigning a new one if the line was never seen before.
+     */
+    private int lookup(int textIndex, int line){
+        Text text = texts[textIndex];
+        int hash = hashLine(text.data, text.starts[line], text.starts[line + 1]);
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        while (slots[slot] != 0){
+            int id = slots[slot] - 1;
+            if (idHash[id] == hash && sameLine(id, text, line)){
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int id = size++;
+        if (id == idText.length){
+            idText = Arrays.copyOf(idText, id * 2);
+            idLine = Arrays.copyOf(idLine, id * 2);
+            idHash = Arrays.copyOf(idHash, id * 2);
+        }
+        idText[id] = textIndex;
+        idLine[id] = line;
+        idHash[id] = hash;
+        slots[slot] = id + 1;
+        if (size * 2 > slots.length){
+            rehash();
+        }
+        return id;
+    }
+
+    private boolean sameLine(int id, Text text, int line){
+        Text other = texts[idText[id]];
+        int otherLine = idLine[id];
+        return Arrays.equals(text.data, text.starts[line], text.starts[line + 1],
+                other.data, other.starts[otherLine], other.starts[otherLine + 1]);
+    }
+
+    private void rehash(){
+        int[] newSlots = new int[slots.length * 2];
+        int mask = newSlots.length - 1;
+        for (int id = 0; id < size; id++){
+            int slot = idHash[id] & mask;
+            while (newSlots[slot] != 0){
+                slot = (slot + 1) & mask;
+            }
+            newSlots[slot] = id + 1;
+        }
+        slots = newSlots;
+    }
+
+    private static int hashLine(byte[] data, int start, int end){
+        int hash = 0x811c9dc5;
+        for (int i = start; i < end; i++){
+            hash = (hash ^ data[i]) * 0x01000193;
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+
+    /**
+     * returns the offsets at which every line of the data starts, followed by the length of the data.
+     * A last line without a trailing newline is still counted as a line.
+     */
+    private static int[] lineStarts(byte[] data){
+        int count = 0;
+        for (byte b : data){
+            if (b == '\n') count++;
+        }
+        if (data.length > 0 && data[data.length - 1] != '\n') count++;
+        int[] starts = new int[count + 1];
+        int line = 1;
+        for (int i = 0; i < data.length; i++){
+            if (data[i] == '\n' && line < count) starts[line++] = i + 1;
+        }
+        starts[count] = data.length;
+        return starts;
+    }
+
+
+    /**
+     * A text whose lines have been interned. ids[i] is the id of line i, and the bytes of line i are
+     * data[starts[i]] up to data[starts[i + 1]].
+     */
+    public static class Text {
+
+        private final byte[] data;
+        private final int[] starts;
+        private final int[] ids;
+
+        private Text(byte[] data, int[] starts, int[] ids){
+            this.data = data;
+            this.starts = starts;
+            this.ids = ids;
+        }
+
+        public int[] getIds(){
+            return ids;
+        }
+
+        public int lineCount(){
+            return ids.length;
+        }
+
+        public byte[] getData(){
+            return data;
+        }
+
+        public int lineStart(int line){
+            return starts[line];
+        }
+
+        public int lineEnd(int line){
+            return starts[line + 1];
+        }
+    }
+}
@@ -22,8 +22,86 @@ public class Main {
 
 
     public static void main(String[] args) {
+        int exitCode = 0;
+        // --trace-perf[=FILE.json] before the command reports the performance counters (see Perf)
+        args = Perf.startTrace(args);
+        try {
+            run(args);
+        } catch (GitletException e) {
+            if (e.getMessage() != null) {
+                System.out.println(e.getMessage());
+            }
+            exitCode = e.getExitCode();
+        }
+        System.out.flush();
+        Perf.endTrace(System.err);
+        System.exit(exitCode);
+    }
+
 
+    /**
+     * Runs a single command. Errors are reported by throwing a GitletException (see Utils.exitWithError).
+     */
+    static void run(String[] args) {
+        if (args.length == 0) {
+            exitWithError("Please enter a command.", 0);
+        }
         String firstArg = args[0];
+        Perf.Phase phase = Perf.phase(firstArg);
+        if (!firstArg.equals("init") && !firstArg.equals("clone") && Repository.GITLET_DIR.isDirectory()) {
+            Repository.checkFormat(Repository.GITLET_DIR);
+        }
+        RepoLock lock = null;
+        try {
+            lock = lockFor(args);
+            runCommand(firstArg, args);
+        } finally {
+            if (lock != null) {
+                lock.close();
+            }
+            phase.close();
+        }
+    }
+
+
+    /**
+     * returns the lock a command holds while it runs (see RepoLock): shared for the read-only commands,
+     * exclusive for the commands that change the working directory or the staging area. commit and status
+     * lock their own critical sections; fetch and bundle unbundle only add objects and move refs with a
+     * compare-and-set; init, clone, batch and daemon hold no lock.
+     */
+    private static RepoLock lockFor(String[] args) {
+        switch (args[0]) {
+            case "log":
+            case "global-log":
+            case "find":
+            case "diff":
+            case "merge-tree":
+            case "push":
+                return RepoLock.shared();
+            case "status":
+                return args.length == 2 && args[1].equals("--no-write") ? RepoLock.shared() : null;
+            case "bundle":
+                return args.length > 1 && args[1].equals("create") ? RepoLock.shared() : null;
+            case "add":
+            case "rm":
+            case "checkout":
+            case "reset":
+            case "merge":
+            case "branch":
+            case "rm-branch":
+            case "config":
+            case "sparse-checkout":
+            case "add-remote":
+            case "rm-remote":
+                return RepoLock.exclusive();
+            default:
+                return null;
+        }
+    }
+
+
+    private static void runCommand(String firstArg, String[] args) {
         switch(firstArg) {
             case "init":
                 Repository.initializeRepo(args);
@@ -37,8 +115,12 @@ public class Main {
                 Repository.makeCommit(args[2]);
                 break;
             case "status":
+                if (args.length == 2 && args[1].equals("--no-write")) {
+                    Repository.viewStatus(false);
+                    break;
+                }
                 validateNumArgs("status", args, 1);
-                Repository.viewStatus();
+                Repository.viewStatus(true);
                 break;
 
             case "log":
@@ -79,6 +161,48 @@ public class Main {
                 break;
             case "merge":
                 Repository.mergeBranch(args[1]);
+                break;
+            case "batch":
+                Batch.batch(args);
+                break;
+            case "daemon":
+                Daemon.daemon(args);
+                break;
+            case "config":
+                Config.config(args);
+                break;
+            case "sparse-checkout":
+                SparseCheckout.sparseCheckout(args);
+                break;
+            case "diff":
+                Diff.diff(args);
+                break;
+            case "merge-tree":
+                validateNumArgs("merge-tree", args, 2);
+                Repository.mergeTree(args[1]);
+                break;
+            case "add-remote":
+                validateNumArgs("add-remote", args, 3);
+                Remote.addRemote(args[1], args[2]);
+                break;
+            case "rm-remote":
+                validateNumArgs("rm-remote", args, 2);
+                Remote.removeRemote(args[1]);
+                break;
+            case "push":
+                validateNumArgs("push", args, 3);
+                Remote.push(args[1], args[2]);
+                break;
+            case "fetch":
+                validateNumArgs("fetch", args, 3);
+                Remote.fetch(args[1], args[2]);
+                break;
+            case "bundle":
+                Bundle.bundle(args);
+                break;
+            case "clone":
+                Clone.cloneRepository(args);
+                break;
         }
     }
 }
@@ -0,0 +1,295 @@
+package gitlet;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.*;
+import java.util.function.IntFunction;
+
+import static gitlet.Utils.*;
+
+/**
+ * This class represents the content of a commit: every tracked path mapped to the id of its blob. The paths are
+ * kept sorted in one array and the ids packed in one byte array in the same order (see ObjectId), instead of
+ * a HashMap of hex Strings, so a commit of a million files takes tens of MB on the heap instead of hundreds
+ * and is written and read as two arrays. Lookups are binary searches.
+ *
+ * A manifest is immutable: a child commit shares the manifest of its parent until it applies its own changes
+ * (see with), which builds a new one in one merge pass. It reads as a Map from path to the hex id of the blob,
+ * formatted on access, for the code that prints or writes ids. Code that compares ids uses getId, ids or the
+ * positional accessors, which compare the packed bytes without formatting them.
+ * The paths are written front-coded and interned when read (see PathTable).
+ */
+public final class Manifest extends AbstractMap<String, String> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    static final Manifest EMPTY = new Manifest(new String[0], new byte[0], 0);
+
+    // sorted; written by writeObject
+    private transient String[] paths;
+    // the id of paths[i] is at i * idLength
+    private final byte[] ids;
+    private final int idLength;
+
+
+    private Manifest(String[] paths, byte[] ids, int idLength){
+        this.paths = paths;
+        this.ids = ids;
+        this.idLength = idLength;
+    }
+
+
+    /**
+     * Builds a manifest from a map of paths to hex blob ids.
+     * @param content - the content of a commit
+     * @return - the manifest
+     */
+    public static Manifest of(Map<String, String> content){
+        if (content instanceof Manifest){
+            return (Manifest) content;
+        }
+        TreeMap<String, ObjectId> sorted = new TreeMap<>();
+        for (Map.Entry<String, String> file : content.entrySet()){
+            sorted.put(file.getKey(), ObjectId.parse(file.getValue()));
+        }
+        return EMPTY.with(sorted, Collections.emptySet());
+    }
+
+
+    /**
+     * Makes a copy of this manifest with some paths added or replaced and some removed.
+     * @param added - paths mapped to their new blob
+     * @param removed - paths to remove; a path both added and removed is removed
+     * @return - the new manifest, or this one if there is no change
+     */
+    public Manifest with(Map<String, ObjectId> added, Collection<String> removed){
+        if (added.isEmpty() && removed.isEmpty()){
+            return this;
+        }
+        SortedMap<String, ObjectId> changes = added instanceof SortedMap ? (SortedMap<String, ObjectId>) added
+                : new TreeMap<>(added);
+        Set<String> gone = removed instanceof Set ? (Set<String>) removed : new HashSet<>(removed);
+        int length = idLength;
+        if (paths.length == 0 && !changes.isEmpty()){
+            length = changes.values().iterator().next().length();
+        }
+
+        int capacity = paths.length + changes.size();
+        String[] newPaths = new String[capacity];
+        byte[] newIds = new byte[capacity * length];
+        int size = 0;
+        Iterator<Map.Entry<String, ObjectId>> change = changes.entrySet().iterator();
+        Map.Entry<String, ObjectId> next = change.hasNext() ? change.next() : null;
+        int i = 0;
+        while (i < paths.length || next != null){
+            int order = next == null ? -1 : i == paths.length ? 1 : paths[i].compareTo(next.getKey());
+            if (order < 0){
+                if (!gone.contains(paths[i])){
+                    newPaths[size] = paths[i];
+                    System.arraycopy(ids, i * idLength, newIds, size * length, length);
+                    size++;
+                }
+                i++;
+                continue;
+            }
+            if (!gone.contains(next.getKey())){
+                if (next.getValue().length() != length){
+                    throw error("Blob %s of %s is not a %d byte id", next.getValue(), next.getKey(), length);
+                }
+                newPaths[size] = next.getKey();
+                next.getValue().copyTo(newIds, size * length);
+                size++;
+            }
+            if (order == 0){
+                i++;
+            }
+            next = change.hasNext() ? change.next() : null;
+        }
+        if (size == 0){
+            return EMPTY;
+        }
+        return new Manifest(Arrays.copyOf(newPaths, size), Arrays.copyOf(newIds, size * length), length);
+    }
+
+
+    // returns the position of a path, negative if it is not tracked
+    private int indexOf(Object path){
+        return path instanceof String ? Arrays.binarySearch(paths, path) : -1;
+    }
+
+
+    /**
+     * returns the blob of a path, or null if the path is not tracked
+     */
+    public ObjectId getId(String path){
+        int i = indexOf(path);
+        return i < 0 ? null : ObjectId.fromBytes(ids, i * idLength, idLength);
+    }
+
+
+    /**
+     * returns the path at a position; positions follow the sorted order of the paths
+     */
+    String pathAt(int i){
+        return paths[i];
+    }
+
+    /**
+     * returns the blob of the path at a position
+     */
+    ObjectId idAt(int i){
+        return ObjectId.fromBytes(ids, i * idLength, idLength);
+    }
+
+    /**
+     * returns true if the path at position i has the same blob as the path at position j of another manifest
+     */
+    boolean sameIdAt(int i, Manifest other, int j){
+        return idLength == other.idLength
+                && Arrays.equals(ids, i * idLength, (i + 1) * idLength, other.ids, j * idLength, (j + 1) * idLength);
+    }
+
+    /**
+     * returns true if a path is tracked with the given blob
+     */
+    public boolean hasId(String path, ObjectId id){
+        int i = indexOf(path);
+        return i >= 0 && id.length() == idLength && id.equalsAt(ids, i * idLength);
+    }
+
+
+    /**
+     * Returns a view of the manifest as a Map from path to blob id, for code that compares ids.
+     * @return - the view, which reads the packed ids on access
+     */
+    public Map<String, ObjectId> ids(){
+        return new AbstractMap<String, ObjectId>() {
+            @Override
+            public ObjectId get(Object path){
+                return path instanceof String ? getId((String) path) : null;
+            }
+
+            @Override
+            public boolean containsKey(Object path){
+                return indexOf(path) >= 0;
+            }
+
+            @Override
+            public Set<String> keySet(){
+                return Manifest.this.keySet();
+            }
+
+            @Override
+            public Set<Map.Entry<String, ObjectId>> entrySet(){
+                return new AbstractSet<Map.Entry<String, ObjectId>>() {
+                    @Override
+                    public Iterator<Map.Entry<String, ObjectId>> iterator(){
+                        return new PositionIterator<>(i -> new SimpleImmutableEntry<>(paths[i], idAt(i)));
+                    }
+
+                    @Override
+                    public int size(){
+                        return paths.length;
+                    }
+                };
+            }
+        };
+    }
+
+
+    @Override
+    public String get(Object path){
+        int i = indexOf(path);
+        return i < 0 ? null : hex(i);
+    }
+
+    @Override
+    public boolean containsKey(Object path){
+        return indexOf(path) >= 0;
+    }
+
+    @Override
+    public int size(){
+        return paths.length;
+    }
+
+    @Override
+    public Set<String> keySet(){
+        return new AbstractSet<String>() {
+            @Override
+            public Iterator<String> iterator(){
+                return new PositionIterator<>(i -> paths[i]);
+            }
+
+            @Override
+            public boolean contains(Object path){
+                return indexOf(path) >= 0;
+            }
+
+            @Override
+            public int size(){
+                return paths.length;
+            }
+        };
+    }
+
+    @Override
+    public Set<Map.Entry<String, String>> entrySet(){
+        return new AbstractSet<Map.Entry<String, String>>() {
+            @Override
+            public Iterator<Map.Entry<String, String>> iterator(){
+                return new PositionIterator<>(i -> new SimpleImmutableEntry<>(paths[i], hex(i)));
+            }
+
+            @Override
+            public int size(){
+                return paths.length;
+            }
+        };
+    }
+
+
+    // iterates over the positions of the paths, returning what element builds for each
+    private class PositionIterator<E> implements Iterator<E> {
+        private final IntFunction<E> element;
+        private int next = 0;
+
+        PositionIterator(IntFunction<E> element){
+            this.element = element;
+        }
+
+        @Override
+        public boolean hasNext(){
+            return next < paths.length;
+        }
+
+        @Override
+        public E next(){
+            if (next == paths.length){
+                throw new NoSuchElementException();
+            }
+            return element.apply(next++);
+        }
+    }
+
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        PathTable.write(out, paths);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        paths = PathTable.read(in);
+        if ((long) paths.length * idLength != ids.length){
+            throw new IOException("Manifest of " + paths.length + " paths has " + ids.length + " bytes of ids");
+        }
+    }
+
+
+    private String hex(int i){
+        return HashAlgorithm.toHex(Arrays.copyOfRange(ids, i * idLength, (i + 1) * idLength));
+    }
+}
@@ -7,6 +7,8 @@ import java.io.File;
  */
 public class Master implements Dumpable {
 
+    private static final long serialVersionUID = 1L;
+
     // current commit being referenced by the Master node
     private String ref = null;
     private static final File MASTER_FILE = Utils.join(Repository.GITLET_DIR, "refs", "heads", "MASTER");
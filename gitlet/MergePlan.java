@@ -0,0 +1,322 @@
+package gitlet;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import static gitlet.Utils.*;
+
+/**
+ * This class represents the work needed to merge a given branch into the current one.
+ * The plan is computed from the three manifests (split point, current and given commit) without touching any file.
+ * Executing it reads the blobs, merges the contents and writes the working files on a pool of worker threads,
+ * then records every change in the staging area with a single write of the INDEX file.
+ * A plan can also be executed in memory, producing the merged manifest without touching the working directory.
+ */
+public class MergePlan {
+
+    /**
+     * TAKE_GIVEN - the file only changed in the given branch, its given version is checked out.
+     * REMOVE - the file was removed in the given branch and is unchanged in the current one.
+     * MERGE - both branches changed the file in different ways, their contents are merged line by line.
+     */
+    public enum Type { TAKE_GIVEN, REMOVE, MERGE }
+
+    private final List<Action> actions = new ArrayList<>();
+
+
+    /**
+     * Computes the action needed for every path present in any of the three manifests.
+     * Paths that need no change in the current branch get no action. Files renamed since the split point
+     * in one branch are merged with the changes made to their old path in the other branch.
+     * @param split - content of the split point
+     * @param active - content of the current branch head
+     * @param given - content of the given branch head
+     * @return - the merge plan
+     */
+    public static MergePlan compute(Manifest split, Manifest active, Manifest given){
+        MergePlan plan = new MergePlan();
+        HashMap<String, ObjectId> splitIds = new HashMap<>(split.ids());
+        HashMap<String, ObjectId> activeIds = new HashMap<>(active.ids());
+        HashMap<String, ObjectId> givenIds = new HashMap<>(given.ids());
+        Set<String> renamed = followRenames(plan, splitIds, activeIds, givenIds);
+
+        TreeSet<String> paths = new TreeSet<>(splitIds.keySet());
+        paths.addAll(activeIds.keySet());
+        paths.addAll(givenIds.keySet());
+
+        for (String path : paths){
+            ObjectId splitHash = splitIds.get(path);
+            ObjectId activeHash = activeIds.get(path);
+            ObjectId givenHash = givenIds.get(path);
+
+            // Both branches agree on the file (including both deleting it), or only the current branch changed it.
+            // A file the given branch renamed always needs an action: the current branch has no file at its new
+            // path until one is written, whatever the contents.
+            if (!renamed.contains(path)
+                    && (Objects.equals(activeHash, givenHash) || Objects.equals(splitHash, givenHash))){
+                continue;
+            }
+            Type type;
+            if (!Objects.equals(splitHash, activeHash)){
+                type = Type.MERGE;
+            }else if (givenHash == null){
+                type = Type.REMOVE;
+            }else{
+                type = Type.TAKE_GIVEN;
+            }
+            plan.actions.add(new Action(path, type, splitHash, activeHash, givenHash));
+        }
+        return plan;
+    }
+
+
+    /**
+     * Lines up files renamed since the split point in one branch with their old path in the other branch, so
+     * that the changes made on both sides are merged at the new path. The manifests are updated in place, and a
+     * removal of the old path is planned when the current branch still has it.
+     * @return - the new paths of the files the given branch renamed and the current branch still has at their
+     *           old path: the current version is moved there by a TAKE_GIVEN or a MERGE action
+     */
+    private static Set<String> followRenames(MergePlan plan, Map<String, ObjectId> split,
+                                             Map<String, ObjectId> active, Map<String, ObjectId> given){
+        HashMap<String, String> activeRenames = new HashMap<>();
+        for (RenameDetector.Rename rename : RenameDetector.detect(split, active, false)){
+            activeRenames.put(rename.oldPath, rename.newPath);
+        }
+        HashMap<String, String> givenRenames = new HashMap<>();
+        HashSet<String> renamed = new HashSet<>();
+        for (RenameDetector.Rename rename : RenameDetector.detect(split, given, false)){
+            givenRenames.put(rename.oldPath, rename.newPath);
+        }
+
+        for (Map.Entry<String, String> rename : givenRenames.entrySet()){
+            String oldPath = rename.getKey();
+            String newPath = rename.getValue();
+            String activeNewPath = activeRenames.get(oldPath);
+            if (activeNewPath != null){
+                // renamed on both sides: only line them up if both picked the same name
+                if (activeNewPath.equals(newPath)){
+                    split.put(newPath, split.remove(oldPath));
+                }
+                continue;
+            }
+            if (active.containsKey(oldPath) && !active.containsKey(newPath)){
+                ObjectId activeHash = active.remove(oldPath);
+                split.put(newPath, split.remove(oldPath));
+                active.put(newPath, activeHash);
+                renamed.add(newPath);
+                plan.actions.add(new Action(oldPath, Type.REMOVE, null, activeHash, null));
+            }
+        }
+
+        for (Map.Entry<String, String> rename : activeRenames.entrySet()){
+            String oldPath = rename.getKey();
+            String newPath = rename.getValue();
+            if (givenRenames.containsKey(oldPath)){
+                continue;
+            }
+            if (given.containsKey(oldPath) && !given.containsKey(newPath)){
+                split.put(newPath, split.remove(oldPath));
+                given.put(newPath, given.remove(oldPath));
+            }
+        }
+        return renamed;
+    }
+
+
+    /**
+     * Applies the plan to the working directory and stages the result.
+     * @param stageArea - the staging area, saved once after all the files were written
+     * @return - true if at least one file was left with conflicts
+     */
+    public boolean execute(Index stageArea){
+        Transaction transaction = new Transaction();
+        List<Outcome> outcomes = run(true, transaction);
+        transaction.commit();
+        boolean conflict = false;
+        for (Outcome outcome : outcomes){
+            Action action = outcome.action;
+            if (outcome.hash == null){
+                stageArea.stageRemoval(action.path, action.activeHash);
+            }else{
+                stageArea.stageFile(action.path, outcome.hash);
+            }
+            conflict |= outcome.conflict;
+        }
+        stageArea.saveToFile();
+        return conflict;
+    }
+
+
+    /**
+     * Computes the merged content without reading or writing the working directory. Blobs of cleanly merged
+     * files are added to the transaction, which the caller commits with the merged commit; nothing is saved for
+     * files left with conflicts.
+     * @param active - content of the current branch head
+     * @param conflicts - receives the paths that could not be merged cleanly
+     * @param transaction - receives the merged blobs
+     * @return - the content of the merged commit
+     */
+    public Manifest executeInMemory(Manifest active, List<String> conflicts, Transaction transaction){
+        HashMap<String, ObjectId> changed = new HashMap<>();
+        List<String> removed = new ArrayList<>();
+        for (Outcome outcome : run(false, transaction)){
+            if (outcome.conflict){
+                conflicts.add(outcome.action.path);
+            }else if (outcome.hash == null){
+                removed.add(outcome.action.path);
+            }else{
+                changed.put(outcome.action.path, outcome.hash);
+            }
+        }
+        return active.with(changed, removed);
+    }
+
+
+    /**
+     * Resolves every action on a pool of worker threads. The merged blobs to save are added to the transaction
+     * from this thread, as the outcomes are collected.
+     * @param writeTree - true to update the working directory, false to only save merged blobs
+     * @param transaction - receives the merged blobs
+     */
+    private List<Outcome> run(boolean writeTree, Transaction transaction){
+        List<Outcome> outcomes = new ArrayList<>();
+        SparseCheckout sparse = SparseCheckout.readFromFile();
+        Promisor.prefetch(blobsRead());
+        if (!actions.isEmpty()){
+            int threads = Math.min(actions.size(), Runtime.getRuntime().availableProcessors());
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try{
+                List<Future<Outcome>> futures = new ArrayList<>();
+                for (Action action : actions){
+                    boolean write = writeTree && sparse.matches(action.path);
+                    futures.add(pool.submit(() -> apply(action, write, !writeTree)));
+                }
+                for (Future<Outcome> future : futures){
+                    Outcome outcome = future.get();
+                    if (outcome.content != null){
+                        transaction.writeObject(outcome.hash.toString(), outcome.content);
+                    }
+                    outcomes.add(new Outcome(outcome.action, outcome.hash, outcome.conflict, null));
+                }
+            }catch (InterruptedException | ExecutionException e){
+                Throwable cause = e.getCause() == null ? e : e.getCause();
+                if (cause instanceof GitletException){
+                    throw (GitletException) cause;
+                }
+                throw error("Merge failed: %s", cause.getMessage());
+            }finally{
+                pool.shutdown();
+            }
+        }
+        return outcomes;
+    }
+
+
+    /**
+     * returns the blobs the actions read: the given version of the files taken from the given branch, and the
+     * three versions of the files merged
+     */
+    private List<String> blobsRead(){
+        List<String> blobs = new ArrayList<>();
+        for (Action action : actions){
+            if (action.type == Type.MERGE && action.splitHash != null) blobs.add(action.splitHash.toString());
+            if (action.type == Type.MERGE && action.activeHash != null) blobs.add(action.activeHash.toString());
+            if (action.type != Type.REMOVE && action.givenHash != null) blobs.add(action.givenHash.toString());
+        }
+        return blobs;
+    }
+
+
+    /**
+     * Performs a single action. Runs on a worker thread.
+     * @param writeTree - true to update the working file, false to return the merged blob to save (in memory
+     *                  merges and files outside of the sparse checkout)
+     * @param inMemory - true if the merge result is not staged, in which case conflicted blobs are not saved
+     */
+    private static Outcome apply(Action action, boolean writeTree, boolean inMemory){
+        File file = join(Repository.CWD, action.path);
+        switch (action.type){
+            case REMOVE:
+                if (writeTree) restrictDelete(file);
+                return new Outcome(action, null, false, null);
+            case TAKE_GIVEN:
+                if (writeTree) writeContents(file, Blob.readBlob(action.givenHash));
+                return new Outcome(action, action.givenHash, false, null);
+            default:
+                ThreeWayMerge.Result result = ThreeWayMerge.merge(readBlobOrEmpty(action.splitHash),
+                        readBlobOrEmpty(action.activeHash), readBlobOrEmpty(action.givenHash));
+                if (writeTree){
+                    writeContents(file, result.getContent());
+                    return new Outcome(action, ObjectId.parse(sha1(result.getContent())), result.hasConflicts(),
+                            null);
+                }
+                if (result.hasConflicts() && inMemory){
+                    return new Outcome(action, null, true, null);
+                }
+                return new Outcome(action, ObjectId.parse(sha1(result.getContent())), result.hasConflicts(),
+                        result.getContent());
+        }
+    }
+
+    /**
+     * returns the content of a blob, or an empty array when the file is absent from a commit.
+     */
+    private static byte[] readBlobOrEmpty(ObjectId id){
+        return id == null ? new byte[0] : Blob.readBlob(id);
+    }
+
+
+    public List<Action> getActions(){
+        return actions;
+    }
+
+    public boolean isEmpty(){
+        return actions.isEmpty();
+    }
+
+
+    /**
+     * The action planned for one path, with the blob ids of the path in the three commits (null if absent).
+     */
+    public static class Action {
+
+        public final String path;
+        public final Type type;
+        public final ObjectId splitHash;
+        public final ObjectId activeHash;
+        public final ObjectId givenHash;
+
+        private Action(String path, Type type, ObjectId splitHash, ObjectId activeHash, ObjectId givenHash){
+            this.path = path;
+            this.type = type;
+            this.splitHash = splitHash;
+            this.activeHash = activeHash;
+            this.givenHash = givenHash;
+        }
+    }
+
+
+    /**
+     * The result of one action: the blob id to stage (null to stage a removal), whether conflicts were left,
+     * and the merged content still to be saved (null if there is nothing to save).
+     */
+    private static class Outcome {
+
+        private final Action action;
+        private final ObjectId hash;
+        private final boolean conflict;
+        private final byte[] content;
+
+        private Outcome(Action action, ObjectId hash, boolean conflict, byte[] content){
+            this.action = action;
+            this.hash = hash;
+            this.conflict = conflict;
+            this.content = content;
+        }
+    }
+}
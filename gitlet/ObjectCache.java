@@ -0,0 +1,145 @@
+package gitlet;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * This class keeps recently read serialized files in memory for long running processes (see Daemon).
+ * An entry is only used while the file still has the same inode, modification time and size. Every write
+ * through Utils.writeObject replaces the file with a new one, so a cached entry can never hide an update.
+ * Commits are immutable once read (a new commit shares the Manifest of its parent, see
+ * Commit.cloneParentCommit), so they are kept deserialized and every caller gets the same instance. Other files
+ * are kept as bytes and deserialized on every read, so every caller gets its own copy: commands modify the
+ * index, refs and config they read.
+ */
+public class ObjectCache {
+
+    private static final long MAX_BYTES = 128L * 1024 * 1024;
+    private static final Set<Class<?>> IMMUTABLE = Set.of(Commit.class);
+
+    private static volatile boolean enabled = false;
+    private static final LinkedHashMap<String, Entry> ENTRIES = new LinkedHashMap<>(1024, 0.75f, true);
+    private static long cachedBytes = 0;
+    private static long hits = 0;
+    private static long misses = 0;
+
+
+    public static boolean isEnabled(){
+        return enabled;
+    }
+
+    public static void setEnabled(boolean value){
+        enabled = value;
+        if (!value){
+            clear();
+        }
+    }
+
+    public static synchronized void clear(){
+        ENTRIES.clear();
+        cachedBytes = 0;
+    }
+
+    public static synchronized long getHits(){
+        return hits;
+    }
+
+    public static synchronized long getMisses(){
+        return misses;
+    }
+
+
+    /**
+     * reads an object from a file, using the cached copy if the file did not change
+     * @param file
+     * @param type - the type of object stored in the file
+     * @return Object
+     */
+    public static <T extends Serializable> T read(File file, Class<T> type){
+        Path path = file.toPath();
+        BasicFileAttributes attributes;
+        try{
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        }catch (IOException e){
+            throw new IllegalArgumentException("An error occurred while reading the Object");
+        }
+        String key = path.toAbsolutePath().toString();
+
+        Entry entry;
+        synchronized (ObjectCache.class){
+            entry = ENTRIES.get(key);
+            if (entry != null && !entry.matches(attributes)){
+                remove(key);
+                entry = null;
+            }
+            if (entry != null) hits++; else misses++;
+        }
+        if (entry == null){
+            byte[] bytes = Utils.readContents(file);
+            entry = IMMUTABLE.contains(type) ? new Entry(attributes, null, deserialize(bytes))
+                    : new Entry(attributes, bytes, null);
+            synchronized (ObjectCache.class){
+                Entry old = ENTRIES.put(key, entry);
+                if (old != null) cachedBytes -= old.size;
+                cachedBytes += entry.size;
+                evict();
+            }
+        }
+        return type.cast(entry.object != null ? entry.object : deserialize(entry.bytes));
+    }
+
+    private static Object deserialize(byte[] bytes){
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return input.readObject();
+        }catch (IOException | ClassNotFoundException e){
+            throw new IllegalArgumentException("An error occurred while reading the Object");
+        }
+    }
+
+    private static void remove(String key){
+        Entry old = ENTRIES.remove(key);
+        if (old != null) cachedBytes -= old.size;
+    }
+
+    private static void evict(){
+        Iterator<Map.Entry<String, Entry>> oldest = ENTRIES.entrySet().iterator();
+        while (cachedBytes > MAX_BYTES && oldest.hasNext()){
+            cachedBytes -= oldest.next().getValue().size;
+            oldest.remove();
+        }
+    }
+
+
+    /**
+     * The content of a file as it was when it was read: its bytes, or the object itself for immutable types.
+     */
+    private static class Entry {
+
+        private final Object fileKey;
+        private final FileTime modified;
+        private final long size;
+        private final byte[] bytes;
+        private final Object object;
+
+        private Entry(BasicFileAttributes attributes, byte[] bytes, Object object){
+            this.fileKey = attributes.fileKey();
+            this.modified = attributes.lastModifiedTime();
+            this.size = attributes.size();
+            this.bytes = bytes;
+            this.object = object;
+        }
+
+        private boolean matches(BasicFileAttributes attributes){
+            return Objects.equals(fileKey, attributes.fileKey())
+                    && modified.equals(attributes.lastModifiedTime()) && size == attributes.size();
+        }
+    }
+}
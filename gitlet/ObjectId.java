@@ -0,0 +1,154 @@
+package gitlet;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Arrays;
+
+import static gitlet.Utils.*;
+
+/**
+ * This class represents the id of an object as the raw bytes of its hash (20 for sha1, 32 for sha256, see
+ * HashAlgorithm) instead of its hex form, which takes twice the bytes and twice the time to compare.
+ * Refs, commits and the index keep ids in this form; the hex form is only parsed and formatted where ids
+ * come from or go to the user or a file name.
+ *
+ * An ObjectId is immutable. Ids are uniformly distributed, so the first bytes make a good hash code.
+ */
+public final class ObjectId implements Serializable, Comparable<ObjectId> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final byte[] bytes;
+
+
+    private ObjectId(byte[] bytes){
+        this.bytes = bytes;
+    }
+
+
+    /**
+     * Parses the hex form of an id.
+     * @param hex - an id, as printed by toString
+     * @return - the id, or null if hex is null
+     */
+    public static ObjectId parse(String hex){
+        if (hex == null){
+            return null;
+        }
+        if (!isLength(hex.length())){
+            throw error("Not an object id: %s", hex);
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++){
+            int high = Character.digit(hex.charAt(2 * i), 16);
+            int low = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0){
+                throw error("Not an object id: %s", hex);
+            }
+            bytes[i] = (byte) (high << 4 | low);
+        }
+        return new ObjectId(bytes);
+    }
+
+
+    // true if a hex id of that length is the id of one of the hash algorithms
+    private static boolean isLength(int hexLength){
+        for (HashAlgorithm algorithm : HashAlgorithm.values()){
+            if (algorithm.getHexLength() == hexLength){
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * returns the id of a digest, which the id keeps: the caller must not modify it afterwards
+     */
+    static ObjectId wrap(byte[] digest){
+        return new ObjectId(digest);
+    }
+
+
+    /**
+     * returns the id stored at an offset of a packed array of ids (see Manifest)
+     */
+    static ObjectId fromBytes(byte[] packed, int offset, int length){
+        return new ObjectId(Arrays.copyOfRange(packed, offset, offset + length));
+    }
+
+
+    /**
+     * returns true if this id is the one stored at an offset of a packed array of ids, without copying it
+     */
+    boolean equalsAt(byte[] packed, int offset){
+        return offset + bytes.length <= packed.length
+                && Arrays.equals(bytes, 0, bytes.length, packed, offset, offset + bytes.length);
+    }
+
+
+    /**
+     * copies the bytes of the id into a packed array of ids
+     */
+    void copyTo(byte[] packed, int offset){
+        System.arraycopy(bytes, 0, packed, offset, bytes.length);
+    }
+
+
+    /**
+     * writes the bytes of the id, preceded by their number
+     */
+    void write(DataOutput out) throws IOException {
+        out.writeByte(bytes.length);
+        out.write(bytes);
+    }
+
+
+    /**
+     * reads an id written by write
+     */
+    static ObjectId read(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readUnsignedByte()];
+        in.readFully(bytes);
+        return new ObjectId(bytes);
+    }
+
+
+    /**
+     * returns the number of bytes of the id
+     */
+    public int length(){
+        return bytes.length;
+    }
+
+
+    /**
+     * returns the hex form of an id, or null if it is null
+     */
+    public static String format(ObjectId id){
+        return id == null ? null : id.toString();
+    }
+
+
+    @Override
+    public String toString(){
+        return HashAlgorithm.toHex(bytes);
+    }
+
+    @Override
+    public boolean equals(Object o){
+        return o instanceof ObjectId && Arrays.equals(bytes, ((ObjectId) o).bytes);
+    }
+
+    @Override
+    public int hashCode(){
+        return (bytes[0] & 0xff) << 24 | (bytes[1] & 0xff) << 16 | (bytes[2] & 0xff) << 8 | (bytes[3] & 0xff);
+    }
+
+    @Override
+    public int compareTo(ObjectId other){
+        return Arrays.compareUnsigned(bytes, other.bytes);
+    }
+}
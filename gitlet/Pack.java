@@ -0,0 +1,304 @@
+package gitlet;
+
+import java.io.*;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+import static gitlet.Utils.*;
+
+/**
+ * This class transfers objects between repositories as one stream, a pack, instead of one file copy each.
+ * A pack is written and read in a single pass, one object at a time, so memory use is bounded by the largest
+ * object whatever the size of the pack.
+ *
+ * Format:
+ *  "GLPK", version (int)
+ *  for every object: type (byte, BLOB or COMMIT), id (UTF), length (int), content (length bytes)
+ *  END (byte)
+ *  SHA-1 of everything before (20 bytes)
+ *
+ * Objects are listed so that every object comes after the objects it refers to: the blobs of a commit before
+ * the commit, a parent before its children (see Builder). The reader checks every blob against its id and every
+ * commit is a readable Commit; the objects are published only once the checksum of the whole pack matched.
+ */
+public class Pack {
+
+    public static final byte END = 0;
+    public static final byte BLOB = 1;
+    public static final byte COMMIT = 2;
+
+    private static final byte[] MAGIC = {'G', 'L', 'P', 'K'};
+    private static final int VERSION = 1;
+    private static final int PIPE_SIZE = 64 * 1024;
+
+
+    /**
+     * An object to send: its type and id.
+     */
+    public static class Entry {
+
+        final byte type;
+        final String id;
+
+        Entry(byte type, String id){
+            this.type = type;
+            this.id = id;
+        }
+    }
+
+
+    /**
+     * This class selects the objects a receiver lacks. For each commit wanted, the parents are walked until a
+     * commit the receiver has; the commits walked are listed oldest first, each preceded by the blobs it adds to
+     * its parent that the receiver lacks. The receiver has every blob of the parent of the oldest commit, so
+     * the blobs of a commit only need checking against its parent, not against the whole history.
+     */
+    public static class Builder {
+
+        private final File source;
+        private final List<Entry> entries = new ArrayList<>();
+        private final HashSet<String> listed = new HashSet<>();
+        private int commitCount = 0;
+
+        /**
+         * @param source - object folder of the sending repository
+         */
+        public Builder(File source){
+            this.source = source;
+        }
+
+        /**
+         * Walks the parents of a commit until a commit the receiver has or a commit already listed.
+         * @param want - the commit to send
+         * @param has - true for the commits the receiver has
+         * @return - the commits walked, oldest first
+         */
+        public List<String> walk(String want, Predicate<String> has){
+            LinkedList<String> missing = new LinkedList<>();
+            for (String id = want; id != null && !listed.contains(id) && !has.test(id); ){
+                missing.addFirst(id);
+                id = readCommit(id).getParent();
+                Perf.commitTraversed();
+            }
+            return missing;
+        }
+
+        /**
+         * Lists commits returned by walk, and the blobs they add.
+         * @param commits - the commits, oldest first
+         * @param has - true for the blobs the receiver has
+         */
+        public void add(List<String> commits, Predicate<String> has){
+            if (commits.isEmpty()){
+                return;
+            }
+            String oldestParent = readCommit(commits.get(0)).getParent();
+            Set<String> previous = oldestParent == null ? new HashSet<>()
+                    : new HashSet<>(readCommit(oldestParent).getContent().values());
+            for (String id : commits){
+                Collection<String> blobs = readCommit(id).getContent().values();
+                for (String blob : blobs){
+                    if (!previous.contains(blob) && listed.add(blob) && !has.test(blob)){
+                        entries.add(new Entry(BLOB, blob));
+                    }
+                }
+                listed.add(id);
+                entries.add(new Entry(COMMIT, id));
+                commitCount++;
+                previous = new HashSet<>(blobs);
+            }
+        }
+
+        public boolean isListed(String id){
+            return listed.contains(id);
+        }
+
+        Commit readCommit(String id){
+            return readObjectFromFile(getHashAsFile(source, id), Commit.class);
+        }
+
+        public List<Entry> getEntries(){
+            return entries;
+        }
+
+        public int getCommitCount(){
+            return commitCount;
+        }
+
+        public int getBlobCount(){
+            return entries.size() - commitCount;
+        }
+    }
+
+
+    /**
+     * Writes a pack of objects read from an object folder.
+     * @param out - the stream to write to, left open
+     * @param objectFolder - the objects directory the objects are read from
+     * @param entries - the objects to write, in order
+     */
+    public static void write(OutputStream out, File objectFolder, List<Entry> entries) throws IOException {
+        MessageDigest digest = newDigest();
+        BufferedOutputStream buffered = new BufferedOutputStream(out, PIPE_SIZE);
+        DigestOutputStream digested = new DigestOutputStream(buffered, digest);
+        DataOutputStream data = new DataOutputStream(digested);
+        data.write(MAGIC);
+        data.writeInt(VERSION);
+        for (Entry entry : entries){
+            byte[] content = readContents(getHashAsFile(objectFolder, entry.id));
+            data.writeByte(entry.type);
+            data.writeUTF(entry.id);
+            data.writeInt(content.length);
+            data.write(content);
+        }
+        data.writeByte(END);
+        data.flush();
+        buffered.write(digest.digest());
+        buffered.flush();
+    }
+
+
+    /**
+     * Reads a pack and publishes its objects in a transaction, once the whole pack was read and verified.
+     * Nothing is published if the pack is corrupt or truncated.
+     * @param in - the stream to read from
+     * @param transaction - the transaction to write the objects to
+     * @return - the number of objects read
+     */
+    public static int read(InputStream in, Transaction transaction) throws IOException {
+        MessageDigest digest = newDigest();
+        BufferedInputStream buffered = new BufferedInputStream(in, PIPE_SIZE);
+        DataInputStream data = new DataInputStream(new DigestInputStream(buffered, digest));
+        int count = 0;
+        try{
+            byte[] magic = new byte[MAGIC.length];
+            data.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC) || data.readInt() != VERSION){
+                throw error("Not a gitlet pack");
+            }
+            for (byte type = data.readByte(); type != END; type = data.readByte()){
+                String id = data.readUTF();
+                checkEntry(type, id);
+                byte[] content = new byte[data.readInt()];
+                data.readFully(content);
+                verify(type, id, content);
+                transaction.writeObject(id, content);
+                count++;
+            }
+            byte[] expected = digest.digest();
+            byte[] checksum = new byte[expected.length];
+            new DataInputStream(buffered).readFully(checksum);
+            if (!MessageDigest.isEqual(expected, checksum)){
+                throw error("Corrupt pack: checksum mismatch");
+            }
+        }catch (EOFException e){
+            transaction.abort();
+            throw error("Corrupt pack: truncated after %d objects", count);
+        }catch (IOException | RuntimeException e){
+            transaction.abort();
+            throw e;
+        }
+        transaction.commit();
+        return count;
+    }
+
+
+    /**
+     * Copies objects from one object folder into a transaction through a pack, written by a second thread while
+     * this one reads it.
+     * @param objectFolder - the objects directory the objects are read from
+     * @param entries - the objects to copy, in order
+     * @param transaction - the transaction to write the objects to
+     * @return - the number of objects copied
+     */
+    public static int copy(File objectFolder, List<Entry> entries, Transaction transaction){
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        PipedInputStream in = new PipedInputStream(PIPE_SIZE);
+        Thread writer;
+        try{
+            PipedOutputStream out = new PipedOutputStream(in);
+            writer = new Thread(() -> {
+                try (OutputStream pipe = out) {
+                    write(pipe, objectFolder, entries);
+                }catch (IOException | RuntimeException e){
+                    failure.set(e);
+                }
+            }, "gitlet-pack-writer");
+        }catch (IOException e){
+            throw error("Could not open a pack stream: %s", e.getMessage());
+        }
+        writer.start();
+        try{
+            return read(in, transaction);
+        }catch (IOException | RuntimeException e){
+            // the writer's error, if any, is the cause of the broken pack
+            join(writer, in);
+            if (failure.get() != null){
+                throw error("Could not send objects: %s", failure.get().getMessage());
+            }
+            throw e instanceof GitletException ? (GitletException) e : error("Could not receive objects: %s",
+                    e.getMessage());
+        }finally{
+            join(writer, in);
+        }
+    }
+
+    private static void join(Thread writer, PipedInputStream in){
+        try{
+            // closing the read end unblocks a writer waiting for room in the pipe
+            in.close();
+            writer.join();
+        }catch (IOException e){
+            // nothing left to read
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * checks the type and id of an entry read from a stream, before using the id as a file name
+     */
+    static void checkEntry(byte type, String id){
+        if (!isObjectId(id) || (type != BLOB && type != COMMIT)){
+            throw error("Corrupt pack: bad entry %s", id);
+        }
+    }
+
+    /**
+     * checks the content of an object read from a stream: a blob must match its id, a commit must be readable
+     */
+    static void verify(byte type, String id, byte[] content){
+        if (type == BLOB && !sha1(content).equals(id)){
+            throw error("Corrupt pack: blob %s does not match its id", id);
+        }
+        if (type == COMMIT){
+            deserialize(content, Commit.class);
+        }
+    }
+
+    private static boolean isObjectId(String id){
+        if (id.length() != HashAlgorithm.current().getHexLength()){
+            return false;
+        }
+        for (int i = 0; i < id.length(); i++){
+            if (Character.digit(id.charAt(i), 16) < 0 || Character.isUpperCase(id.charAt(i))){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static MessageDigest newDigest(){
+        try{
+            return MessageDigest.getInstance("SHA-1");
+        }catch (NoSuchAlgorithmException e){
+            throw new IllegalArgumentException("System does not support SHA-1");
+        }
+    }
+}
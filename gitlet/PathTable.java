@@ -0,0 +1,114 @@
+package gitlet;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+
+import static gitlet.Utils.*;
+
+/**
+ * This class stores the sorted paths of manifests and of the index, on disk and in memory.
+ *
+ * On disk the paths are front-coded: each path is written as the length of the prefix it shares with the
+ * previous one, followed by the rest of it. Sorted paths of a wide repository share most of their directories,
+ * so this takes a fraction of the bytes of writing every path in full.
+ *
+ * In memory every path read goes through one intern pool, so the commits loaded by a long traversal (getSplit,
+ * globalLog, a merge) share a single String per distinct path instead of holding one copy per commit. The pool
+ * only keeps weak references: paths no loaded commit uses any more are collected.
+ */
+public class PathTable {
+
+    private static final WeakHashMap<String, WeakReference<String>> POOL = new WeakHashMap<>();
+
+
+    /**
+     * returns the pooled String equal to a path, pooling the path itself if there is none
+     */
+    public static String intern(String path){
+        synchronized (POOL){
+            return internLocked(path);
+        }
+    }
+
+    private static String internLocked(String path){
+        WeakReference<String> reference = POOL.get(path);
+        String pooled = reference == null ? null : reference.get();
+        if (pooled == null){
+            POOL.put(path, new WeakReference<>(path));
+            pooled = path;
+        }
+        return pooled;
+    }
+
+
+    /**
+     * Writes sorted paths front-coded.
+     * @param out - the stream to write to
+     * @param paths - paths in sorted order
+     */
+    public static void write(DataOutput out, String[] paths) throws IOException {
+        out.writeInt(paths.length);
+        String previous = "";
+        for (String path : paths){
+            int prefix = 0;
+            int max = Math.min(previous.length(), path.length());
+            while (prefix < max && previous.charAt(prefix) == path.charAt(prefix)){
+                prefix++;
+            }
+            writeLength(out, prefix);
+            out.writeUTF(path.substring(prefix));
+            previous = path;
+        }
+    }
+
+
+    /**
+     * Reads paths written by write, interned.
+     * @param in - the stream to read from
+     * @return - the paths, in the order they were written
+     */
+    public static String[] read(DataInput in) throws IOException {
+        int count = in.readInt();
+        if (count < 0){
+            throw new IOException("Bad path table size " + count);
+        }
+        String[] paths = new String[count];
+        String previous = "";
+        synchronized (POOL){
+            for (int i = 0; i < count; i++){
+                int prefix = readLength(in);
+                if (prefix > previous.length()){
+                    throw new IOException("Bad path table prefix " + prefix);
+                }
+                String path = previous.substring(0, prefix).concat(in.readUTF());
+                paths[i] = internLocked(path);
+                previous = paths[i];
+            }
+        }
+        return paths;
+    }
+
+
+    // shared prefixes are mostly short: a byte below 128, else two more bytes
+    private static void writeLength(DataOutput out, int length) throws IOException {
+        if (length < 0x80){
+            out.writeByte(length);
+        }else if (length <= 0x7fffff){
+            out.writeByte(0x80 | (length >>> 16));
+            out.writeShort(length & 0xffff);
+        }else{
+            throw error("Path too long: %d characters", length);
+        }
+    }
+
+    private static int readLength(DataInput in) throws IOException {
+        int first = in.readUnsignedByte();
+        if (first < 0x80){
+            return first;
+        }
+        return (first & 0x7f) << 16 | in.readUnsignedShort();
+    }
+}
@@ -0,0 +1,287 @@
+package gitlet;
+
+import jdk.jfr.*;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static gitlet.Utils.*;
+
+/**
+ * This class instruments the hot paths of gitlet.
+ *
+ * Every hashing, object read and write, file read and write, directory listing and wait for the repository
+ * lock (see RepoLock) emits a gitlet.Operation JDK Flight Recorder event, and every phase of a command a
+ * gitlet.Phase event, so a recording (java -XX:StartFlightRecording=filename=gitlet.jfr ...) shows where a slow
+ * command spends its time.
+ * With the --trace-perf flag the same data is also counted in process and reported when the command ends:
+ *
+ *  java gitlet.Main --trace-perf COMMAND ...              prints a summary on standard error
+ *  java gitlet.Main --trace-perf=FILE.json COMMAND ...    writes the counters as JSON to FILE.json
+ *
+ * Counting is skipped entirely when the flag is not given; events cost nothing unless a recording is running.
+ */
+public class Perf {
+
+    /**
+     * The instrumented operations. For each one the calls, bytes and time spent are counted.
+     */
+    public enum Op {
+        SHA1("sha1"),
+        READ_OBJECT("readObject"),
+        WRITE_OBJECT("writeObject"),
+        READ_FILE("readFile"),
+        WRITE_FILE("writeFile"),
+        LIST_DIR("listDir"),
+        LOCK_SHARED("lockShared"),
+        LOCK_EXCLUSIVE("lockExclusive");
+
+        private final String label;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        Op(String label){
+            this.label = label;
+        }
+    }
+
+    private static volatile boolean enabled = false;
+    private static File reportFile = null;
+    private static final LongAdder COMMITS_TRAVERSED = new LongAdder();
+    private static final Map<String, Timer> PHASES = new ConcurrentHashMap<>();
+
+
+    public static boolean isEnabled(){
+        return enabled;
+    }
+
+    public static void setEnabled(boolean value){
+        enabled = value;
+    }
+
+
+    /**
+     * Starts timing an operation.
+     * @return - the event to pass to end
+     */
+    public static OperationEvent begin(Op op){
+        OperationEvent event = new OperationEvent();
+        event.operation = op.label;
+        event.begin();
+        if (enabled){
+            event.startNanos = System.nanoTime();
+        }
+        return event;
+    }
+
+
+    /**
+     * Ends an operation started with begin.
+     * @param op - the operation
+     * @param event - the event returned by begin
+     * @param path - the file or directory the operation worked on, null for hashing
+     * @param bytes - bytes hashed, read or written, or the number of entries of a listed directory
+     */
+    public static void end(Op op, OperationEvent event, File path, long bytes){
+        event.end();
+        if (enabled){
+            op.calls.increment();
+            op.bytes.add(bytes);
+            op.nanos.add(System.nanoTime() - event.startNanos);
+        }
+        if (event.shouldCommit()){
+            event.path = path == null ? null : path.getPath();
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+
+
+    /**
+     * counts commits visited by a walk of the history
+     */
+    public static void commitTraversed(){
+        if (enabled){
+            COMMITS_TRAVERSED.increment();
+        }
+    }
+
+
+    /**
+     * Starts a phase of a command, ended by closing the returned object:
+     *  try (Perf.Phase phase = Perf.phase("status.scan")) { ... }
+     * @param name - name of the phase
+     * @return - Phase
+     */
+    public static Phase phase(String name){
+        return new Phase(name);
+    }
+
+
+    /**
+     * Handles a --trace-perf[=FILE.json] flag in front of a command: counting starts from zero for the command.
+     * @param args - command line arguments
+     * @return - the arguments of the command, without the flag
+     */
+    static String[] startTrace(String[] args){
+        if (args.length == 0 || !args[0].startsWith("--trace-perf")){
+            return args;
+        }
+        reset();
+        enabled = true;
+        reportFile = args[0].startsWith("--trace-perf=") ? new File(args[0].substring("--trace-perf=".length()))
+                : null;
+        return Arrays.copyOfRange(args, 1, args.length);
+    }
+
+    /**
+     * Ends the trace started by startTrace, if any: reports the counters and stops counting.
+     * @param out - stream the summary is printed to, when no JSON file was given
+     */
+    static void endTrace(PrintStream out){
+        if (enabled){
+            report(reportFile, out);
+            enabled = false;
+            reportFile = null;
+        }
+    }
+
+    private static void reset(){
+        for (Op op : Op.values()){
+            op.calls.reset();
+            op.bytes.reset();
+            op.nanos.reset();
+        }
+        COMMITS_TRAVERSED.reset();
+        PHASES.clear();
+    }
+
+
+    /**
+     * Reports the counters: a summary on standard error, or JSON in the given file.
+     * @param jsonFile - file to write the JSON report to, null for the summary
+     */
+    public static void report(File jsonFile){
+        report(jsonFile, System.err);
+    }
+
+    private static void report(File jsonFile, PrintStream out){
+        if (jsonFile != null){
+            writeContents(jsonFile, toJson());
+            return;
+        }
+        out.println("gitlet perf:");
+        out.printf("  %-12s %10s %14s %12s%n", "operation", "calls", "bytes", "ms");
+        for (Op op : Op.values()){
+            if (op.calls.sum() == 0) continue;
+            out.printf("  %-12s %10d %14d %12.3f%n", op.label, op.calls.sum(), op.bytes.sum(), op.nanos.sum() / 1e6);
+        }
+        out.printf("  %-28s %6s %12s%n", "phase", "count", "ms");
+        for (Map.Entry<String, Timer> phase : new TreeMap<>(PHASES).entrySet()){
+            out.printf("  %-28s %6d %12.3f%n", phase.getKey(), phase.getValue().count.sum(),
+                    phase.getValue().nanos.sum() / 1e6);
+        }
+        out.println("  commits traversed: " + COMMITS_TRAVERSED.sum());
+        out.println("  object cache: " + ObjectCache.getHits() + " hits, " + ObjectCache.getMisses() + " misses");
+    }
+
+
+    /**
+     * returns the counters as a JSON object
+     */
+    static String toJson(){
+        StringBuilder json = new StringBuilder("{\n  \"operations\": {");
+        String separator = "\n";
+        for (Op op : Op.values()){
+            json.append(separator).append("    \"").append(op.label).append("\": {\"calls\": ").append(op.calls.sum())
+                    .append(", \"bytes\": ").append(op.bytes.sum()).append(", \"nanos\": ").append(op.nanos.sum())
+                    .append('}');
+            separator = ",\n";
+        }
+        json.append("\n  },\n  \"phases\": {");
+        separator = "\n";
+        for (Map.Entry<String, Timer> phase : new TreeMap<>(PHASES).entrySet()){
+            json.append(separator).append("    \"").append(phase.getKey()).append("\": {\"count\": ")
+                    .append(phase.getValue().count.sum()).append(", \"nanos\": ")
+                    .append(phase.getValue().nanos.sum()).append('}');
+            separator = ",\n";
+        }
+        json.append("\n  },\n  \"commitsTraversed\": ").append(COMMITS_TRAVERSED.sum())
+                .append(",\n  \"objectCacheHits\": ").append(ObjectCache.getHits())
+                .append(",\n  \"objectCacheMisses\": ").append(ObjectCache.getMisses())
+                .append("\n}\n");
+        return json.toString();
+    }
+
+
+    /**
+     * A running phase of a command.
+     */
+    public static class Phase implements AutoCloseable {
+
+        private final String name;
+        private final PhaseEvent event = new PhaseEvent();
+        private final long start;
+
+        private Phase(String name){
+            this.name = name;
+            this.start = enabled ? System.nanoTime() : 0;
+            event.begin();
+        }
+
+        @Override
+        public void close(){
+            event.end();
+            if (enabled){
+                Timer timer = PHASES.computeIfAbsent(name, k -> new Timer());
+                timer.count.increment();
+                timer.nanos.add(System.nanoTime() - start);
+            }
+            if (event.shouldCommit()){
+                event.phase = name;
+                event.commit();
+            }
+        }
+    }
+
+    private static class Timer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+    }
+
+
+    @Name("gitlet.Operation")
+    @Label("Gitlet Operation")
+    @Category("Gitlet")
+    @Description("A hash, an object or file read or write, a directory listing or a wait for the repository lock")
+    @StackTrace(false)
+    static class OperationEvent extends Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("Path")
+        String path;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+
+        transient long startNanos;
+    }
+
+    @Name("gitlet.Phase")
+    @Label("Gitlet Phase")
+    @Category("Gitlet")
+    @Description("A phase of a gitlet command")
+    @StackTrace(false)
+    static class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+    }
+}
@@ -0,0 +1,83 @@
+package gitlet;
+
+import java.io.File;
+import java.util.*;
+
+import static gitlet.Utils.*;
+
+/**
+ * This class fetches the blobs missing from a partial clone (clone --blobless). A partial clone has every commit
+ * but only the blobs it checked out; the remote it was cloned from, named by the remote.promisor setting,
+ * promises to have the others.
+ *
+ * Operations that read many blobs call prefetch first with every blob they will read, so the missing ones come
+ * from the remote in one pack per operation (checkout, merge, push, bundle). Blob.readBlob fetches any blob still
+ * missing on its own, so an operation never fails for lack of a blob the remote has.
+ * Repositories without the setting are complete and prefetch does nothing.
+ */
+public class Promisor {
+
+    public static final String REMOTE_KEY = "remote.promisor";
+
+
+    /**
+     * returns the name of the remote that has the blobs missing here, or null for a complete repository
+     */
+    public static String getRemoteName(){
+        return Config.readFromFile().get(REMOTE_KEY);
+    }
+
+
+    /**
+     * Fetches the blobs missing from the object folder, all in one pack.
+     * @param blobs - the blobs an operation is about to read
+     * @return - the number of blobs fetched
+     */
+    public static synchronized int prefetch(Collection<String> blobs){
+        String remoteName = getRemoteName();
+        if (remoteName == null){
+            return 0;
+        }
+        LinkedHashSet<String> missing = new LinkedHashSet<>();
+        for (String blob : blobs){
+            if (!getHashAsFile(blob).isFile()){
+                missing.add(blob);
+            }
+        }
+        if (missing.isEmpty()){
+            return 0;
+        }
+        File remoteObjects = join(Remote.getRemote(remoteName).directory(), "objects");
+        List<Pack.Entry> entries = new ArrayList<>();
+        for (String blob : missing){
+            if (!getHashAsFile(remoteObjects, blob).isFile()){
+                throw error("Blob %s is missing here and in remote %s", blob, remoteName);
+            }
+            entries.add(new Pack.Entry(Pack.BLOB, blob));
+        }
+        Perf.Phase fetchPhase = Perf.phase("promisor.fetch");
+        try{
+            return Pack.copy(remoteObjects, entries, new Transaction());
+        }finally{
+            fetchPhase.close();
+        }
+    }
+
+
+    /**
+     * Fetches the blobs of a pack that are missing from the object folder, before it is written.
+     * @param entries - the objects of the pack
+     */
+    public static void prefetchEntries(List<Pack.Entry> entries){
+        if (getRemoteName() == null){
+            return;
+        }
+        List<String> blobs = new ArrayList<>();
+        for (Pack.Entry entry : entries){
+            if (entry.type == Pack.BLOB){
+                blobs.add(entry.id);
+            }
+        }
+        prefetch(blobs);
+    }
+}
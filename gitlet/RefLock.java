@@ -0,0 +1,104 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import static gitlet.Utils.*;
+
+/**
+ * This class guards the update of one ref file (a branch or HEAD) with a lock file, so concurrent writers of
+ * different refs never wait for each other. The lock is NAME.lock, created exclusively next to the ref; the new
+ * content of the ref is written to it and renamed over the ref, so readers only ever see the old or the new ref.
+ * A writer that finds the lock taken retries for a while, then gives up.
+ *
+ *  try (RefLock lock = RefLock.acquire(refFile)) {
+ *      ... read the ref, compare it with the expected value ...
+ *      lock.commit(newContent);
+ *  }
+ */
+public class RefLock implements AutoCloseable {
+
+    public static final String SUFFIX = ".lock";
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    private final File target;
+    private final File lockFile;
+    private boolean committed = false;
+
+
+    private RefLock(File target, File lockFile){
+        this.target = target;
+        this.lockFile = lockFile;
+    }
+
+
+    /**
+     * Creates the lock file of a ref, waiting while another writer holds it.
+     * @param target - the ref file
+     * @return - the lock, to commit or close
+     */
+    public static RefLock acquire(File target){
+        File lockFile = new File(target.getPath() + SUFFIX);
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        long backoff = 1;
+        while (true){
+            try{
+                Files.createFile(lockFile.toPath());
+                return new RefLock(target, lockFile);
+            }catch (FileAlreadyExistsException e){
+                if (System.currentTimeMillis() > deadline){
+                    throw error("Could not lock %s: %s exists. If no other gitlet command is running, delete it.",
+                            target.getName(), lockFile.getPath());
+                }
+                try{
+                    Thread.sleep(backoff);
+                }catch (InterruptedException interrupted){
+                    Thread.currentThread().interrupt();
+                    throw error("Interrupted while waiting for %s", lockFile.getPath());
+                }
+                backoff = Math.min(backoff * 2, 50);
+            }catch (IOException e){
+                throw error("Could not lock %s: %s", target.getName(), e.getMessage());
+            }
+        }
+    }
+
+
+    /**
+     * Replaces the ref with new content and releases the lock.
+     * @param content - the new content of the ref file
+     */
+    public void commit(byte[] content){
+        boolean sync = Transaction.isDurable();
+        try (FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()){
+                channel.write(buffer);
+            }
+            if (sync){
+                channel.force(true);
+            }
+        }catch (IOException e){
+            throw error("Could not write %s: %s", lockFile.getPath(), e.getMessage());
+        }
+        Transaction.moveAtomically(lockFile, target);
+        committed = true;
+        if (sync){
+            Transaction.forceDirectory(target.getAbsoluteFile().getParentFile());
+        }
+    }
+
+
+    // releases the lock without changing the ref if commit was not called
+    @Override
+    public void close(){
+        if (!committed){
+            lockFile.delete();
+        }
+    }
+}
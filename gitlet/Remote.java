@@ -0,0 +1,268 @@
+package gitlet;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.*;
+
+import static gitlet.Utils.*;
+
+/**
+ * This class represents a remote: another repository on the local filesystem, known by a name and saved in
+ * .gitlet/remotes/NAME. Commits are pushed to and fetched from its branches.
+ *
+ *  add-remote NAME PATH    PATH is the .gitlet directory of the other repository, or the directory holding it
+ *  rm-remote NAME
+ *  push NAME BRANCH        moves BRANCH of the remote to the head commit, if that is a fast-forward
+ *  fetch NAME BRANCH       copies BRANCH of the remote into the local branch NAME/BRANCH
+ *
+ * Both transfers work the same way. The receiving side advertises the commits its branches point at (the
+ * haves); the sending side walks the parents of the commit to send (the want) until it reaches a have or a
+ * commit the receiver already stores, and sends only the commits walked and the blobs they add, oldest first,
+ * as one pack (see Pack.Builder). A sync after a small commit reads a few commits, whatever the size of the
+ * history. The working directory of the remote is never touched.
+ */
+public class Remote implements Serializable, Dumpable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final File REMOTES_DIR = join(Repository.GITLET_DIR, "remotes");
+
+    private final String name;
+    // absolute path of the .gitlet directory of the remote
+    private final String path;
+
+
+    private Remote(String name, String path){
+        this.name = name;
+        this.path = path;
+    }
+
+
+    /**
+     * Saves a new remote.
+     * @param name - name of the remote
+     * @param path - the .gitlet directory of the remote, or the directory holding it; relative to the
+     *             working directory, with / as separator
+     */
+    public static void addRemote(String name, String path){
+        if (name.contains("/") || name.endsWith(RefLock.SUFFIX)){
+            exitWithError("A remote name cannot contain / or end with " + RefLock.SUFFIX, 0);
+        }
+        File file = join(REMOTES_DIR, name);
+        if (file.isFile()){
+            exitWithError("A remote with that name already exists.", 0);
+        }
+        REMOTES_DIR.mkdir();
+        writeObject(file, new Remote(name, resolve(path).getPath()));
+    }
+
+
+    /**
+     * returns the absolute path of the .gitlet directory a path names
+     * @param path - the .gitlet directory, or the directory holding it; relative to the working directory,
+     *             with / as separator
+     */
+    static File resolve(String path){
+        File dir = new File(path.replace("/", File.separator));
+        if (!dir.isAbsolute()){
+            dir = join(Repository.CWD, dir.getPath());
+        }
+        if (join(dir, ".gitlet").isDirectory()){
+            dir = join(dir, ".gitlet");
+        }
+        return dir.toPath().normalize().toFile();
+    }
+
+
+    /**
+     * Forgets a remote. Branches fetched from it are kept.
+     * @param name - name of the remote
+     */
+    public static void removeRemote(String name){
+        getRemote(name);
+        join(REMOTES_DIR, name).delete();
+    }
+
+
+    /**
+     * reads the remote with the given name
+     */
+    static Remote getRemote(String name){
+        File file = join(REMOTES_DIR, name);
+        if (name.contains("/") || !file.isFile()){
+            exitWithError("A remote with that name does not exist.", 0);
+        }
+        return readObjectFromFile(file, Remote.class);
+    }
+
+
+    /**
+     * Sends the head commit to a branch of the remote, with every commit and blob the remote does not have.
+     * The branch is created if it does not exist; otherwise it must be an ancestor of the head commit.
+     * @param remoteName - name of the remote
+     * @param branchName - branch of the remote to move
+     */
+    public static void push(String remoteName, String branchName){
+        Remote remote = getRemote(remoteName);
+        File dir = remote.directory();
+        String want = Branch.getActiveBranch().getRef();
+        File branchFile = join(dir, "refs", "heads", branchName);
+        String theirs = branchFile.isFile() ? readObjectFromFile(branchFile, Branch.class).getRef() : null;
+        if (theirs != null && !isAncestor(theirs, want)){
+            exitWithError("Please pull down remote changes before pushing.", 0);
+        }
+
+        File objects = join(dir, "objects");
+        int[] sent = transfer(Commit.OBJECT_FOLDER, want, advertisedRefs(dir), objects, false);
+
+        Branch branch = new Branch(branchName);
+        branch.setRef(want);
+        try (RefLock lock = RefLock.acquire(branchFile)) {
+            String current = branchFile.isFile() ? readObjectFromFile(branchFile, Branch.class).getRef() : null;
+            if (!Objects.equals(current, theirs)){
+                throw new GitletException.ConcurrentUpdateException("Branch " + branchName
+                        + " was changed on the remote while pushing; fetch and push again.");
+            }
+            lock.commit(serialize(branch));
+        }
+        System.out.println("Pushed " + sent[0] + " commits and " + sent[1] + " blobs to " + remoteName + "/"
+                + branchName + ".");
+    }
+
+
+    /**
+     * Copies a branch of the remote, with every commit and blob missing here, into the local branch NAME/BRANCH.
+     * @param remoteName - name of the remote
+     * @param branchName - branch of the remote
+     */
+    public static void fetch(String remoteName, String branchName){
+        Remote remote = getRemote(remoteName);
+        File dir = remote.directory();
+        File branchFile = join(dir, "refs", "heads", branchName);
+        if (!branchFile.isFile()){
+            exitWithError("That remote does not have that branch.", 0);
+        }
+        String want = readObjectFromFile(branchFile, Branch.class).getRef();
+
+        // a partial clone leaves the blobs on the remote it was cloned from (see Promisor)
+        boolean blobless = remoteName.equals(Promisor.getRemoteName());
+        int[] received = transfer(join(dir, "objects"), want, advertisedRefs(Repository.GITLET_DIR),
+                Commit.OBJECT_FOLDER, blobless);
+
+        Branch tracking = new Branch(remoteName + "/" + branchName);
+        join(Repository.GITLET_DIR, "refs", "heads", remoteName).mkdir();
+        String current = tracking.exist() ? Branch.getBranch(tracking.getName()).getRef() : null;
+        if (!tracking.compareAndSetRef(current, want)){
+            throw new GitletException.ConcurrentUpdateException("Branch " + tracking.getName()
+                    + " was changed by another command while fetching; fetch again.");
+        }
+        System.out.println("Fetched " + received[0] + " commits and " + received[1] + " blobs into "
+                + tracking.getName() + ".");
+    }
+
+
+    /**
+     * returns the .gitlet directory of the remote, which must exist, be in the on-disk format of this version and use
+     * the same hash algorithm
+     */
+    File directory(){
+        File dir = new File(path);
+        if (!join(dir, "objects").isDirectory()){
+            exitWithError("Remote directory not found.", 0);
+        }
+        Repository.checkFormat(dir);
+        if (HashAlgorithm.of(dir) != HashAlgorithm.current()){
+            exitWithError("The remote names its objects with another hash algorithm.", 0);
+        }
+        return dir;
+    }
+
+
+    /**
+     * Sends the objects reachable from a commit that the receiving object folder lacks.
+     * @param source - object folder of the sending repository
+     * @param want - the commit to send
+     * @param haves - the commits the branches of the receiver point at
+     * @param target - object folder of the receiving repository
+     * @param commitsOnly - true to send no blob
+     * @return - the number of commits and the number of blobs sent
+     */
+    private static int[] transfer(File source, String want, Set<String> haves, File target, boolean commitsOnly){
+        Pack.Builder pack = new Pack.Builder(source);
+        Perf.Phase negotiatePhase = Perf.phase("remote.negotiate");
+        try{
+            pack.add(pack.walk(want, id -> haves.contains(id) || getHashAsFile(target, id).isFile()),
+                    id -> commitsOnly || getHashAsFile(target, id).isFile());
+        }finally{
+            negotiatePhase.close();
+        }
+        if (source.equals(Commit.OBJECT_FOLDER)){
+            Promisor.prefetchEntries(pack.getEntries());
+        }
+        Perf.Phase transferPhase = Perf.phase("remote.transfer");
+        try{
+            Pack.copy(source, pack.getEntries(), new Transaction(target));
+        }finally{
+            transferPhase.close();
+        }
+        return new int[]{pack.getCommitCount(), pack.getBlobCount()};
+    }
+
+
+    /**
+     * returns true if a commit is the given commit or one of its ancestors, in the local repository
+     */
+    private static boolean isAncestor(String ancestor, String commit){
+        if (!getHashAsFile(ancestor).isFile()){
+            return false;
+        }
+        for (String id = commit; id != null; id = Commit.getCommit(id).getParent()){
+            if (id.equals(ancestor)){
+                return true;
+            }
+            Perf.commitTraversed();
+        }
+        return false;
+    }
+
+
+    /**
+     * returns the commits the branches of a repository point at, fetched branches included
+     * @param gitletDir - the .gitlet directory of the repository
+     */
+    private static Set<String> advertisedRefs(File gitletDir){
+        return new HashSet<>(readBranches(gitletDir, true).values());
+    }
+
+
+    /**
+     * Reads the branches of any repository.
+     * @param gitletDir - the .gitlet directory of the repository
+     * @param nested - true to include the branches fetched from remotes (NAME/BRANCH)
+     * @return - the name of every branch mapped to the commit it points at, sorted by name
+     */
+    static TreeMap<String, String> readBranches(File gitletDir, boolean nested){
+        TreeMap<String, String> branches = new TreeMap<>();
+        File heads = join(gitletDir, "refs", "heads");
+        File[] children = heads.listFiles();
+        for (File child : children == null ? new File[0] : children){
+            File[] files = child.isDirectory() && nested ? child.listFiles() : new File[]{child};
+            for (File file : files == null ? new File[0] : files){
+                String fileName = file.getName();
+                if (!file.isFile() || fileName.equals("HEAD") || fileName.equals("MASTER")
+                        || fileName.endsWith(RefLock.SUFFIX)){
+                    continue;
+                }
+                String name = file.getParentFile().equals(heads) ? fileName : child.getName() + "/" + fileName;
+                branches.put(name, readObjectFromFile(file, Branch.class).getRef());
+            }
+        }
+        return branches;
+    }
+
+
+    @Override
+    public void dump() {
+        System.out.println(this.name + " " + this.path);
+    }
+}
@@ -0,0 +1,245 @@
+package gitlet;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class finds files that were renamed or copied between two versions of a commit content.
+ * Files with the same blob id are paired first. The remaining files are compared through MinHash sketches of
+ * their lines: every sketch is split into bands, and only files sharing at least one band are scored against
+ * each other, so the work stays close to linear in the number of files instead of (added x deleted).
+ * Sketches are cached by blob id, so every blob is fingerprinted at most once per process.
+ */
+public class RenameDetector {
+
+    // minimum similarity, in percent, for two files to be considered a rename or a copy
+    public static final int DEFAULT_THRESHOLD = 50;
+
+    private static final int HASHES = 64;
+    private static final int BANDS = 16;
+    private static final int ROWS = HASHES / BANDS;
+    private static final int[] SEEDS = new int[HASHES];
+    private static final int[] EMPTY_SKETCH = new int[0];
+    // sketches are 256 bytes each: the cache is dropped when it grows past this size (see Daemon)
+    private static final int MAX_SKETCHES = 100_000;
+    private static final Map<ObjectId, int[]> SKETCHES = new ConcurrentHashMap<>();
+
+    static {
+        Random random = new Random(0x5eed);
+        for (int i = 0; i < HASHES; i++){
+            SEEDS[i] = random.nextInt();
+        }
+    }
+
+
+    /**
+     * Finds the renames (and optionally the copies) between an old and a new commit content.
+     * A rename pairs a path only present in the old content with a path only present in the new one.
+     * A copy pairs any old path with a path only present in the new one.
+     * @param oldContent - content of the old commit
+     * @param newContent - content of the new commit
+     * @param findCopies - true to also report files copied from a path that still exists
+     * @return - the renames and copies found, most similar first
+     */
+    public static List<Rename> detect(Map<String, ObjectId> oldContent, Map<String, ObjectId> newContent,
+                                      boolean findCopies){
+        List<String> added = new ArrayList<>();
+        for (String path : newContent.keySet()){
+            if (!oldContent.containsKey(path)) added.add(path);
+        }
+        List<String> sources = new ArrayList<>();
+        for (String path : oldContent.keySet()){
+            if (findCopies || !newContent.containsKey(path)) sources.add(path);
+        }
+        List<Rename> result = new ArrayList<>();
+        if (added.isEmpty() || sources.isEmpty()){
+            return result;
+        }
+        Collections.sort(added);
+        Collections.sort(sources);
+        Set<String> usedTargets = new HashSet<>();
+        Set<String> usedSources = new HashSet<>();
+
+        // exact renames and copies: same blob id
+        HashMap<ObjectId, List<String>> sourcesByHash = new HashMap<>();
+        for (String path : sources){
+            sourcesByHash.computeIfAbsent(oldContent.get(path), k -> new ArrayList<>()).add(path);
+        }
+        for (String target : added){
+            List<String> candidates = sourcesByHash.get(newContent.get(target));
+            if (candidates != null){
+                pair(result, candidates, target, 100, newContent, findCopies, usedSources, usedTargets);
+            }
+        }
+
+        // similar files: MinHash sketches bucketed by band
+        List<String> targets = new ArrayList<>();
+        for (String target : added){
+            if (!usedTargets.contains(target)) targets.add(target);
+        }
+        if (targets.isEmpty()){
+            return result;
+        }
+        List<int[]> sourceSketches = sketches(sources, oldContent);
+        HashMap<Long, List<Integer>> buckets = new HashMap<>();
+        for (int i = 0; i < sources.size(); i++){
+            int[] sketch = sourceSketches.get(i);
+            if (sketch.length == 0) continue;
+            for (int band = 0; band < BANDS; band++){
+                buckets.computeIfAbsent(bandKey(sketch, band), k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        List<int[]> targetSketches = sketches(targets, newContent);
+        List<Rename> candidates = new ArrayList<>();
+        for (int t = 0; t < targets.size(); t++){
+            int[] sketch = targetSketches.get(t);
+            if (sketch.length == 0) continue;
+            Set<Integer> seen = new HashSet<>();
+            for (int band = 0; band < BANDS; band++){
+                List<Integer> bucket = buckets.get(bandKey(sketch, band));
+                if (bucket == null) continue;
+                for (int s : bucket){
+                    if (!seen.add(s)) continue;
+                    int score = similarity(sketch, sourceSketches.get(s));
+                    if (score >= DEFAULT_THRESHOLD){
+                        candidates.add(new Rename(sources.get(s), targets.get(t), score, false));
+                    }
+                }
+            }
+        }
+        candidates.sort((a, b) -> b.score != a.score ? b.score - a.score
+                : a.newPath.compareTo(b.newPath) != 0 ? a.newPath.compareTo(b.newPath)
+                : a.oldPath.compareTo(b.oldPath));
+        for (Rename candidate : candidates){
+            if (usedTargets.contains(candidate.newPath)) continue;
+            pair(result, Collections.singletonList(candidate.oldPath), candidate.newPath, candidate.score,
+                    newContent, findCopies, usedSources, usedTargets);
+        }
+        return result;
+    }
+
+
+    /**
+     * Pairs target with the first candidate it can be paired with: an unused deleted path becomes a rename,
+     * any other path becomes a copy when copies are requested.
+     */
+    private static void pair(List<Rename> result, List<String> candidates, String target, int score,
+                             Map<String, ObjectId> newContent, boolean findCopies,
+                             Set<String> usedSources, Set<String> usedTargets){
+        for (String source : candidates){
+            if (!newContent.containsKey(source) && usedSources.add(source)){
+                result.add(new Rename(source, target, score, false));
+                usedTargets.add(target);
+                return;
+            }
+        }
+        if (findCopies){
+            result.add(new Rename(candidates.get(0), target, score, true));
+            usedTargets.add(target);
+        }
+    }
+
+
+    /**
+     * returns the sketches of the blobs of the given paths, computing the missing ones in parallel.
+     */
+    private static List<int[]> sketches(List<String> paths, Map<String, ObjectId> content){
+        List<ObjectId> ids = new ArrayList<>();
+        for (String path : paths){
+            ids.add(content.get(path));
+        }
+        ids.parallelStream().forEach(RenameDetector::sketch);
+        List<int[]> sketches = new ArrayList<>();
+        for (ObjectId id : ids){
+            sketches.add(sketch(id));
+        }
+        return sketches;
+    }
+
+
+    /**
+     * returns the MinHash sketch of a blob, an empty sketch for an empty blob.
+     * @param id - blob id
+     * @return - int[]
+     */
+    public static int[] sketch(ObjectId id){
+        int[] sketch = SKETCHES.get(id);
+        if (sketch == null){
+            sketch = computeSketch(Blob.readBlob(id));
+            if (SKETCHES.size() >= MAX_SKETCHES){
+                SKETCHES.clear();
+            }
+            SKETCHES.put(id, sketch);
+        }
+        return sketch;
+    }
+
+    private static int[] computeSketch(byte[] data){
+        if (data.length == 0){
+            return EMPTY_SKETCH;
+        }
+        int[] sketch = new int[HASHES];
+        Arrays.fill(sketch, Integer.MAX_VALUE);
+        int hash = 0x811c9dc5;
+        for (int i = 0; i < data.length; i++){
+            hash = (hash ^ data[i]) * 0x01000193;
+            if (data[i] == '\n' || i == data.length - 1){
+                for (int k = 0; k < HASHES; k++){
+                    int value = mix(hash ^ SEEDS[k]);
+                    if (value < sketch[k]) sketch[k] = value;
+                }
+                hash = 0x811c9dc5;
+            }
+        }
+        return sketch;
+    }
+
+    private static int mix(int h){
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static long bandKey(int[] sketch, int band){
+        long key = band;
+        for (int row = band * ROWS; row < (band + 1) * ROWS; row++){
+            key = key * 0x9E3779B97F4A7C15L + sketch[row];
+        }
+        return key;
+    }
+
+    /**
+     * returns the estimated similarity of two files, in percent.
+     */
+    private static int similarity(int[] a, int[] b){
+        int same = 0;
+        for (int i = 0; i < HASHES; i++){
+            if (a[i] == b[i]) same++;
+        }
+        return same * 100 / HASHES;
+    }
+
+
+    /**
+     * A file found at oldPath in the old content and at newPath in the new content.
+     * score is the similarity of the two versions in percent. copy is true if oldPath still exists.
+     */
+    public static class Rename {
+
+        public final String oldPath;
+        public final String newPath;
+        public final int score;
+        public final boolean copy;
+
+        public Rename(String oldPath, String newPath, int score, boolean copy){
+            this.oldPath = oldPath;
+            this.newPath = newPath;
+            this.score = score;
+            this.copy = copy;
+        }
+    }
+}
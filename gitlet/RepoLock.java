@@ -0,0 +1,160 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static gitlet.Utils.*;
+
+/**
+ * This class coordinates the gitlet processes working on one repository with a lock on .gitlet/lock
+ * (FileChannel.lock). Read-only commands hold a shared lock, so any number of them run at once; commands that
+ * change the index, the refs or the working directory hold an exclusive lock, only around the reads and
+ * writes that must not interleave with another process. Objects need no lock: they are named by their content
+ * and published with an atomic rename.
+ *
+ *  try (RepoLock lock = RepoLock.exclusive()) {
+ *      ... read, modify and write the index or a ref ...
+ *  }
+ *
+ * The threads of one process share the file lock through a read-write lock, which is reentrant: a thread
+ * holding the exclusive lock may take it again or take the shared lock, but a thread holding only the shared
+ * lock cannot take the exclusive one. The time spent waiting is recorded by Perf (lockShared, lockExclusive).
+ */
+public class RepoLock implements AutoCloseable {
+
+    private static final File LOCK_FILE = join(Repository.GITLET_DIR, "lock");
+    private static final ReentrantReadWriteLock PROCESS_LOCK = new ReentrantReadWriteLock();
+
+    /*
+     * channel - open on the lock file for the life of the process; closing it would drop every lock.
+     * fileLock - the lock held on the file, shared or exclusive, or null.
+     * sharedHolders - the number of shared locks of this process relying on fileLock.
+     */
+    private static FileChannel channel;
+    private static FileLock fileLock;
+    private static int sharedHolders = 0;
+
+    /*
+     * shared - true for a shared lock.
+     * held - false when there is no repository to lock.
+     * ownsFileLock - true if closing this lock may release the file lock.
+     */
+    private final boolean shared;
+    private final boolean held;
+    private final boolean ownsFileLock;
+    private boolean closed = false;
+
+
+    private RepoLock(boolean shared, boolean held, boolean ownsFileLock){
+        this.shared = shared;
+        this.held = held;
+        this.ownsFileLock = ownsFileLock;
+    }
+
+
+    /**
+     * Waits for a shared lock on the repository.
+     * @return - the lock, to close once the reads are done
+     */
+    public static RepoLock shared(){
+        Perf.OperationEvent event = Perf.begin(Perf.Op.LOCK_SHARED);
+        try{
+            if (!Repository.GITLET_DIR.isDirectory()){
+                return new RepoLock(true, false, false);
+            }
+            if (PROCESS_LOCK.isWriteLockedByCurrentThread()){
+                // covered by the exclusive lock of this thread
+                PROCESS_LOCK.readLock().lock();
+                return new RepoLock(true, true, false);
+            }
+            PROCESS_LOCK.readLock().lock();
+            synchronized (RepoLock.class){
+                if (sharedHolders++ == 0){
+                    fileLock = lockFile(true);
+                }
+            }
+            return new RepoLock(true, true, true);
+        }finally{
+            Perf.end(Perf.Op.LOCK_SHARED, event, LOCK_FILE, 0);
+        }
+    }
+
+
+    /**
+     * Waits for an exclusive lock on the repository.
+     * @return - the lock, to close once the writes are done
+     */
+    public static RepoLock exclusive(){
+        Perf.OperationEvent event = Perf.begin(Perf.Op.LOCK_EXCLUSIVE);
+        try{
+            if (!Repository.GITLET_DIR.isDirectory()){
+                return new RepoLock(false, false, false);
+            }
+            boolean outermost = !PROCESS_LOCK.isWriteLockedByCurrentThread();
+            if (outermost && PROCESS_LOCK.getReadHoldCount() > 0){
+                throw error("Cannot lock the repository for writing while holding a read lock");
+            }
+            PROCESS_LOCK.writeLock().lock();
+            if (outermost){
+                synchronized (RepoLock.class){
+                    fileLock = lockFile(false);
+                }
+            }
+            return new RepoLock(false, true, outermost);
+        }finally{
+            Perf.end(Perf.Op.LOCK_EXCLUSIVE, event, LOCK_FILE, 0);
+        }
+    }
+
+
+    private static FileLock lockFile(boolean shared){
+        try{
+            if (channel == null){
+                channel = FileChannel.open(LOCK_FILE.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+            }
+            return channel.lock(0, Long.MAX_VALUE, shared);
+        }catch (IOException e){
+            throw error("Could not lock %s: %s", LOCK_FILE.getPath(), e.getMessage());
+        }
+    }
+
+    private static void releaseFile(){
+        try{
+            fileLock.release();
+        }catch (IOException e){
+            // the lock goes away with the process anyway
+        }
+        fileLock = null;
+    }
+
+
+    @Override
+    public void close(){
+        if (closed || !held){
+            return;
+        }
+        closed = true;
+        if (shared){
+            if (ownsFileLock){
+                synchronized (RepoLock.class){
+                    if (--sharedHolders == 0){
+                        releaseFile();
+                    }
+                }
+            }
+            PROCESS_LOCK.readLock().unlock();
+        }else{
+            if (ownsFileLock){
+                synchronized (RepoLock.class){
+                    releaseFile();
+                }
+            }
+            PROCESS_LOCK.writeLock().unlock();
+        }
+    }
+}
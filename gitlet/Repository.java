@@ -27,16 +27,35 @@ public class Repository {
     // The .gitlet directory.
     public static final File GITLET_DIR = join(CWD, ".gitlet");
 
+    /*
+     * The on-disk format of the serialized objects (commits, branches, the index and the config), recorded in the
+     * config of every repository this version creates. Version 1 stores object ids as bytes (see ObjectId);
+     * repositories without a version stored them as hex Strings and cannot be read. The serialized classes fix
+     * their serialVersionUID, so only a change of their fields changes the format and needs a new version.
+     */
+    public static final String FORMAT_KEY = "core.formatVersion";
+    public static final int FORMAT_VERSION = 1;
+
 
 
     /**
      *  This method creates an empty github repository and sets the initial commit.
+     *  init [--hash sha1|sha256] chooses the hash algorithm naming its objects (see HashAlgorithm).
      *  @param args
      */
     static void initializeRepo(String[] args) {
 
-        validateNumArgs("init", args, 1 );
+        HashAlgorithm algorithm = HashAlgorithm.SHA1;
+        if (args.length == 3 && args[1].equals("--hash")){
+            algorithm = HashAlgorithm.find(args[2]);
+            if (algorithm == null){
+                exitWithError("Usage: init [--hash sha1|sha256]", 0);
+            }
+        }else{
+            validateNumArgs("init", args, 1 );
+        }
         setUpFolderStructure();
+        HashAlgorithm.use(algorithm);
 
         // create initial commit
         Commit initCommit = new Commit();
@@ -67,6 +86,7 @@ public class Repository {
     public static void rm(String filename) {
         Index indexArea = Index.readFromFile();
         indexArea.remove(filename);
+        indexArea.saveToFile();
     }
 
     public static void mergeBranch(String branchName) {
@@ -74,11 +94,25 @@ public class Repository {
         activeBranch.merge(branchName);
     }
 
+    /**
+     * Computes the merge of the given branch into the active branch without checking anything out.
+     * @param branchName
+     */
+    public static void mergeTree(String branchName) {
+        Branch activeBranch = Branch.getActiveBranch();
+        activeBranch.mergeTree(branchName);
+    }
+
     /** COMMIT RELATED METHODS **/
 
 
     /**
-     * This methods create a commit with a given message and saves a snapshot of the working directory
+     * This methods create a commit with a given message and saves a snapshot of the working directory.
+     * The blobs and the commit object are published first, in one transaction; the branch ref is moved
+     * and the staging area cleared only after that, so a crash never leaves a ref to a missing commit.
+     * The branch is moved with a compare-and-set (see Commit.publish): commits to other branches never wait,
+     * and a commit racing another one on the same branch is replayed on top of it. Only clearing the staging
+     * area holds the exclusive repository lock.
      * @param msg
      */
     public static void makeCommit(String msg){
@@ -86,13 +120,29 @@ public class Repository {
         Branch activeBranch = Branch.getActiveBranch();
         Commit commit = new Commit(msg, activeBranch.getRef());
         Commit activeCommit = Commit.getActiveCommit();
+        Index stageArea = Index.readFromFile();
         commit.cloneParentCommit(activeCommit);
-        commit.updateWithStagedFile();
-        commit.saveBlobs();
-        String commitHash = hashObj(commit);
+        commit.updateWithStagedFile(stageArea);
+        Transaction transaction = new Transaction();
+        Perf.Phase blobsPhase = Perf.phase("commit.blobs");
+        try{
+            commit.saveBlobs(transaction);
+        }finally{
+            blobsPhase.close();
+        }
+        Perf.Phase publishPhase = Perf.phase("commit.publish");
+        try{
+            commit = Commit.publish(commit, activeBranch, activeCommit, stageArea, transaction);
+            RepoLock lock = RepoLock.exclusive();
+            try{
+                Index.readFromFile().clearCommitted(stageArea);
+            }finally{
+                lock.close();
+            }
+        }finally{
+            publishPhase.close();
+        }
         commit.dump();
-        activeBranch.updateRef(commitHash);
-        commit.saveToFile(commitHash);
     }
 
 
@@ -104,26 +154,16 @@ public class Repository {
      */
     public static void reset(String commitID){
         Branch branch = Branch.getActiveBranch();
+        if (!getHashAsFile(commitID).isFile()){
+            exitWithError("No commit with that id exists.", 0);
+        }
         Commit commit = Commit.getCommit(commitID);
         Commit currentCommit = Commit.getActiveCommit();
-        List<String> filesInDir = getPlaneFileNameInDir(CWD);
-        for (String file : filesInDir){
-            if (!currentCommit.getContent().containsKey(file)){
-                exitWithError("There is an untracked or Modified file in the way; delete it, or add and commit it first.", 0);
-            }
-            Blob blob = new Blob(file);
-            if (!blob.getHash().equals(currentCommit.getContent().get(file))){
-                exitWithError("There is an untracked or Modified file in the way; delete it, or add and commit it first.", 0);
-            }
-        }
-        for (Map.Entry<String, String> file : commit.getContent().entrySet()) {
-            checkoutFileInCommit(commitID, file.getKey());
-            filesInDir.remove(file.getKey());
-        }
 
-        for (String file : filesInDir){
-            restrictDelete(join(CWD, file));
-        }
+        // only the files that differ between the two commits are checked and rewritten
+        CheckoutPlan plan = CheckoutPlan.compute(currentCommit.getContent(), commit.getContent());
+        plan.checkWorkingTree();
+        plan.execute();
         branch.updateRef(commitID);
     }
 
@@ -134,8 +174,45 @@ public class Repository {
     /**
      * This method shows the state of the working directory and currect commit. It display all the files
      * that are staged for addition, removal, and files that have been modified or deleted.
+     * Files staged for addition that were deleted are unstaged.
      */
     public static void viewStatus(){
+        viewStatus(true);
+    }
+
+
+    /**
+     * Shows the status, reading under a shared repository lock.
+     * @param write - false to leave the staging area untouched (status --no-write)
+     */
+    public static void viewStatus(boolean write){
+        List<String> unstaged = new ArrayList<>();
+        RepoLock readLock = RepoLock.shared();
+        try{
+            showStatus(unstaged);
+        }finally{
+            readLock.close();
+        }
+        if (write && !unstaged.isEmpty()){
+            RepoLock writeLock = RepoLock.exclusive();
+            try{
+                Index stageArea = Index.readFromFile();
+                for (String filename : unstaged){
+                    stageArea.getStageEntry().remove(filename);
+                }
+                stageArea.saveToFile();
+            }finally{
+                writeLock.close();
+            }
+        }
+    }
+
+
+    /**
+     * Prints the status.
+     * @param unstaged - receives the files staged for addition that were deleted from the working directory
+     */
+    private static void showStatus(List<String> unstaged){
         Index stageArea = Index.readFromFile();
         Commit activeCommit = Commit.getActiveCommit();
         List<String> filesInDir = getPlaneFileNameInDir(Repository.CWD);
@@ -143,16 +220,21 @@ public class Repository {
         List<String> modifiedFiles = new ArrayList<>();
         List<String> toRemoveFiles = new ArrayList<>();
         List<String> toAddFiles = new ArrayList<>();
-        HashMap<String, String> stageEntry = stageArea.getStageEntry();
-        HashMap<String, String> stageRemove = stageArea.getStageRemove();
+        HashMap<String, ObjectId> stageEntry = stageArea.getStageEntry();
+        HashMap<String, ObjectId> stageRemove = stageArea.getStageRemove();
+        SparseCheckout sparse = SparseCheckout.readFromFile();
+        Perf.Phase scan = Perf.phase("status.scan");
 
         for (String filename : filesInDir) {
+            // tracked files outside of the sparse checkout are ignored without being read
+            if (activeCommit.getContent().containsKey(filename) && !sparse.matches(filename)){
+                continue;
+            }
             if (!activeCommit.getContent().containsKey(filename)){
                 untrackFiles.add(filename);
             }else {
-                String fileHash = activeCommit.getContent().get(filename);
-                String currentFileHash= sha1(readContents(join(CWD, filename)));
-                if (!fileHash.equals(currentFileHash)){
+                ObjectId fileId = activeCommit.getContent().getId(filename);
+                if (!fileId.equals(HashAlgorithm.current().fileId(join(CWD, filename)))){
                     modifiedFiles.add(filename + " (modified)");
                 }
             }
@@ -167,12 +249,15 @@ public class Repository {
         }
 
         // check if there are files  in the current commit that are absent in the working directory
-        for (Map.Entry<String, String> file : activeCommit.getContent().entrySet()){
-            if (!filesInDir.contains(file.getKey())){
-                modifiedFiles.add(file.getKey() + " (deleted)");
-                stageEntry.remove(file.getKey()); // remove from the stage for addition area if deleted.
+        for (String file : activeCommit.getContent().keySet()){
+            if (sparse.matches(file) && !filesInDir.contains(file)){
+                modifiedFiles.add(file + " (deleted)");
+                if (stageEntry.containsKey(file)){
+                    unstaged.add(file); // remove from the stage for addition area if deleted.
+                }
             }
         }
+        scan.close();
         String branch = Branch.getActiveBranch().getName(); // active branch name
 
         System.out.println("Branches  " + "*" + branch);
@@ -180,7 +265,6 @@ public class Repository {
         displayStatus("Stage For Removed Files", toRemoveFiles);
         displayStatus("Modifications Not Staged For Commit", modifiedFiles);
         displayStatus("Untracked Files", untrackFiles);
-        stageArea.saveToFile();
     }
 
 
@@ -202,9 +286,7 @@ public class Repository {
         }
 
         String fileHash = activeCommit.getContent().get(filename);
-        File fileBlob = getHashAsFile(fileHash);
-        byte[] blobContent = readContents(fileBlob);
-        writeContents(file, blobContent);
+        writeContents(file, Blob.readBlob(fileHash));
     }
 
 
@@ -216,6 +298,9 @@ public class Repository {
      * @param name - new Branch name.
      */
     public static void branch(String name){
+        if (name.endsWith(RefLock.SUFFIX)){
+            exitWithError("A branch name cannot end with " + RefLock.SUFFIX, 0);
+        }
         Branch branch = new Branch(name);
         if (branch.exist()){
             Utils.exitWithError("A branch with that name already exists.", 0);
@@ -224,7 +309,9 @@ public class Repository {
         if (!active.getName().equals("master")){
             exitWithError("Warning!! Master is not your active branch", 0);
         }
-        branch.updateRef(active.getRef());
+        if (!branch.compareAndSetRef(null, active.getRef())){
+            exitWithError("A branch with that name already exists.", 0);
+        }
     }
 
 
@@ -247,10 +334,7 @@ public class Repository {
         if (fileHash == null){
             exitWithError("File does not exist in that commit.", 0);
         }
-        File fileBlob = getHashAsFile(fileHash);
-        byte[] fileContent = readContents(fileBlob);
-        File file = join(CWD, filename);
-        writeContents(file, fileContent);
+        CheckoutEngine.fromConfig().checkout(Collections.singletonMap(filename, fileHash));
     }
 
 
@@ -265,34 +349,16 @@ public class Repository {
         Branch currentBranch = Branch.getActiveBranch();
         Branch branch = Branch.getBranch(branchName);
         Commit currentCommit = Commit.getActiveCommit();
-        List<String> filesInDir = getPlaneFileNameInDir(CWD);
         if (currentBranch.compareTo(branch) == 0){
             exitWithError("No need to checkout the current branch.", 0);
         }
-        for (String file : filesInDir){
-            if (!currentCommit.getContent().containsKey(file)){
-                exitWithError("There is an untracked or Modified file in the way; delete it, or add and commit it first.", 0);
-            }
-            Blob blob = new Blob(file);
-            if (!blob.getHash().equals(currentCommit.getContent().get(file))){
-                exitWithError("There is an untracked or Modified file in the way; delete it, or add and commit it first.", 0);
-            }
-        }
         Commit commitHead = readObjectFromFile(getHashAsFile(branch.getRef()), Commit.class);
 
-        // Update the working directory with version of files present in the branch
-        for (Map.Entry<String, String> file : commitHead.getContent().entrySet()){
-            File fileBlob = getHashAsFile(file.getValue());
-            byte[] fileContent = readContents(fileBlob);
-            File updatedFile = join(CWD, file.getKey());
-            writeContents(updatedFile, fileContent);
-            filesInDir.remove(file.getKey());
-        }
-
-        // remove all the files present in the working directory and absent in the branch
-        for (String file : filesInDir){
-            restrictDelete(join(CWD, file));
-        }
+        // Update the working directory with the files that differ in the branch, and
+        // remove the files tracked by the current commit that are absent in the branch
+        CheckoutPlan plan = CheckoutPlan.compute(currentCommit.getContent(), commitHead.getContent());
+        plan.checkWorkingTree();
+        plan.execute();
         head.updateRef(branchName);
     }
 
@@ -340,7 +406,7 @@ public class Repository {
     /**
      * This method will create the .gitlet folder and all the neccessary sub-folders.
      */
-    private static void setUpFolderStructure(){
+    static void setUpFolderStructure(){
         if (GITLET_DIR.isDirectory()) {
             exitWithError("A Gitlet version-control system already exists in the current directory.", -1);
         }
@@ -364,5 +430,32 @@ public class Repository {
         catch (IOException E){
             throw new GitletException();
         }
+        Config config = Config.readFromFile();
+        config.set(FORMAT_KEY, String.valueOf(FORMAT_VERSION));
+        config.saveToFile();
+    }
+
+
+    /**
+     * Exits with an error if a repository was written in another on-disk format than the one this version reads.
+     * Old repositories are refused rather than migrated: their objects no longer deserialize.
+     * @param gitletDir - the .gitlet directory of the repository
+     */
+    static void checkFormat(File gitletDir){
+        int version;
+        try{
+            version = Config.readFromFile(gitletDir).getInt(FORMAT_KEY, 0);
+        }catch (IllegalArgumentException e){
+            // the config itself was written in an older format
+            version = 0;
+        }
+        if (version < FORMAT_VERSION){
+            exitWithError("The repository in " + gitletDir.getParent() + " uses an older on-disk format (version "
+                    + version + ") that this version of gitlet cannot read. Recreate it with this version.", 0);
+        }
+        if (version > FORMAT_VERSION){
+            exitWithError("The repository in " + gitletDir.getParent() + " uses on-disk format version " + version
+                    + "; this version of gitlet only reads version " + FORMAT_VERSION + ".", 0);
+        }
     }
 }
@@ -0,0 +1,378 @@
+package gitlet;
+
+import java.io.File;
+import java.util.*;
+
+import static gitlet.Utils.*;
+
+/**
+ * This class is an instance based entry point to the repository in the working directory, for programs that
+ * run many gitlet operations in one JVM (services, importers) instead of one command per process.
+ *
+ * A session reads HEAD, the active branch and the index once, and keeps every commit it resolves in memory.
+ * Changes to refs and to the index stay in the session until flush (or close) writes them, once each; the blobs
+ * staged by add and the commits made are published in a single transaction before any ref moves.
+ * Operations never print or exit: failures are reported with the GitletException subclasses.
+ *
+ *  try (Session session = Session.open()) {
+ *      session.add("a.txt");
+ *      session.commit("add a");
+ *  }
+ *
+ * Flush moves and deletes refs with a compare-and-set (see Branch.compareAndSetRef): if another writer moved a
+ * branch or HEAD after the session read it, flush fails with a ConcurrentUpdateException instead of overwriting
+ * the other update. The index is overwritten under the repository lock (see RepoLock). A session is not thread
+ * safe.
+ */
+public class Session implements AutoCloseable {
+
+    private final Head head;
+    private final Index index;
+    private final HashMap<String, Branch> branches = new HashMap<>();
+    private final HashMap<String, Commit> commits = new HashMap<>();
+    // the ref of every branch read, as it was on disk when read or last flushed; null for a branch created here
+    private final HashMap<String, String> storedRefs = new HashMap<>();
+    private String storedHead;
+    private final Transaction transaction = new Transaction();
+
+    /*
+     * dirtyBranches - branches whose ref changed since the last flush.
+     * removedBranches - branches deleted since the last flush.
+     */
+    private final LinkedHashSet<String> dirtyBranches = new LinkedHashSet<>();
+    private final LinkedHashSet<String> removedBranches = new LinkedHashSet<>();
+    private boolean headChanged = false;
+    private boolean indexChanged = false;
+
+
+    private Session(){
+        RepoLock lock = RepoLock.shared();
+        try{
+            this.head = Head.readFromFile();
+            this.index = Index.readFromFile();
+        }finally{
+            lock.close();
+        }
+        this.storedHead = head.getRef();
+    }
+
+
+    /**
+     * Opens a session on the repository of the working directory.
+     * @return - Session
+     */
+    public static Session open(){
+        if (!Repository.GITLET_DIR.isDirectory()){
+            throw new GitletException.NotFoundException("Not in an initialized Gitlet directory.");
+        }
+        return new Session();
+    }
+
+
+    /** REFS AND COMMITS **/
+
+
+    public String getActiveBranchName(){
+        return head.getRef();
+    }
+
+    /**
+     * returns the id of the commit the active branch points at
+     */
+    public String getHeadId(){
+        return branch(head.getRef()).getRef();
+    }
+
+    public Commit getHeadCommit(){
+        return getCommit(getHeadId());
+    }
+
+
+    /**
+     * Returns the commit with the given id, reading it from disk only the first time.
+     * @param id - commit id
+     * @return - Commit
+     */
+    public Commit getCommit(String id){
+        Commit commit = commits.get(id);
+        if (commit == null){
+            File file = getHashAsFile(id);
+            if (!file.isFile()){
+                throw new GitletException.NotFoundException("No commit with that id exists.");
+            }
+            commit = readObjectFromFile(file, Commit.class);
+            commits.put(id, commit);
+        }
+        return commit;
+    }
+
+
+    /**
+     * returns the commits from the head commit back to the initial commit, newest first
+     */
+    public List<Commit> log(){
+        List<Commit> log = new ArrayList<>();
+        for (String id = getHeadId(); id != null; id = getCommit(id).getParent()){
+            log.add(getCommit(id));
+        }
+        return log;
+    }
+
+
+    /** STAGING **/
+
+
+    /**
+     * Stages the current content of a file. A file identical to its version in the head commit is unstaged.
+     * The blob is written with the next flush.
+     * @param filename
+     * @return - true if the file was staged, false if it has no change to commit
+     */
+    public boolean add(String filename){
+        if (!join(Repository.CWD, filename).isFile()){
+            throw new GitletException.NotFoundException("File does not exist: " + filename);
+        }
+        Blob blob = new Blob(filename);
+        ObjectId id = ObjectId.parse(blob.getHash());
+        indexChanged = true;
+        if (getHeadCommit().getContent().hasId(filename, id)){
+            index.getStageEntry().remove(filename);
+            index.getStageRemove().remove(filename);
+            return false;
+        }
+        blob.saveBlob(transaction);
+        index.stageFile(filename, id);
+        return true;
+    }
+
+
+    /**
+     * Unstages a file, or stages a tracked file for removal and deletes it from the working directory.
+     * @param filename
+     */
+    public void remove(String filename){
+        ObjectId tracked = getHeadCommit().getContent().getId(filename);
+        if (index.getStageEntry().remove(filename) != null){
+            indexChanged = true;
+        }else if (tracked != null){
+            index.stageRemoval(filename, tracked);
+            indexChanged = true;
+            restrictDelete(join(Repository.CWD, filename));
+        }else{
+            throw new GitletException.InvalidStateException("No reason to remove the file.");
+        }
+    }
+
+    public Map<String, String> getStagedFiles(){
+        return format(index.getStageEntry());
+    }
+
+    public Map<String, String> getRemovedFiles(){
+        return format(index.getStageRemove());
+    }
+
+    // returns a copy of staged files mapped to the hex id of their blob
+    private static Map<String, String> format(Map<String, ObjectId> files){
+        Map<String, String> formatted = new HashMap<>();
+        for (Map.Entry<String, ObjectId> file : files.entrySet()){
+            formatted.put(file.getKey(), file.getValue().toString());
+        }
+        return Collections.unmodifiableMap(formatted);
+    }
+
+
+    /**
+     * Makes a commit of the staged changes on the active branch. Files staged before the session opened (by the
+     * add command, which writes no blob) have their blob written from the working file.
+     * @param message - commit message
+     * @return - the id of the new commit
+     */
+    public String commit(String message){
+        saveStagedBlobs();
+        String parentId = getHeadId();
+        Commit commit = new Commit(message, parentId);
+        commit.cloneParentCommit(getCommit(parentId));
+        commit.updateWithStagedFile(index);
+        String commitHash = hashObj(commit);
+        commit.saveToFile(commitHash, transaction);
+        commits.put(commitHash, commit);
+        setBranchRef(head.getRef(), commitHash);
+        index.getStageEntry().clear();
+        index.getStageRemove().clear();
+        indexChanged = true;
+        return commitHash;
+    }
+
+
+    // adds the blob of every staged file missing from the object folder to the transaction
+    private void saveStagedBlobs(){
+        for (Map.Entry<String, ObjectId> file : index.getStageEntry().entrySet()){
+            if (getHashAsFile(file.getValue()).isFile()){
+                continue;
+            }
+            if (!join(Repository.CWD, file.getKey()).isFile()){
+                throw new GitletException.NotFoundException("File does not exist: " + file.getKey());
+            }
+            Blob blob = new Blob(file.getKey());
+            if (!file.getValue().toString().equals(blob.getHash())){
+                throw new GitletException.InvalidStateException("File " + file.getKey()
+                        + " changed since it was staged; add it again.");
+            }
+            blob.saveBlob(transaction);
+        }
+    }
+
+
+    /** BRANCHES **/
+
+
+    /**
+     * Creates a branch pointing at the head commit, without switching to it.
+     * @param name - name of the new branch
+     */
+    public void createBranch(String name){
+        if (branches.containsKey(name) || (!removedBranches.contains(name) && new Branch(name).exist())){
+            throw new GitletException.AlreadyExistsException("A branch with that name already exists.");
+        }
+        if (name.endsWith(RefLock.SUFFIX)){
+            throw new GitletException.InvalidStateException("A branch name cannot end with " + RefLock.SUFFIX);
+        }
+        Branch branch = new Branch(name);
+        if (!removedBranches.remove(name)){
+            storedRefs.put(name, null);
+        }
+        branches.put(name, branch);
+        setBranchRef(name, getHeadId());
+    }
+
+
+    /**
+     * Deletes a branch other than the active one.
+     * @param name - branch name
+     */
+    public void removeBranch(String name){
+        branch(name);
+        if (name.equals(head.getRef())){
+            throw new GitletException.InvalidStateException("Cannot remove the current active branch.");
+        }
+        branches.remove(name);
+        dirtyBranches.remove(name);
+        removedBranches.add(name);
+    }
+
+
+    /**
+     * Switches to another branch, updating the files that differ between the two head commits.
+     * @param name - branch name
+     */
+    public void checkoutBranch(String name){
+        if (name.equals(head.getRef())){
+            throw new GitletException.InvalidStateException("No need to checkout the current branch.");
+        }
+        String target = branch(name).getRef();
+        checkout(target);
+        head.setRef(name);
+        headChanged = true;
+    }
+
+
+    /**
+     * Moves the active branch to the given commit and updates the working directory to it.
+     * @param commitId - commit id
+     */
+    public void reset(String commitId){
+        getCommit(commitId);
+        checkout(commitId);
+        setBranchRef(head.getRef(), commitId);
+    }
+
+
+    private void checkout(String commitId){
+        // a checkout may need blobs staged in this session
+        transaction.commit();
+        CheckoutPlan plan = CheckoutPlan.compute(getHeadCommit().getContent(), getCommit(commitId).getContent());
+        RepoLock lock = RepoLock.exclusive();
+        try{
+            plan.checkWorkingTree();
+            plan.execute();
+        }finally{
+            lock.close();
+        }
+    }
+
+
+    /**
+     * returns the branch with the given name, reading it from disk only the first time.
+     */
+    private Branch branch(String name){
+        if (removedBranches.contains(name)){
+            throw new GitletException.NotFoundException("A branch with that name does not exist.");
+        }
+        Branch branch = branches.get(name);
+        if (branch == null){
+            branch = Branch.getBranch(name);
+            branches.put(name, branch);
+            storedRefs.put(name, branch.getRef());
+        }
+        return branch;
+    }
+
+    private void setBranchRef(String name, String commitId){
+        branch(name).setRef(commitId);
+        dirtyBranches.add(name);
+    }
+
+
+    /** PERSISTENCE **/
+
+
+    /**
+     * Writes everything changed in this session: objects first, then each ref with a compare-and-set against the
+     * value the session read, then the index under the exclusive repository lock.
+     * A ref moved by another writer fails the flush; the refs written before it stay written.
+     */
+    public void flush(){
+        transaction.commit();
+        for (Iterator<String> names = dirtyBranches.iterator(); names.hasNext(); ){
+            String name = names.next();
+            String ref = branches.get(name).getRef();
+            if (!branches.get(name).compareAndSetRef(storedRefs.get(name), ref)){
+                throw new GitletException.ConcurrentUpdateException("Branch " + name
+                        + " was changed by another writer; the session's changes to it were not saved.");
+            }
+            storedRefs.put(name, ref);
+            names.remove();
+        }
+        for (Iterator<String> names = removedBranches.iterator(); names.hasNext(); ){
+            String name = names.next();
+            if (!new Branch(name).compareAndRemove(storedRefs.get(name))){
+                throw new GitletException.ConcurrentUpdateException("Branch " + name
+                        + " was changed by another writer; it was not removed.");
+            }
+            storedRefs.remove(name);
+            names.remove();
+        }
+        if (headChanged){
+            if (!head.compareAndSetRef(storedHead, head.getRef())){
+                throw new GitletException.ConcurrentUpdateException(
+                        "HEAD was changed by another writer; the session's checkout was not saved.");
+            }
+            storedHead = head.getRef();
+            headChanged = false;
+        }
+        RepoLock lock = RepoLock.exclusive();
+        try{
+            if (indexChanged){
+                index.saveToFile();
+                indexChanged = false;
+            }
+        }finally{
+            lock.close();
+        }
+    }
+
+    @Override
+    public void close(){
+        flush();
+    }
+}
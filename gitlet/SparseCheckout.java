@@ -0,0 +1,152 @@
+package gitlet;
+
+import java.io.File;
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.*;
+
+import static gitlet.Utils.*;
+
+/**
+ * This class represents the sparse checkout patterns saved in .gitlet/sparse-checkout.
+ * When patterns are set, only the tracked files matching at least one of them (glob syntax) are present in the
+ * working directory. Checkout skips the other files, status and the dirty tree checks ignore them without
+ * reading them, and commits keep their entries from the parent commit unchanged.
+ */
+public class SparseCheckout implements Dumpable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final File SPARSE_FILE = join(Repository.GITLET_DIR, "sparse-checkout");
+
+    private ArrayList<String> patterns = new ArrayList<>();
+    private transient List<PathMatcher> matchers;
+
+
+    /**
+     * reads the sparse checkout patterns from file
+     * @return - SparseCheckout object, without patterns if sparse checkout is not enabled
+     */
+    public static SparseCheckout readFromFile(){
+        if (!SPARSE_FILE.isFile()){
+            return new SparseCheckout();
+        }
+        return readObjectFromFile(SPARSE_FILE, SparseCheckout.class);
+    }
+
+
+    // saves the sparse checkout patterns, or removes the file if there is none
+    public void saveToFile(){
+        if (patterns.isEmpty()){
+            SPARSE_FILE.delete();
+        }else{
+            writeObject(SPARSE_FILE, this);
+        }
+    }
+
+
+    /**
+     * returns true if sparse checkout is enabled
+     */
+    public boolean isEnabled(){
+        return !patterns.isEmpty();
+    }
+
+
+    /**
+     * Checks if a tracked file belongs in the working directory.
+     * @param path - name of the file
+     * @return - true if sparse checkout is disabled or the path matches one of the patterns
+     */
+    public boolean matches(String path){
+        if (patterns.isEmpty()){
+            return true;
+        }
+        if (matchers == null){
+            List<PathMatcher> compiled = new ArrayList<>();
+            for (String pattern : patterns){
+                compiled.add(FileSystems.getDefault().getPathMatcher("glob:" + pattern));
+            }
+            matchers = compiled;
+        }
+        for (PathMatcher matcher : matchers){
+            if (matcher.matches(Paths.get(path))) return true;
+        }
+        return false;
+    }
+
+
+    /**
+     * Handles the sparse-checkout command.
+     *  sparse-checkout set PATTERN...   restricts the working directory to the matching tracked files
+     *  sparse-checkout list             prints the patterns
+     *  sparse-checkout disable          brings back every tracked file
+     * @param args - command line arguments
+     */
+    public static void sparseCheckout(String[] args){
+        if (args.length < 2){
+            exitWithError("Usage: sparse-checkout (set PATTERN... | list | disable)", 0);
+        }
+        SparseCheckout sparse = readFromFile();
+        switch (args[1]){
+            case "list":
+                sparse.dump();
+                break;
+            case "set":
+                if (args.length < 3){
+                    exitWithError("Must specify at least one pattern", 0);
+                }
+                sparse.apply(new ArrayList<>(Arrays.asList(args).subList(2, args.length)));
+                break;
+            case "disable":
+                sparse.apply(new ArrayList<>());
+                break;
+            default:
+                exitWithError("Usage: sparse-checkout (set PATTERN... | list | disable)", 0);
+        }
+    }
+
+
+    /**
+     * Replaces the patterns and updates the working directory: tracked files that now match are written,
+     * unmodified tracked files that no longer match are deleted.
+     */
+    private void apply(ArrayList<String> newPatterns){
+        Map<String, ObjectId> content = Commit.getActiveCommit().getContent().ids();
+        SparseCheckout old = new SparseCheckout();
+        old.patterns = this.patterns;
+        this.patterns = newPatterns;
+        this.matchers = null;
+
+        HashMap<String, String> writes = new HashMap<>();
+        List<String> deletes = new ArrayList<>();
+        for (Map.Entry<String, ObjectId> file : content.entrySet()){
+            boolean before = old.matches(file.getKey());
+            boolean after = this.matches(file.getKey());
+            File fileObj = join(Repository.CWD, file.getKey());
+            if (after && !before && !fileObj.isFile()){
+                writes.put(file.getKey(), file.getValue().toString());
+            }else if (before && !after && fileObj.isFile()){
+                if (!file.getValue().equals(HashAlgorithm.current().fileId(fileObj))){
+                    exitWithError("File " + file.getKey()
+                            + " is modified; commit or restore it before removing it from the sparse checkout.", 0);
+                }
+                deletes.add(file.getKey());
+            }
+        }
+        saveToFile();
+        CheckoutEngine.fromConfig().checkout(writes);
+        for (String file : deletes){
+            restrictDelete(join(Repository.CWD, file));
+        }
+    }
+
+
+    @Override
+    public void dump() {
+        for (String pattern : patterns){
+            System.out.println(pattern);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class performs a line based three way merge (diff3) of two versions of a file that share a common base.
+ * Both versions are diffed against the base. Changes that touch different regions of the base are applied
+ * automatically; changes that overlap are written out as conflict hunks unless both sides made the same change.
+ */
+public class ThreeWayMerge {
+
+    private static final byte[] OURS_MARKER = "<<<<<<< HEAD\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SEPARATOR = "=======\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] THEIRS_MARKER = ">>>>>>>\n".getBytes(StandardCharsets.UTF_8);
+
+
+    /**
+     * Merges ours and theirs using base as their common ancestor.
+     * @param base - content at the split point, an empty array if the file did not exist there
+     * @param ours - content in the current branch, an empty array if the file was deleted
+     * @param theirs - content in the given branch, an empty array if the file was deleted
+     * @return - the merged content and the number of conflict hunks it contains
+     */
+    public static Result merge(byte[] base, byte[] ours, byte[] theirs){
+        LineTable table = new LineTable();
+        LineTable.Text baseText = table.intern(base);
+        LineTable.Text oursText = table.intern(ours);
+        LineTable.Text theirsText = table.intern(theirs);
+        List<LineDiff.Edit> oursEdits = LineDiff.diff(baseText.getIds(), oursText.getIds());
+        List<LineDiff.Edit> theirsEdits = LineDiff.diff(baseText.getIds(), theirsText.getIds());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(ours.length, theirs.length));
+        int conflicts = 0;
+        int basePos = 0;
+        int i = 0;
+        int j = 0;
+        // offset between base line numbers and ours/theirs line numbers before the current chunk
+        int oursShift = 0;
+        int theirsShift = 0;
+
+        while (i < oursEdits.size() || j < theirsEdits.size()){
+            // start a chunk with the edit that begins first in the base
+            int start;
+            if (j == theirsEdits.size()
+                    || (i < oursEdits.size() && oursEdits.get(i).aStart <= theirsEdits.get(j).aStart)){
+                start = oursEdits.get(i).aStart;
+            }else{
+                start = theirsEdits.get(j).aStart;
+            }
+            int end = start;
+            int oursFirst = i;
+            int theirsFirst = j;
+            // grow the chunk while an edit of either side overlaps or touches it
+            boolean grown = true;
+            while (grown){
+                grown = false;
+                while (i < oursEdits.size() && oursEdits.get(i).aStart <= end){
+                    end = Math.max(end, oursEdits.get(i).aEnd);
+                    i++;
+                    grown = true;
+                }
+                while (j < theirsEdits.size() && theirsEdits.get(j).aStart <= end){
+                    end = Math.max(end, theirsEdits.get(j).aEnd);
+                    j++;
+                    grown = true;
+                }
+            }
+
+            copyLines(out, baseText, basePos, start);
+            int oursStart = start + oursShift;
+            int theirsStart = start + theirsShift;
+            oursShift += shift(oursEdits, oursFirst, i);
+            theirsShift += shift(theirsEdits, theirsFirst, j);
+            int oursEnd = end + oursShift;
+            int theirsEnd = end + theirsShift;
+
+            if (oursFirst == i){
+                copyLines(out, theirsText, theirsStart, theirsEnd);
+            }else if (theirsFirst == j){
+                copyLines(out, oursText, oursStart, oursEnd);
+            }else if (sameLines(oursText, oursStart, oursEnd, theirsText, theirsStart, theirsEnd)){
+                copyLines(out, oursText, oursStart, oursEnd);
+            }else{
+                conflicts++;
+                out.write(OURS_MARKER, 0, OURS_MARKER.length);
+                copyHunk(out, oursText, oursStart, oursEnd);
+                out.write(SEPARATOR, 0, SEPARATOR.length);
+                copyHunk(out, theirsText, theirsStart, theirsEnd);
+                out.write(THEIRS_MARKER, 0, THEIRS_MARKER.length);
+            }
+            basePos = end;
+        }
+        copyLines(out, baseText, basePos, baseText.lineCount());
+        return new Result(out.toByteArray(), conflicts);
+    }
+
+
+    /**
+     * returns how many lines the edits [from, to) add to the file (negative if they remove lines)
+     */
+    private static int shift(List<LineDiff.Edit> edits, int from, int to){
+        int shift = 0;
+        for (int k = from; k < to; k++){
+            LineDiff.Edit edit = edits.get(k);
+            shift += (edit.bEnd - edit.bStart) - (edit.aEnd - edit.aStart);
+        }
+        return shift;
+    }
+
+    private static boolean sameLines(LineTable.Text a, int aStart, int aEnd, LineTable.Text b, int bStart, int bEnd){
+        if (aEnd - aStart != bEnd - bStart){
+            return false;
+        }
+        for (int k = 0; k < aEnd - aStart; k++){
+            if (a.getIds()[aStart + k] != b.getIds()[bStart + k]) return false;
+        }
+        return true;
+    }
+
+    private static void copyLines(ByteArrayOutputStream out, LineTable.Text text, int from, int to){
+        if (from < to){
+            int start = text.lineStart(from);
+            out.write(text.getData(), start, text.lineEnd(to - 1) - start);
+        }
+    }
+
+    /**
+     * Copies the lines of one side of a conflict, making sure the next marker starts on its own line.
+     */
+    private static void copyHunk(ByteArrayOutputStream out, LineTable.Text text, int from, int to){
+        copyLines(out, text, from, to);
+        if (from < to && text.getData()[text.lineEnd(to - 1) - 1] != '\n'){
+            out.write('\n');
+        }
+    }
+
+
+    /**
+     * The outcome of a three way merge.
+     */
+    public static class Result {
+
+        private final byte[] content;
+        private final int conflicts;
+
+        private Result(byte[] content, int conflicts){
+            this.content = content;
+            this.conflicts = conflicts;
+        }
+
+        public byte[] getContent(){
+            return content;
+        }
+
+        public int getConflicts(){
+            return conflicts;
+        }
+
+        public boolean hasConflicts(){
+            return conflicts > 0;
+        }
+    }
+}
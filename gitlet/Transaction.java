@@ -0,0 +1,185 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import static gitlet.Utils.*;
+
+/**
+ * This class groups the objects written by one command so that they are published together.
+ * Every object is first written to a temporary file in its fanout directory. On commit the temporary files are
+ * flushed to disk, one flush per object but all issued at once from several threads so the disk can merge them,
+ * then renamed to their final name. Every fanout directory touched is flushed once, and the object folder too
+ * when a fanout directory was created, so that the new directory entry survives a crash.
+ * Refs and the index are written afterwards by the caller, each with an atomic rename (see RefLock and
+ * Utils.writeObject), so a crash can never leave a ref pointing at an object that was not completely written.
+ * Flushing to disk only happens when the core.fsync setting is true; renames are always atomic.
+ */
+public class Transaction {
+
+    public static final String FSYNC_KEY = "core.fsync";
+
+    /*
+     * objectFolder - the object folder the objects are written to.
+     * pending - temporary file of every object written so far, mapped to the final object file.
+     * dirs - the fanout directories that will receive a new object.
+     * newDirs - true if a fanout directory was created for this transaction.
+     */
+    private final LinkedHashMap<File, File> pending = new LinkedHashMap<>();
+    private final HashSet<String> hashes = new HashSet<>();
+    private final LinkedHashSet<File> dirs = new LinkedHashSet<>();
+    private boolean newDirs = false;
+    private final File objectFolder;
+
+
+    public Transaction(){
+        this(Commit.OBJECT_FOLDER);
+    }
+
+    /**
+     * Creates a transaction writing to the object folder of another repository (see Remote).
+     * @param objectFolder - the objects directory of the repository
+     */
+    public Transaction(File objectFolder){
+        this.objectFolder = objectFolder;
+    }
+
+
+    /**
+     * returns true if writes must be flushed to disk (the core.fsync setting)
+     */
+    public static boolean isDurable(){
+        return Config.readFromFile().getBoolean(FSYNC_KEY);
+    }
+
+
+    /**
+     * Writes an object to a temporary file. Nothing is written if the object already exists, here or in an
+     * alternate of the object folder.
+     * @param hash - id of the object
+     * @param content - content of the object
+     */
+    public void writeObject(String hash, byte[] content){
+        File target = join(objectFolder, getHashHead(hash), getHashBody(hash));
+        if (!hashes.add(hash) || getHashAsFile(objectFolder, hash).isFile()){
+            return;
+        }
+        File dir = target.getParentFile();
+        if (dir.mkdir()){
+            newDirs = true;
+        }
+        Perf.OperationEvent event = Perf.begin(Perf.Op.WRITE_OBJECT);
+        pending.put(writeTemp(dir, content, false), target);
+        Perf.end(Perf.Op.WRITE_OBJECT, event, target, content.length);
+        dirs.add(dir);
+    }
+
+
+    /**
+     * Publishes every object written in this transaction.
+     */
+    public void commit(){
+        boolean sync = isDurable();
+        if (sync){
+            // start every flush at once: the disk can merge them instead of serving one file at a time
+            pending.keySet().parallelStream().forEach(Transaction::forceFile);
+        }
+        for (Map.Entry<File, File> object : pending.entrySet()){
+            moveAtomically(object.getKey(), object.getValue());
+        }
+        if (sync){
+            for (File dir : dirs){
+                forceDirectory(dir);
+            }
+            if (newDirs){
+                forceDirectory(objectFolder);
+            }
+        }
+        pending.clear();
+        dirs.clear();
+        newDirs = false;
+    }
+
+
+    /**
+     * Deletes the temporary files of the objects written so far, publishing none of them.
+     */
+    public void abort(){
+        for (File temp : pending.keySet()){
+            temp.delete();
+        }
+        pending.clear();
+        hashes.clear();
+        dirs.clear();
+        newDirs = false;
+    }
+
+
+    /**
+     * Replaces a file with new content atomically: the content is written to a temporary file in the same
+     * directory, flushed if core.fsync is set, then renamed over the file.
+     * @param file - file to replace
+     * @param content - new content
+     */
+    public static void replaceFile(File file, byte[] content){
+        File dir = file.getAbsoluteFile().getParentFile();
+        boolean sync = isDurable();
+        File temp = writeTemp(dir, content, sync);
+        moveAtomically(temp, file);
+        if (sync){
+            forceDirectory(dir);
+        }
+    }
+
+
+    private static File writeTemp(File dir, byte[] content, boolean sync){
+        try{
+            Path temp = Files.createTempFile(dir.toPath(), ".tmp-", "");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(content);
+                while (buffer.hasRemaining()){
+                    channel.write(buffer);
+                }
+                if (sync){
+                    channel.force(true);
+                }
+            }
+            return temp.toFile();
+        }catch (IOException e){
+            throw error("Could not write to %s: %s", dir.getPath(), e.getMessage());
+        }
+    }
+
+    static void moveAtomically(File from, File to){
+        try{
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        }catch (IOException e){
+            from.delete();
+            throw error("Could not write %s: %s", to.getPath(), e.getMessage());
+        }
+    }
+
+    private static void forceFile(File file){
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }catch (IOException e){
+            throw error("Could not flush %s: %s", file.getPath(), e.getMessage());
+        }
+    }
+
+    static void forceDirectory(File dir){
+        try (FileChannel channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        }catch (IOException e){
+            // some platforms (e.g. Windows) cannot open or flush a directory: the rename is all we can do
+        }
+    }
+}
@@ -4,12 +4,11 @@ import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Formatter;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * This class will serve as a helper class that will provide us with utility functions
@@ -20,39 +19,51 @@ import java.util.List;
 
 public class Utils {
 
-    // length of complete sha-1 uid
-    final static int UID_LENGTH = 40;
-
     /**
-     * convert content into a Sha-1 hash. the parameter content may contain a combination
+     * convert content into an object id, with the hash algorithm of the repository (sha1 unless it was created
+     * with another one, see HashAlgorithm). the parameter content may contain a combination
      * of strings and byte arrays.
      * @throws IllegalArgumentException
      * @param content can be a series of strings or byte array.
-     * @return the sha-1 hash of the parameter passed to it
+     * @return the hash of the parameter passed to it
      */
     public static String sha1(Object... content){
-        try{
-            MessageDigest m = MessageDigest.getInstance("SHA-1");
-            for (Object ob: content){
-                if (ob instanceof byte[]){
-                    m.update((byte[]) ob);
-                }else if(ob instanceof String){
-                    m.update(((String)ob).getBytes(StandardCharsets.UTF_8));
-                }
-                else{
-                    throw new IllegalArgumentException("incorrect value to sha1");
-                }
+        Perf.OperationEvent event = Perf.begin(Perf.Op.SHA1);
+        String hash = HashAlgorithm.current().hash(content);
+        long bytes = 0;
+        // counting the bytes of the strings is another pass over them, only done when someone records it
+        if (Perf.isEnabled() || event.isEnabled()){
+            for (Object ob : content){
+                bytes += ob instanceof byte[] ? ((byte[]) ob).length : utf8Length((String) ob);
             }
+        }
+        Perf.end(Perf.Op.SHA1, event, null, bytes);
+        return hash;
+    }
 
-            // format output
-            Formatter output = new Formatter();
-            for (byte b : m.digest()) output.format("%02x", b);
-            return output.toString();
-
-        } catch (NoSuchAlgorithmException e) {
-            e.printStackTrace();
+    /**
+     * returns the number of bytes of a String encoded in UTF-8, the bytes sha1 hashes, without encoding it
+     */
+    static long utf8Length(String text){
+        long length = 0;
+        for (int i = 0; i < text.length(); i++){
+            char c = text.charAt(i);
+            if (c < 0x80){
+                length += 1;
+            }else if (c < 0x800){
+                length += 2;
+            }else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))){
+                length += 4;
+                i++;
+            }else if (Character.isSurrogate(c)){
+                // an unpaired surrogate is encoded as '?'
+                length += 1;
+            }else{
+                length += 3;
+            }
         }
-        return null;
+        return length;
     }
 
     /**
@@ -94,38 +105,54 @@ public class Utils {
      * Write the output of concatenating the bytes in contents parameter to a file.
      * It can create a new file or overwrite and existing one. Each object in contents can
      * be either a byte array or a string.
+     * An existing file is never written in place: the contents go to a new file that is renamed over it, so a
+     * working file hard linked to an object (see CheckoutEngine and Clone) is replaced, not modified.
      * @throws IllegalArgumentException
      * @param file
      * @param contents
      */
     public static void writeContents(File file, Object... contents){
-    	try {
-    	   if (file.isDirectory()) throw new IllegalArgumentException ("Cannot overwrite a directory");
-    	
-    	    BufferedOutputStream str = new BufferedOutputStream(Files.newOutputStream(file.toPath()));
-    	
-    	    for (Object ob: contents) {
-    		    if (ob instanceof byte[]){
-                    str.write((byte[])ob);
-                } else {
-                    str.write(((String) ob).getBytes(StandardCharsets.UTF_8));
-                }
-    		
-        }
-    	str.close();
-    	} catch (IOException | ClassCastException excep) {
+        Perf.OperationEvent event = Perf.begin(Perf.Op.WRITE_FILE);
+        if (file.isDirectory()) throw new IllegalArgumentException ("Cannot overwrite a directory");
+        File temp = tempFileFor(file);
+        long bytes = 0;
+        try (BufferedOutputStream str = new BufferedOutputStream(Files.newOutputStream(temp.toPath(),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE))) {
+            for (Object ob: contents) {
+                byte[] data = ob instanceof byte[] ? (byte[]) ob : ((String) ob).getBytes(StandardCharsets.UTF_8);
+                str.write(data);
+                bytes += data.length;
+            }
+        } catch (IOException | ClassCastException excep) {
+            temp.delete();
             throw new IllegalArgumentException(excep.getMessage());
         }
+        Transaction.moveAtomically(temp, file);
+        Perf.end(Perf.Op.WRITE_FILE, event, file, bytes);
+    }
+
+
+    /**
+     * returns an unused name in the directory of a file, for a new version of the file to be written to before
+     * it is renamed over it. Unlike Files.createTempFile, the file is created later with the default permissions.
+     */
+    public static File tempFileFor(File file){
+        File dir = file.getAbsoluteFile().getParentFile();
+        return new File(dir, "." + file.getName() + ".tmp-" + Long.toHexString(ThreadLocalRandom.current().nextLong()));
     }
 
 
     /**
-     * Writes an Object to a file
+     * Writes an Object to a file. The file is replaced atomically, so readers (and a crash) only ever see
+     * the old or the new version.
      * @param file
      * @param obj
      */
     public  static void writeObject(File file, Serializable obj){
-        writeContents(file, serialize(obj));
+        Perf.OperationEvent event = Perf.begin(Perf.Op.WRITE_OBJECT);
+        byte[] content = serialize(obj);
+        Transaction.replaceFile(file, content);
+        Perf.end(Perf.Op.WRITE_OBJECT, event, file, content.length);
     }
 
 
@@ -137,18 +164,22 @@ public class Utils {
      * @return Object
      */
     public static <T extends Serializable> T readObjectFromFile(File file, Class<T> type){
+        Perf.OperationEvent event = Perf.begin(Perf.Op.READ_OBJECT);
+        if (ObjectCache.isEnabled()) {
+            T obj = ObjectCache.read(file, type);
+            Perf.end(Perf.Op.READ_OBJECT, event, file, 0);
+            return obj;
+        }
         try {
     		ObjectInputStream input = new ObjectInputStream (new FileInputStream(file));
     		
     		T obj= type.cast(input.readObject());
     		
     		input.close();
+    		Perf.end(Perf.Op.READ_OBJECT, event, file, file.length());
     		return obj;
                   	
         } catch (IOException | ClassNotFoundException e) {
-
-			// TODO Auto-generated catch block
-			 e.printStackTrace();
 			 throw new IllegalArgumentException("An error occurred while reading the Object");
 		}
        
@@ -164,8 +195,11 @@ public class Utils {
         if (!file.isFile()) {
             exitWithError("Argument Must be a valid file", 0);
         }
+        Perf.OperationEvent event = Perf.begin(Perf.Op.READ_FILE);
         try {
-            return Files.readAllBytes(file.toPath());
+            byte[] content = Files.readAllBytes(file.toPath());
+            Perf.end(Perf.Op.READ_FILE, event, file, content.length);
+            return content;
 
         } catch (IOException e) {
             throw new IllegalArgumentException(e.getMessage());
@@ -198,7 +232,9 @@ public class Utils {
      * @return List<String>
      */
     public static List<String> getPlaneFileNameInDir(File dir){
+        Perf.OperationEvent event = Perf.begin(Perf.Op.LIST_DIR);
         String[] files = dir.list(PLAIN_FILES);
+        Perf.end(Perf.Op.LIST_DIR, event, dir, files.length);
         List<String> listFiles = new ArrayList<>();
         if (files.length == 0){
             return null;
@@ -253,6 +289,20 @@ public class Utils {
        }
     }
 
+    /**
+     * Returns the object serialized in a byte array, as read back from a stream rather than a file.
+     * @param content - the serialized object
+     * @param type - the type of the object
+     * @return Object
+     */
+    public static <T extends Serializable> T deserialize(byte[] content, Class<T> type){
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(content))) {
+            return type.cast(input.readObject());
+        }catch (IOException | ClassNotFoundException | ClassCastException e){
+            throw error("Not a valid %s object", type.getSimpleName());
+        }
+    }
+
     public static <T extends  Serializable> String hashObj(T obj){
         return sha1(serialize(obj));
     }
@@ -297,13 +347,13 @@ public class Utils {
     }
 
     /**
-     * exit the program with error message.
+     * ends the current command with an error message. The message is printed and the process exits with
+     * the given code by Main; a long running process (see Daemon) reports it and carries on.
      * @param msg
      * @param exitcode the type of exit code
      */
     public static void exitWithError(String msg, int exitcode){
-        System.out.println(msg);
-        System.exit(exitcode);
+        throw new GitletException(msg, exitcode);
     }
 
     /**
@@ -329,7 +379,25 @@ public class Utils {
     }
 
     public static File getHashAsFile(String hash){
-        return join(Commit.OBJECT_FOLDER, getHashHead(hash), getHashBody(hash));
+        return getHashAsFile(Commit.OBJECT_FOLDER, hash);
+    }
+
+    public static File getHashAsFile(ObjectId id){
+        return getHashAsFile(Commit.OBJECT_FOLDER, id.toString());
+    }
+
+    /**
+     * returns the file of an object in the object folder of any repository (see Remote). An object the folder
+     * lacks is looked up in its alternates (see Alternates); if none has it, the file it would have in the
+     * folder itself is returned.
+     */
+    public static File getHashAsFile(File objectFolder, String hash){
+        File file = join(objectFolder, getHashHead(hash), getHashBody(hash));
+        if (file.isFile() || Alternates.of(objectFolder).isEmpty()){
+            return file;
+        }
+        File alternate = Alternates.find(objectFolder, hash);
+        return alternate == null ? file : alternate;
     }
 
 }